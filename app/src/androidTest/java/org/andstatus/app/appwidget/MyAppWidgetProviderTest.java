@@ -25,6 +25,7 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MessageCounters;
 import org.andstatus.app.service.CommandResult;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyLog;
@@ -169,12 +170,12 @@ public class MyAppWidgetProviderTest extends InstrumentationTestCase {
     	int numHome = 7;
         updateWidgets(numHome, 0, 0);
     	
-        checkWidgetData(numMentions, numDirect, numHome);
+        checkWidgetData(numMentions, numDirect, numHome + numDirect + numMentions);
         
         long dateCheckedMin = System.currentTimeMillis();  
         numMentions++;
         updateWidgets(0, 0, 1);
-        checkWidgetData(numMentions, numDirect, numHome);
+        checkWidgetData(numMentions, numDirect, numHome + numDirect + numMentions);
         long dateCheckedMax = System.currentTimeMillis();
         
         checkDateSince(dateSinceMin, dateSinceMax);
@@ -259,12 +260,17 @@ public class MyAppWidgetProviderTest extends InstrumentationTestCase {
         CommandResult result = new CommandResult();
         for (int count = 0; count < msgAdded; count++) {
             result.incrementMessagesCount();
+            MessageCounters.onMessageAdded(0, 0, false, false);
         }
         for (int count = 0; count < msgDirectAdded; count++) {
+            result.incrementMessagesCount();
             result.incrementDirectCount();
+            MessageCounters.onMessageAdded(0, 0, false, true);
         }
         for (int count = 0; count < mentionsAdded; count++) {
+            result.incrementMessagesCount();
             result.incrementMentionsCount();
+            MessageCounters.onMessageAdded(0, 0, true, false);
         }
         appWidgets.updateData(result);
         appWidgets.updateViews();
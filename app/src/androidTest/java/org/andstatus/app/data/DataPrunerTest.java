@@ -1,20 +1,32 @@
 package org.andstatus.app.data;
 
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Build;
 import android.test.InstrumentationTestCase;
 
+import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.context.Travis;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.database.FriendshipTable;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @Travis
 public class DataPrunerTest extends InstrumentationTestCase  {
@@ -86,6 +98,101 @@ public class DataPrunerTest extends InstrumentationTestCase  {
         MyLog.v(this, method + "; Ended");
     }
 
+    public void testPruneMessages() {
+        DataPruner dp = new DataPruner(MyContextHolder.get());
+        assertEquals("No limits", 0, dp.pruneMessages(0, 0, DataPruner.PRUNE_MESSAGES_TIME_BUDGET_MILLIS));
+        long count = MyQuery.sqlToLong(null, "testPruneMessages", "SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME);
+        assertTrue("Messages " + count, count > 0);
+        assertEquals("Nothing is old", 0, dp.pruneMessages(100000, 0, DataPruner.PRUNE_MESSAGES_TIME_BUDGET_MILLIS));
+        assertEquals("Within the size", 0,
+                dp.pruneMessages(0, (int) count, DataPruner.PRUNE_MESSAGES_TIME_BUDGET_MILLIS));
+        assertEquals(count, MyQuery.sqlToLong(null, "testPruneMessages", "SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME));
+    }
+
+    /** Old messages with the largest ids are added, and the pruning starts from them */
+    public void testPruneMessagesInChunks() {
+        final String method = "testPruneMessagesInChunks";
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        long friendId = MyQuery.sqlToLong(db, method, "SELECT " + FriendshipTable.FRIEND_ID
+                + " FROM " + FriendshipTable.TABLE_NAME + " WHERE " + FriendshipTable.FOLLOWED + "=1 LIMIT 1");
+        assertTrue("Followed user found", friendId != 0);
+        long friendMsgIdStored = MyQuery.userIdToLongColumnValue(UserTable.USER_MSG_ID, friendId);
+        int nMessages = DataPruner.PRUNE_MESSAGES_CHUNK_SIZE + 50;
+        List<Long> msgIds = new ArrayList<>();
+        try {
+            db.beginTransaction();
+            try {
+                for (int ind = 0; ind < nMessages; ind++) {
+                    msgIds.add(insertOldMessage(db, ma, ind));
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long favoritedId = msgIds.get(5);
+            long friendMsgId = msgIds.get(10);
+            long prunedId = msgIds.get(15);
+            ContentValues values = new ContentValues();
+            values.put(MsgOfUserTable.FAVORITED, 1);
+            db.update(MsgOfUserTable.TABLE_NAME, values, MsgOfUserTable.MSG_ID + "=" + favoritedId, null);
+            values = new ContentValues();
+            values.put(UserTable.USER_MSG_ID, friendMsgId);
+            db.update(UserTable.TABLE_NAME, values, UserTable._ID + "=" + friendId, null);
+
+            DataPruner dp = new DataPruner(MyContextHolder.get());
+            DataPruner.messagesPruneResumeFromId = msgIds.get(0) - 1;
+            assertEquals("The first chunk, then time is out", DataPruner.PRUNE_MESSAGES_CHUNK_SIZE - 2,
+                    dp.pruneMessages(1, 0, -1));
+            long lastIdOfChunk = msgIds.get(DataPruner.PRUNE_MESSAGES_CHUNK_SIZE - 1);
+            assertEquals("Resume from", lastIdOfChunk, DataPruner.messagesPruneResumeFromId);
+            assertEquals("Favorited kept", favoritedId, MyQuery.msgIdToLongColumnValue(MsgTable._ID, favoritedId));
+            assertEquals("Latest message of a friend kept", friendMsgId,
+                    MyQuery.msgIdToLongColumnValue(MsgTable._ID, friendMsgId));
+            assertEquals("Pruned", 0, MyQuery.msgIdToLongColumnValue(MsgTable._ID, prunedId));
+            assertEquals("Message of user deleted", 0, countMsgOfUser(db, prunedId));
+            assertEquals("Message of user kept", 1, countMsgOfUser(db, favoritedId));
+            long nextId = msgIds.get(DataPruner.PRUNE_MESSAGES_CHUNK_SIZE);
+            assertEquals("Not pruned yet", nextId, MyQuery.msgIdToLongColumnValue(MsgTable._ID, nextId));
+
+            assertEquals("The rest", nMessages - DataPruner.PRUNE_MESSAGES_CHUNK_SIZE,
+                    dp.pruneMessages(1, 0, -1));
+            assertEquals("Completed", 0, DataPruner.messagesPruneResumeFromId);
+            assertEquals(0, MyQuery.msgIdToLongColumnValue(MsgTable._ID, msgIds.get(nMessages - 1)));
+        } finally {
+            DataPruner.messagesPruneResumeFromId = 0;
+            ContentValues friendValues = new ContentValues();
+            friendValues.put(UserTable.USER_MSG_ID, friendMsgIdStored);
+            db.update(UserTable.TABLE_NAME, friendValues, UserTable._ID + "=" + friendId, null);
+            if (!msgIds.isEmpty()) {
+                String sqlIds = DownloadData.toSqlList(msgIds);
+                db.delete(MsgOfUserTable.TABLE_NAME, MsgOfUserTable.MSG_ID + " IN (" + sqlIds + ")", null);
+                db.delete(MsgTable.TABLE_NAME, MsgTable._ID + " IN (" + sqlIds + ")", null);
+            }
+        }
+    }
+
+    private long insertOldMessage(SQLiteDatabase db, MyAccount ma, int index) {
+        ContentValues values = new ContentValues();
+        values.put(MsgTable.ORIGIN_ID, ma.getOriginId());
+        values.put(MsgTable.MSG_OID, "prune-test-" + index + "-" + System.currentTimeMillis());
+        values.put(MsgTable.BODY, "Old message " + index);
+        values.put(MsgTable.INS_DATE, 1000 + index);
+        long msgId = db.insert(MsgTable.TABLE_NAME, null, values);
+        assertTrue("Message inserted", msgId > 0);
+        values = new ContentValues();
+        values.put(MsgOfUserTable.USER_ID, ma.getUserId());
+        values.put(MsgOfUserTable.MSG_ID, msgId);
+        values.put(MsgOfUserTable.SUBSCRIBED, 1);
+        db.insert(MsgOfUserTable.TABLE_NAME, null, values);
+        return msgId;
+    }
+
+    private long countMsgOfUser(SQLiteDatabase db, long msgId) {
+        return MyQuery.sqlToLong(db, "countMsgOfUser", "SELECT COUNT(*) FROM " + MsgOfUserTable.TABLE_NAME
+                + " WHERE " + MsgOfUserTable.MSG_ID + "=" + msgId);
+    }
+
     public void testPruneAttachments() throws MalformedURLException {
         DataPruner dp = new DataPruner(MyContextHolder.get());
         dp.pruneAttachments();
@@ -95,6 +202,72 @@ public class DataPrunerTest extends InstrumentationTestCase  {
         assertEquals(0, dp.pruneAttachments());
     }
 
+    /** Only files, added by the test, are least recently accessed and exceed the quota */
+    public void testPruneDownloads() throws IOException {
+        DataPruner dp = new DataPruner(MyContextHolder.get());
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        long sharedSize = dp.getDownloadsSize(db);
+        assertEquals("Within the quota", 0, dp.pruneDownloads(sharedSize,
+                DataPruner.PRUNE_DOWNLOADS_TIME_BUDGET_MILLIS));
+
+        // Pruning stops at 90% of the quota, which is above the size of the shared downloads
+        long maxBytes = sharedSize + sharedSize / 9 + 10;
+        int fileSize = (int) ((maxBytes - sharedSize) / 2 + 1024);
+        List<Long> rowIds = new ArrayList<>();
+        List<DownloadFile> files = new ArrayList<>();
+        try {
+            for (int ind = 0; ind < 3; ind++) {
+                DownloadFile file = new DownloadFile("prune-test-" + ind + "-" + System.currentTimeMillis() + ".png");
+                files.add(file);
+                writeFile(file.getFile(), fileSize);
+                rowIds.add(insertLoadedDownload(db, file.getFilename(), ind + 1));
+            }
+            long size = dp.getDownloadsSize(db);
+            assertEquals(sharedSize + 3 * fileSize, size);
+
+            assertTrue("Pruned", dp.pruneDownloads(maxBytes, DataPruner.PRUNE_DOWNLOADS_TIME_BUDGET_MILLIS) > 0);
+            long size2 = dp.getDownloadsSize(db);
+            assertTrue("Size decreased " + size + " -> " + size2, size2 < size);
+            assertTrue("Shared downloads kept " + sharedSize + " -> " + size2, size2 >= sharedSize);
+            assertEquals("Least recently accessed evicted", DownloadStatus.ABSENT,
+                    DownloadStatus.load(MyQuery.sqlToLong(db, "", "SELECT " + DownloadTable.DOWNLOAD_STATUS
+                            + " FROM " + DownloadTable.TABLE_NAME + " WHERE " + DownloadTable._ID + "=" + rowIds.get(0))));
+            assertFalse("Evicted file deleted", files.get(0).getFile().exists());
+        } finally {
+            for (DownloadFile file : files) {
+                file.delete();
+            }
+            if (!rowIds.isEmpty()) {
+                db.delete(DownloadTable.TABLE_NAME, DownloadTable._ID + " IN (" + DownloadData.toSqlList(rowIds) + ")",
+                        null);
+            }
+        }
+    }
+
+    private void writeFile(File file, int size) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[size]);
+        } finally {
+            out.close();
+        }
+        DownloadFileIndex.onStored(file);
+    }
+
+    private long insertLoadedDownload(SQLiteDatabase db, String filename, long accessedDate) {
+        ContentValues values = new ContentValues();
+        values.put(DownloadTable.DOWNLOAD_TYPE, DownloadType.IMAGE.save());
+        values.put(DownloadTable.CONTENT_TYPE, MyContentType.IMAGE.save());
+        values.put(DownloadTable.VALID_FROM, accessedDate);
+        values.put(DownloadTable.URI, "http://example.com/" + filename);
+        values.put(DownloadTable.DOWNLOAD_STATUS, DownloadStatus.LOADED.save());
+        values.put(DownloadTable.FILE_NAME, filename);
+        values.put(DownloadTable.ACCESSED_DATE, accessedDate);
+        long rowId = db.insert(DownloadTable.TABLE_NAME, null, values);
+        assertTrue("Download inserted", rowId > 0);
+        return rowId;
+    }
+
     private void clearPrunedDate() {
         SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_DATE, 0);
     }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+@Travis
+public class DownloadFileIndexTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testSync() throws IOException {
+        DownloadFile file = new DownloadFile("test_index_" + System.currentTimeMillis());
+        assertFalse(file.exists());
+        assertFalse(DownloadFileIndex.exists(file.getFilePath()));
+
+        FileOutputStream out = new FileOutputStream(file.getFile());
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+        assertFalse("Not known yet", file.exists());
+        DownloadFileIndex.onStored(file.getFile());
+        assertTrue(file.exists());
+        assertTrue(DownloadFileIndex.exists(file.getFilePath()));
+        assertEquals(3, file.getSize());
+
+        assertTrue(file.delete());
+        assertFalse(file.exists());
+        assertFalse(file.getFile().exists());
+    }
+
+    public void testNotIndexedFileIsCheckedInBackground() throws IOException {
+        final DownloadFile file = new DownloadFile("test_index_ui_" + System.currentTimeMillis());
+        FileOutputStream out = new FileOutputStream(file.getFile());
+        out.write(new byte[]{1, 2});
+        out.close();
+        try {
+            final boolean[] existsInUiThread = {true};
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    existsInUiThread[0] = DownloadFileIndex.exists(file.getFilePath());
+                }
+            });
+            assertFalse("Not checked in the UI thread", existsInUiThread[0]);
+
+            DownloadFileIndex.checkFiles();
+            assertTrue(DownloadFileIndex.exists(file.getFilePath()));
+            assertEquals(2, file.getSize());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -108,6 +108,8 @@ public class HtmlContentInserter extends InstrumentationTestCase {
         }
         String bodyToSearch = MyQuery.msgIdToStringColumnValue(MsgTable.BODY_TO_SEARCH, msgId1);
         assertEquals("Body to search", MyHtml.getBodyToSearch(body), bodyToSearch);
+        String bodyToView = MyQuery.msgIdToStringColumnValue(MsgTable.BODY_TO_VIEW, msgId1);
+        assertEquals("Body to view", MyHtml.prepareForView(body), bodyToView);
 		return mi;
 	}
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class MessageCountersTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testIncrement() {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        assertTrue(ma.isValid());
+        MessageCounters.Counts all1 = MessageCounters.getCounts(0);
+        MessageCounters.Counts account1 = MessageCounters.getCounts(ma.getUserId());
+        assertTrue("Counted while inserting data " + all1, all1.newCount > 0);
+        assertTrue(account1.toString(), account1.newCount <= all1.newCount);
+
+        MessageCounters.onMessageAdded(0, ma.getUserId(), false, false);
+        MessageCounters.onMessageAdded(0, ma.getUserId(), true, false);
+        MessageCounters.onMessageAdded(0, ma.getUserId(), false, true);
+        MessageCounters.onMessageAdded(0, ma.getUserId() + 1000000, true, true);
+
+        MessageCounters.Counts account2 = MessageCounters.getCounts(ma.getUserId());
+        assertEquals(account2.toString(), account1.newCount + 3, account2.newCount);
+        assertEquals(account2.toString(), account1.mentionsCount + 1, account2.mentionsCount);
+        assertEquals(account2.toString(), account1.directCount + 1, account2.directCount);
+
+        MessageCounters.Counts all2 = MessageCounters.getCounts(0);
+        assertEquals(all2.toString(), all1.newCount + 4, all2.newCount);
+        assertEquals(all2.toString(), all1.mentionsCount + 2, all2.mentionsCount);
+        assertEquals(all2.toString(), all1.directCount + 2, all2.directCount);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.database.MsgTable;
+
+@Travis
+public class MyDataCheckerConversationsTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testFixConversationOfReply() {
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, TestSuite.getConversationOriginId(),
+                TestSuite.CONVERSATION_MENTIONS_MESSAGE_OID);
+        assertTrue("Message found", msgId != 0);
+        assertTrue("Is a reply", MyQuery.msgIdToLongColumnValue(MsgTable.IN_REPLY_TO_MSG_ID, msgId) != 0);
+        long conversationId = MyQuery.msgIdToLongColumnValue(MsgTable.CONVERSATION_ID, msgId);
+        assertTrue("Conversation of " + msgId, conversationId != 0);
+
+        MyContextHolder.get().getDatabase().execSQL("UPDATE " + MsgTable.TABLE_NAME
+                + " SET " + MsgTable.CONVERSATION_ID + "=NULL WHERE " + MsgTable._ID + "=" + msgId);
+        MyDataCheckerConversations checker = new MyDataCheckerConversations(MyContextHolder.get(),
+                ProgressLogger.getEmpty());
+        assertEquals("Changes of broken conversation", 1, checker.countChanges());
+        assertEquals("Nothing saved, while counting", 0,
+                MyQuery.msgIdToLongColumnValue(MsgTable.CONVERSATION_ID, msgId));
+
+        checker.fixData();
+        assertEquals("Conversation fixed", conversationId,
+                MyQuery.msgIdToLongColumnValue(MsgTable.CONVERSATION_ID, msgId));
+        assertEquals("Conversations need fixes", 0, checker.countChanges());
+    }
+}
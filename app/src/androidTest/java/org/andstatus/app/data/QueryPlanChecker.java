@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import junit.framework.Assert;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.database.FriendshipTable;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks "EXPLAIN QUERY PLAN" of queries, so a query, which stopped using indexes, fails a test
+ * instead of slowing down large databases. Full scans of small tables are allowed
+ */
+public class QueryPlanChecker {
+    private static final List<String> LARGE_TABLES = Arrays.asList(MsgTable.TABLE_NAME, MsgOfUserTable.TABLE_NAME,
+            UserTable.TABLE_NAME, FriendshipTable.TABLE_NAME, DownloadTable.TABLE_NAME);
+    private static final Pattern SCAN_PATTERN = Pattern.compile("^SCAN (TABLE )?(\\w+)");
+
+    private QueryPlanChecker() {
+        // Empty
+    }
+
+    public static List<String> explain(String sql, String[] selectionArgs) {
+        List<String> plan = new ArrayList<>();
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        Assert.assertNotNull("Database is not ready", db);
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+            int columnIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(columnIndex));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return plan;
+    }
+
+    public static void assertNoFullScans(String description, MyProvider.QuerySql query) {
+        List<String> plan = explain(query.sql, query.selectionArgs);
+        for (String detail : plan) {
+            if (isFullScanOfLargeTable(detail)) {
+                Assert.fail(description + ": full scan '" + detail + "'\nSQL: " + query.sql
+                        + "\nPlan: " + plan);
+            }
+        }
+    }
+
+    public static void assertUsesIndex(String description, MyProvider.QuerySql query, String indexName) {
+        List<String> plan = explain(query.sql, query.selectionArgs);
+        for (String detail : plan) {
+            if (detail.contains(" INDEX " + indexName + " ") || detail.endsWith(" INDEX " + indexName)) {
+                return;
+            }
+        }
+        Assert.fail(description + ": index " + indexName + " is not used\nSQL: " + query.sql + "\nPlan: " + plan);
+    }
+
+    /** Scans "USING INDEX" or "USING COVERING INDEX" are not full scans */
+    static boolean isFullScanOfLargeTable(String detail) {
+        Matcher matcher = SCAN_PATTERN.matcher(detail);
+        return matcher.find() && LARGE_TABLES.contains(matcher.group(2)) && !detail.contains(" USING ");
+    }
+}
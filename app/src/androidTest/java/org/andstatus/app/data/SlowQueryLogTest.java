@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+@Travis
+public class SlowQueryLogTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedPreferencesUtil.putBoolean(MyPreferences.KEY_LOG_SLOW_QUERIES, false);
+        SlowQueryLog.forget();
+        super.tearDown();
+    }
+
+    public void testShape() {
+        assertEquals("SELECT _id FROM msg WHERE msg_oid=? AND origin_id=?",
+                SlowQueryLog.toShape("SELECT _id FROM msg WHERE msg_oid='it''s 12' AND origin_id=5"));
+        assertEquals("DELETE FROM msg WHERE _id IN (?,...) AND ins_date<?",
+                SlowQueryLog.toShape("DELETE FROM msg WHERE _id IN (12, 34,56) AND ins_date<-1"));
+        assertEquals("Names with digits", "SELECT t1._id FROM msg AS t1",
+                SlowQueryLog.toShape("SELECT t1._id FROM msg AS t1"));
+    }
+
+    public void testSlowest() {
+        SharedPreferencesUtil.putBoolean(MyPreferences.KEY_LOG_SLOW_QUERIES, false);
+        SlowQueryLog.forget();
+        assertEquals("Disabled", 0, SlowQueryLog.start());
+
+        SharedPreferencesUtil.putBoolean(MyPreferences.KEY_LOG_SLOW_QUERIES, true);
+        SlowQueryLog.forget();
+        assertTrue(SlowQueryLog.isEnabled());
+        long startedAt = SlowQueryLog.start();
+        assertTrue(startedAt != 0);
+        for (int iteration = 0; iteration < SlowQueryLog.SLOWEST_MAX + 5; iteration++) {
+            SlowQueryLog.end(startedAt - iteration * 1000000L, "SELECT " + iteration + " FROM t" + iteration, 1);
+        }
+        SlowQueryLog.end(startedAt - 5000000000L, "SELECT 1 FROM t1", 3);
+        String sql = "SELECT " + MsgTable._ID + " FROM " + MsgTable.TABLE_NAME;
+        Cursor cursor = SlowQueryLog.rawQuery(MyContextHolder.get().getDatabase(), sql, null);
+        DbUtils.closeSilently(cursor);
+
+        String report = SlowQueryLog.getReport();
+        String[] lines = report.split("\n");
+        assertTrue(report, lines[0].contains("of " + (SlowQueryLog.SLOWEST_MAX + 7)));
+        assertEquals(report, SlowQueryLog.SLOWEST_MAX + 1, lines.length);
+        assertTrue("The slowest first: " + report, lines[1].contains("rows:3, calls:2"));
+        assertTrue("The slowest first: " + report, lines[1].startsWith("5"));
+        assertTrue(SlowQueryLog.writeReport());
+        assertTrue(MyLog.getFileInLogDir(SlowQueryLog.REPORT_FILENAME, true).exists());
+    }
+}
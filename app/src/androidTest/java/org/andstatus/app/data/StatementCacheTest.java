@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.provider.BaseColumns;
+import android.test.InstrumentationTestCase;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.database.MsgTable;
+
+@Travis
+public class StatementCacheTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testCachedLookups() {
+        long msgId = MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, BaseColumns._ID,
+                "t." + MsgTable.MSG_OID + " IS NOT NULL");
+        assertTrue("Message found", msgId != 0);
+        String oid = MyQuery.idToOid(OidEnum.MSG_OID, msgId, 0);
+        assertFalse("Oid of " + msgId, TextUtils.isEmpty(oid));
+        long originId = MyQuery.msgIdToOriginId(msgId);
+        assertTrue("Origin of " + msgId, originId != 0);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            assertEquals("Iteration " + iteration, msgId, MyQuery.oidToId(OidEnum.MSG_OID, originId, oid));
+        }
+        assertEquals("Quoted oid", msgId, MyQuery.oidToId(OidEnum.MSG_OID, originId, "'" + oid + "'"));
+        assertEquals("Quote inside", 0, MyQuery.oidToId(OidEnum.MSG_OID, originId, oid + "'s"));
+        assertEquals("Quote inside", 0, MyQuery.userNameToId(originId, "nobody's name"));
+
+        StatementCache.forget();
+        assertEquals("After forget", msgId, MyQuery.oidToId(OidEnum.MSG_OID, originId, oid));
+        assertEquals(oid, MyQuery.idToOid(OidEnum.MSG_OID, msgId, 0));
+    }
+}
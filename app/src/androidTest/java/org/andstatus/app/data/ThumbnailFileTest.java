@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.graphics.Bitmap;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class ThumbnailFileTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testSaveAndDelete() {
+        final long downloadId = 987654321L;
+        ThumbnailFile.deleteAll(downloadId);
+        ThumbnailFile thumbnail = new ThumbnailFile(downloadId, 40, 30);
+        assertFalse(thumbnail.exists());
+        Bitmap bitmap = Bitmap.createBitmap(40, 30, Bitmap.Config.ARGB_8888);
+        assertTrue(thumbnail.save(bitmap));
+        bitmap.recycle();
+        assertTrue(thumbnail.exists());
+        ThumbnailFile otherSize = new ThumbnailFile(downloadId, 20, 15);
+        assertFalse(otherSize.exists());
+
+        ThumbnailFile.deleteAll(downloadId);
+        assertFalse(thumbnail.exists());
+        assertFalse(new ThumbnailFile(0, 40, 30).exists());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.util.MyHtml;
+
+import java.util.Collections;
+
+@Travis
+public class DatabaseBackfillTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testBodyToSearch() {
+        assertBackfill(DatabaseBackfill.BodyToSearch.NAME, MsgTable.BODY_TO_SEARCH);
+    }
+
+    public void testBodyToView() {
+        assertBackfill(DatabaseBackfill.BodyToView.NAME, MsgTable.BODY_TO_VIEW);
+    }
+
+    public void testBodyFingerprint() {
+        assertBackfill(DatabaseBackfill.BodyFingerprint.NAME, MsgTable.BODY_FINGERPRINT);
+    }
+
+    public void testIndexesAreCreatedAfterFill() {
+        String indexName = "idx_msgofuser_msg";
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        try {
+            db.execSQL("DROP INDEX " + indexName);
+            assertFalse("Dropped", indexExists(indexName));
+
+            DatabaseBackfill.schedule(Collections.singletonList(DatabaseBackfill.IndexesOfVersion31.NAME));
+            DatabaseBackfill.runPending(MyContextHolder.get(), ProgressLogger.getEmpty());
+            assertFalse(DatabaseBackfill.isPending());
+            assertTrue("Created", indexExists(indexName));
+        } finally {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + MsgOfUserTable.TABLE_NAME
+                    + " (" + MsgOfUserTable.MSG_ID + ")");
+        }
+    }
+
+    public void testMessageIndexesAreCreatedAfterUpgrade() {
+        String indexName = "idx_msg_author_sent_date";
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        try {
+            db.execSQL("DROP INDEX " + indexName);
+            assertFalse("Dropped", indexExists(indexName));
+
+            DatabaseBackfill.schedule(Collections.singletonList(DatabaseBackfill.IndexesOfVersion33.NAME));
+            DatabaseBackfill.runPending(MyContextHolder.get(), ProgressLogger.getEmpty());
+            assertFalse(DatabaseBackfill.isPending());
+            assertTrue("Created", indexExists(indexName));
+        } finally {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + MsgTable.TABLE_NAME
+                    + " (" + MsgTable.AUTHOR_ID + ", " + MsgTable.SENT_DATE + ")");
+        }
+    }
+
+    private boolean indexExists(String indexName) {
+        return MyQuery.sqlToLong(MyContextHolder.get().getDatabase(), "", "SELECT COUNT(*) FROM sqlite_master"
+                + " WHERE type='index' AND name='" + indexName + "'") > 0;
+    }
+
+    private void assertBackfill(String name, String columnName) {
+        long msgId = MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable._ID,
+                "t." + MsgTable.BODY + " LIKE '%_%'");
+        assertTrue("Message with body found", msgId != 0);
+        String body = MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId);
+        long noBodyMsgId = insertMessageWithoutBody(MyQuery.msgIdToLongColumnValue(MsgTable.ORIGIN_ID, msgId));
+        try {
+            String where = columnName + " IS NULL";
+            MyContextHolder.get().getDatabase().execSQL("UPDATE " + MsgTable.TABLE_NAME
+                    + " SET " + columnName + "=NULL WHERE " + MsgTable._ID + "<=" + msgId);
+            assertTrue("Cleared", MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable._ID, where) != 0);
+
+            DatabaseBackfill.schedule(Collections.singletonList(name));
+            assertTrue(DatabaseBackfill.isPending());
+            DatabaseBackfill.runPending(MyContextHolder.get(), ProgressLogger.getEmpty());
+            assertFalse(DatabaseBackfill.isPending());
+
+            assertEquals("Rows left", 0, MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable._ID,
+                    where + " AND " + MsgTable.BODY + " IS NOT NULL"));
+            if (MsgTable.BODY_TO_SEARCH.equals(columnName)) {
+                assertEquals(MyHtml.getBodyToSearch(body), MyQuery.msgIdToStringColumnValue(columnName, msgId));
+                assertEquals("No body", "", MyQuery.msgIdToStringColumnValue(columnName, noBodyMsgId));
+            } else if (MsgTable.BODY_TO_VIEW.equals(columnName)) {
+                assertEquals(MyHtml.prepareForView(body), MyQuery.msgIdToStringColumnValue(columnName, msgId));
+            } else {
+                assertEquals(MyHtml.getBodyFingerprint(body), MyQuery.msgIdToLongColumnValue(columnName, msgId));
+            }
+        } finally {
+            MyContextHolder.get().getDatabase().delete(MsgTable.TABLE_NAME, MsgTable._ID + "=" + noBodyMsgId, null);
+        }
+    }
+
+    private long insertMessageWithoutBody(long originId) {
+        ContentValues values = new ContentValues();
+        values.put(MsgTable.ORIGIN_ID, originId);
+        values.put(MsgTable.MSG_OID, "backfill-test-" + System.currentTimeMillis());
+        values.putNull(MsgTable.BODY);
+        values.put(MsgTable.INS_DATE, System.currentTimeMillis());
+        long msgId = MyContextHolder.get().getDatabase().insert(MsgTable.TABLE_NAME, null, values);
+        assertTrue("Message without body inserted", msgId > 0);
+        return msgId;
+    }
+}
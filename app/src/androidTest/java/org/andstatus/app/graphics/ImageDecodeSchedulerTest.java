@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.andstatus.app.graphics;
+
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.InstrumentationTestCase;
+import android.widget.ImageView;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.DbUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Travis
+public class ImageDecodeSchedulerTest extends InstrumentationTestCase {
+    private final CountDownLatch decodersStarted = new CountDownLatch(2);
+    private final CountDownLatch decodersReleased = new CountDownLatch(1);
+    private final List<String> decoded = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> shown = Collections.synchronizedList(new ArrayList<String>());
+
+    private class RequestMock extends ImageDecodeScheduler.Request {
+        RequestMock(@NonNull String path) {
+            super(path);
+        }
+
+        @Nullable
+        @Override
+        protected Drawable decode() {
+            decoded.add(path);
+            return new ColorDrawable();
+        }
+
+        @Override
+        protected void onDecoded(@NonNull ImageView imageView, @Nullable Drawable drawable) {
+            shown.add(imageView.getTag() + "=" + path);
+        }
+    }
+
+    /** Keeps a decoder thread busy until released */
+    private class BlockingRequest extends ImageDecodeScheduler.Request {
+        BlockingRequest(@NonNull String path) {
+            super(path);
+        }
+
+        @Nullable
+        @Override
+        protected Drawable decode() {
+            decodersStarted.countDown();
+            try {
+                decodersReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        decodersReleased.countDown();
+        super.tearDown();
+    }
+
+    public void testSameFileIsDecodedOnce() throws InterruptedException {
+        ImageView view1 = newImageView("view1");
+        ImageView view2 = newImageView("view2");
+        occupyDecoders();
+        bind(view1, new RequestMock("a"));
+        bind(view2, new RequestMock("a"));
+        assertEquals(Arrays.asList("a"), ImageDecodeScheduler.getQueuedPaths());
+
+        decodersReleased.countDown();
+        waitForShown(2);
+        assertEquals(Arrays.asList("a"), decoded);
+        assertTrue(shown.toString(), shown.contains("view1=a"));
+        assertTrue(shown.toString(), shown.contains("view2=a"));
+    }
+
+    public void testRebindCancelsQueuedDecode() throws InterruptedException {
+        ImageView view1 = newImageView("view1");
+        occupyDecoders();
+        bind(view1, new RequestMock("a"));
+        bind(view1, new RequestMock("b"));
+        assertEquals(Arrays.asList("b"), ImageDecodeScheduler.getQueuedPaths());
+
+        decodersReleased.countDown();
+        waitForShown(1);
+        assertEquals(Arrays.asList("b"), decoded);
+        assertEquals(Arrays.asList("view1=b"), shown);
+    }
+
+    public void testViewsGoBeforePreloadLatestFirst() throws InterruptedException {
+        ImageView view1 = newImageView("view1");
+        ImageView view2 = newImageView("view2");
+        ImageView view3 = newImageView("view3");
+        occupyDecoders();
+        bind(null, new RequestMock("preload"));
+        bind(view1, new RequestMock("a"));
+        bind(view2, new RequestMock("b"));
+        assertEquals(Arrays.asList("b", "a", "preload"), ImageDecodeScheduler.getQueuedPaths());
+
+        bind(view3, new RequestMock("preload"));
+        assertEquals("Preloaded image is needed by a view now",
+                Arrays.asList("preload", "b", "a"), ImageDecodeScheduler.getQueuedPaths());
+
+        decodersReleased.countDown();
+        waitForShown(3);
+        assertEquals(3, decoded.size());
+    }
+
+    private ImageView newImageView(String tag) {
+        ImageView imageView = new ImageView(MyContextHolder.get().context());
+        imageView.setTag(tag);
+        return imageView;
+    }
+
+    private void occupyDecoders() throws InterruptedException {
+        bind(null, new BlockingRequest("blocking1"));
+        bind(null, new BlockingRequest("blocking2"));
+        assertTrue("Decoders started", decodersStarted.await(10, TimeUnit.SECONDS));
+    }
+
+    private void bind(final ImageView imageView, final ImageDecodeScheduler.Request request) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ImageDecodeScheduler.bind(imageView, request);
+            }
+        });
+    }
+
+    private void waitForShown(int count) {
+        for (int attempt = 0; attempt < 100 && shown.size() < count; attempt++) {
+            DbUtils.waitMs(this, 100);
+        }
+        getInstrumentation().waitForIdleSync();
+        assertEquals(shown.toString(), count, shown.size());
+    }
+}
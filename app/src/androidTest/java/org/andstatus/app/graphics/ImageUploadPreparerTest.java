@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.BitmapFactory;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+@Travis
+public class ImageUploadPreparerTest extends InstrumentationTestCase {
+    private File original;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        original = new File(MyContextHolder.get().context().getCacheDir(), "image_upload_test.png");
+        FileUtils.readStreamToFile(getInstrumentation().getContext().getResources()
+                .openRawResource(org.andstatus.app.tests.R.raw.large_image), original);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (original.exists()) {
+            assertTrue(original.delete());
+        }
+        super.tearDown();
+    }
+
+    public void testDownscale() throws IOException {
+        int sizeIn = getMaxSide(original);
+        assertTrue("Image size " + sizeIn, sizeIn > 300);
+        assertEquals("Fits already", original, ImageUploadPreparer.prepare(original, sizeIn));
+
+        File prepared = ImageUploadPreparer.prepare(original, 300);
+        assertFalse("Prepared " + prepared, original.equals(prepared));
+        int sizeOut = getMaxSide(prepared);
+        assertTrue("Downscaled to " + sizeOut, sizeOut >= 299 && sizeOut <= 300);
+        assertTrue("Smaller " + prepared.length(), prepared.length() < original.length());
+
+        File prepared2 = ImageUploadPreparer.prepare(original, 300);
+        assertFalse("Concurrent upload of the same file " + prepared2, prepared.equals(prepared2));
+        ImageUploadPreparer.release(prepared2, original);
+        assertFalse(prepared2.exists());
+        assertTrue(prepared.exists());
+
+        ImageUploadPreparer.release(prepared, original);
+        assertFalse(prepared.exists());
+        assertTrue(original.exists());
+    }
+
+    private static int getMaxSide(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        return Math.max(options.outWidth, options.outHeight);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class MyDrawableCacheTest extends InstrumentationTestCase {
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testResizeOnTrimMemory() {
+        MyDrawableCache cache = new MyDrawableCache(MyContextHolder.get().context(), "Test", 100, 40);
+        assertEquals(40, cache.getCurrentCacheSize());
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(20, cache.getCurrentCacheSize());
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals("Doesn't grow on trim", 20, cache.getCurrentCacheSize());
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(10, cache.getCurrentCacheSize());
+        assertTrue(cache.getInfo(), cache.getInfo().contains("trimmed at level "
+                + ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, cache.getCurrentCacheSize());
+
+        cache.resize(1000);
+        assertEquals("Not more than initially", 40, cache.getCurrentCacheSize());
+    }
+
+    public void testBitmapPoolTrimLevels() {
+        MyDrawableCache cache = new MyDrawableCache(MyContextHolder.get().context(), "Test", 100, 40);
+        long maxBudget = cache.bitmapPool.getBudgetBytes();
+        assertTrue(maxBudget > 0);
+
+        cache.bitmapPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(maxBudget / 2, cache.bitmapPool.getBudgetBytes());
+        cache.bitmapPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals("UI hidden is not critical", maxBudget / 2, cache.bitmapPool.getBudgetBytes());
+        cache.bitmapPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(maxBudget / 4, cache.bitmapPool.getBudgetBytes());
+        cache.bitmapPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(0, cache.bitmapPool.getBudgetBytes());
+    }
+
+    public void testEvictedBitmapIsNotReused() {
+        MyDrawableCache cache = new MyDrawableCache(MyContextHolder.get().context(), "Test", 100, 40);
+        Bitmap bitmap = cache.bitmapPool.get(50, 50);
+        assertNotNull(bitmap);
+        cache.put("evicted", new BitmapSubsetDrawable(bitmap, new Rect(0, 0, 50, 50)));
+        cache.evictAll();
+        assertFalse("Evicted bitmap may still be shown", bitmap.isRecycled());
+        assertNotSame("Evicted bitmap shouldn't be reused", bitmap, cache.bitmapPool.get(50, 50));
+        assertFalse(bitmap.isRecycled());
+    }
+
+    public void testTrimmedBitmapIsNotRecycled() {
+        MyDrawableCache cache = new MyDrawableCache(MyContextHolder.get().context(), "Test", 100, 40);
+        Bitmap bitmap = cache.bitmapPool.get(50, 50);
+        assertNotNull(bitmap);
+        cache.put("trimmed", new BitmapSubsetDrawable(bitmap, new Rect(0, 0, 50, 50)));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertNull(cache.get("trimmed"));
+        assertFalse("Trimmed bitmap may still be shown", bitmap.isRecycled());
+    }
+}
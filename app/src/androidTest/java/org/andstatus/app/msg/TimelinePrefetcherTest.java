@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.andstatus.app.msg;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.TimelineSql;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@Travis
+public class TimelinePrefetcherTest extends InstrumentationTestCase {
+    private TimelinePrefetcher prefetcher;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+        prefetcher = new TimelinePrefetcher(this);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        prefetcher.clear();
+        super.tearDown();
+    }
+
+    public void testPrefetchedPageIsTakenOnce() {
+        TimelineListParameters params = newOlderPageParams(TimelineType.HOME);
+        prefetchAndWait(params);
+
+        TimelineLoader loader = prefetcher.take(newOlderPageParams(TimelineType.HOME));
+        assertNotNull("Prefetched page for equal parameters", loader);
+        long endTime = loader.getParams().endTime;
+        assertTrue(loader.getParams().toSummary(), endTime > 0);
+        loader.load(null);
+        assertEquals("The loader, handed off to the activity, doesn't load again",
+                endTime, loader.getParams().endTime);
+
+        assertNull("Taken page is removed", prefetcher.take(params));
+    }
+
+    public void testExpiredPageIsNotUsed() {
+        TimelineListParameters params = newOlderPageParams(TimelineType.HOME);
+        prefetchAndWait(params);
+        params.endTime = System.nanoTime() - TimeUnit.SECONDS.toNanos(50);
+        assertNotNull("Not expired yet", prefetcher.take(params));
+
+        TimelineListParameters params2 = newOlderPageParams(TimelineType.HOME);
+        prefetchAndWait(params2);
+        params2.endTime = System.nanoTime() - TimeUnit.SECONDS.toNanos(61);
+        assertNull("Expired page", prefetcher.take(params2));
+    }
+
+    public void testPagesAreInvalidated() {
+        TimelineListParameters params = newOlderPageParams(TimelineType.HOME);
+        prefetchAndWait(params);
+        prefetcher.clear();
+        assertNull("Cleared", prefetcher.take(params));
+
+        prefetchAndWait(params);
+        prefetcher.onTimelineRequested(params.getTimeline());
+        assertNotNull("The same timeline", prefetcher.take(params));
+
+        prefetchAndWait(params);
+        prefetcher.onTimelineRequested(newOlderPageParams(TimelineType.MENTIONS).getTimeline());
+        assertNull("Other timeline requested", prefetcher.take(params));
+    }
+
+    public void testPrefetchDependsOnScrollVelocity() {
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        params.setTimeline(newOlderPageParams(TimelineType.HOME).getTimeline());
+        params.whichPage = WhichPage.CURRENT;
+        TimelineData data = new TimelineData(null, new TimelinePage(params, new ArrayList<TimelineViewItem>()));
+        assertTrue(data.mayHaveOlderPage());
+
+        assertEquals(WhichPage.EMPTY, prefetcher.onScroll(data, 0, 10, 1000));
+        DbUtils.waitMs(this, 200);
+        assertEquals("Slow scrolling far from the end", WhichPage.EMPTY, prefetcher.onScroll(data, 20, 10, 1000));
+        DbUtils.waitMs(this, 10);
+        assertEquals("Fast scrolling towards the end", WhichPage.OLDER, prefetcher.onScroll(data, 900, 10, 1000));
+    }
+
+    private TimelineListParameters newOlderPageParams(TimelineType timelineType) {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        params.setTimeline(Timeline.getTimeline(timelineType, ma, 0, null));
+        params.whichPage = WhichPage.OLDER;
+        params.maxSentDate = 1;
+        params.mProjection = TimelineSql.getTimelineProjection(false);
+        return params;
+    }
+
+    private void prefetchAndWait(TimelineListParameters params) {
+        prefetcher.prefetch(params);
+        for (int attempt = 0; attempt < 100 && prefetcher.isPrefetching(); attempt++) {
+            DbUtils.waitMs(this, 100);
+        }
+        assertFalse("Prefetch ended", prefetcher.isPrefetching());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.QueryPlanChecker;
+import org.andstatus.app.data.TimelineSql;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.MyLog;
+
+import java.util.List;
+
+@Travis
+public class TimelineQueryPlanTest extends InstrumentationTestCase {
+    private static final String AUTHOR_INDEX = "idx_msg_author_sent_date";
+    private static final String SENDER_INDEX = "idx_msg_sender_sent_date";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testTimelineQueries() {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        assertTrue(ma.isValid());
+        int checked = 0;
+        for (TimelineType timelineType : TimelineType.values()) {
+            if (timelineType == TimelineType.UNKNOWN) {
+                continue;
+            }
+            Timeline timeline = Timeline.getTimeline(MyContextHolder.get(), 0, timelineType, ma, ma.getUserId(),
+                    ma.getOrigin(), timelineType == TimelineType.SEARCH ? "andstatus" : "");
+            if (!timeline.isValid()) {
+                continue;
+            }
+            QueryPlanChecker.assertNoFullScans(timeline.toString(), buildQuery(timeline));
+            checked++;
+        }
+        assertTrue("Timelines checked: " + checked, checked > 5);
+    }
+
+    public void testUserTimelineUsesAuthorAndSenderIndexes() {
+        for (TimelineType timelineType : new TimelineType[]{TimelineType.SENT, TimelineType.USER}) {
+            Timeline timeline = getUserTimeline(timelineType);
+            MyProvider.QuerySql query = buildQuery(timeline);
+            QueryPlanChecker.assertUsesIndex(timeline.toString(), query, AUTHOR_INDEX);
+            QueryPlanChecker.assertUsesIndex(timeline.toString(), query, SENDER_INDEX);
+        }
+    }
+
+    /** The indexes are dropped inside a transaction, which is rolled back */
+    public void testUserTimelineWithoutAndWithIndexes() {
+        Timeline timeline = getUserTimeline(TimelineType.USER);
+        MyProvider.QuerySql query = buildQuery(timeline);
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        List<String> planBefore;
+        long elapsedBefore;
+        db.beginTransaction();
+        try {
+            db.execSQL("DROP INDEX " + AUTHOR_INDEX);
+            db.execSQL("DROP INDEX " + SENDER_INDEX);
+            planBefore = QueryPlanChecker.explain(query.sql, query.selectionArgs);
+            elapsedBefore = timeQuery(db, query);
+        } finally {
+            db.endTransaction();
+        }
+        List<String> planAfter = QueryPlanChecker.explain(query.sql, query.selectionArgs);
+        long elapsedAfter = timeQuery(db, query);
+        MyLog.i(this, timeline + "\nWithout indexes, " + elapsedBefore + "ms: " + planBefore
+                + "\nWith indexes, " + elapsedAfter + "ms: " + planAfter);
+        assertFalse("Plan didn't change: " + planAfter, planBefore.equals(planAfter));
+        QueryPlanChecker.assertUsesIndex(timeline.toString(), query, AUTHOR_INDEX);
+    }
+
+    private Timeline getUserTimeline(TimelineType timelineType) {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        long userId = timelineType == TimelineType.SENT ? ma.getUserId()
+                : MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable.AUTHOR_ID,
+                "t." + MsgTable.AUTHOR_ID + "<>" + ma.getUserId());
+        assertTrue(timelineType.toString(), userId != 0);
+        Timeline timeline = Timeline.getTimeline(MyContextHolder.get(), 0, timelineType, ma, userId,
+                ma.getOrigin(), "");
+        assertTrue(timeline.toString(), timeline.isValid());
+        return timeline;
+    }
+
+    private long timeQuery(SQLiteDatabase db, MyProvider.QuerySql query) {
+        long startTime = System.currentTimeMillis();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(query.sql, query.selectionArgs);
+            while (cursor.moveToNext()) {
+                // Read all rows
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private MyProvider.QuerySql buildQuery(Timeline timeline) {
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        params.timeline = timeline;
+        params.whichPage = WhichPage.YOUNGEST;
+        params.mProjection = TimelineSql.getTimelineProjection(timeline.hasSearchQuery());
+        params.prepareQueryParameters();
+        return MyProvider.QuerySql.build(params.getContentUri(), params.mProjection,
+                params.selectionAndArgs.selection, params.selectionAndArgs.selectionArgs, params.sortOrderAndLimit);
+    }
+}
@@ -18,10 +18,17 @@ package org.andstatus.app.msg;
 
 import android.test.InstrumentationTestCase;
 
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.context.Travis;
+import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.widget.DuplicationLink;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -53,7 +60,7 @@ public class TimelineViewItemTest extends InstrumentationTestCase {
         assertDuplicates(item1, DuplicationLink.NONE, item2);
 
         item2.setBody(THIS_USER_FAVORITED_SOMETHING_BY_THAT_USER + item1.getBody());
-        assertTrue("Is not favoriting action: " + item2.getBody(), item2.isFavoritingAction);
+        assertTrue("Is not favoriting action: " + item2.getBody(), item2.isFavoritingAction());
         assertDuplicates(item1, DuplicationLink.IS_DUPLICATED, item2);
         assertDuplicates(item2, DuplicationLink.DUPLICATES, item1);
 
@@ -91,6 +98,56 @@ public class TimelineViewItemTest extends InstrumentationTestCase {
         assertDuplicates(item1, DuplicationLink.IS_DUPLICATED, item2);
     }
 
+    public void testNearDuplicatesAreCollapsed() {
+        final String body = "the new release of andstatus downloads avatars in batches after each sync, " +
+                "prunes old messages in short chunks and keeps the timeline responsive even on large databases " +
+                "with many accounts and followed users";
+        TimelineViewItem item1 = newItem(1, body, 1468509659000L);
+        TimelineViewItem item2 = newItem(2, "Some other text, which is not a duplicate", 1468509660000L);
+        TimelineViewItem item3 = newItem(3, body.replace(" large ", " big "), 1468509661000L);
+        assertDuplicates(item1, DuplicationLink.NONE, item3);
+        assertEquals(DuplicationLink.IS_DUPLICATED, item1.nearlyDuplicates(item3));
+        assertEquals(DuplicationLink.DUPLICATES, item3.nearlyDuplicates(item1));
+        assertEquals(DuplicationLink.NONE, item1.nearlyDuplicates(item2));
+
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        params.whichPage = WhichPage.CURRENT;
+        List<TimelineViewItem> items = new ArrayList<>();
+        items.add(item1);
+        items.add(item2);
+        items.add(item3);
+        TimelineData data = new TimelineData(null, new TimelinePage(params, items));
+        data.collapseDuplicates(true, 0);
+        assertEquals(data.toString(), 2, data.size());
+        assertEquals(item1, data.getItem(0));
+        assertEquals(item2, data.getItem(1));
+        assertTrue(item1.getChildren().contains(item3));
+
+        item3.createdDate = item1.createdDate + TimeUnit.HOURS.toMillis(25);
+        assertEquals("Not within 24 hours", DuplicationLink.NONE, item1.nearlyDuplicates(item3));
+    }
+
+    private TimelineViewItem newItem(long msgId, String body, long createdDate) {
+        TimelineViewItem item = new TimelineViewItem();
+        item.setMsgId(msgId);
+        item.setBody(body);
+        item.createdDate = createdDate;
+        return item;
+    }
+
+    public void testBodyPreparedLazily() {
+        TimelineViewItem item1 = new TimelineViewItem();
+        String body = "<p>" + THIS_USER_FAVORITED_SOMETHING_BY_THAT_USER + "Text\n\n</p>";
+        item1.setBodyToPrepare(body);
+        assertTrue("Is not favoriting action: " + body, item1.isFavoritingAction());
+        assertEquals(MyHtml.prepareForView(body), item1.getBody());
+        assertEquals(MyHtml.getBodyToSearch(item1.getBody()), item1.getBodyToSearch());
+
+        item1.setBody("Some other text");
+        assertFalse(item1.isFavoritingAction());
+        assertEquals("Some other text", item1.getBody());
+    }
+
     protected void assertDuplicates(TimelineViewItem item1, DuplicationLink duplicates, TimelineViewItem item2) {
         assertEquals(item1.toString() + " vs " + item2, duplicates, item1.duplicates(item2));
     }
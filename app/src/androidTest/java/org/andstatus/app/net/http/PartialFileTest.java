@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.test.InstrumentationTestCase;
+import android.util.Base64;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+@Travis
+public class PartialFileTest extends InstrumentationTestCase {
+    private static final String URL = "https://example.com/files/large.jpg";
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        file = new File(MyContextHolder.get().context().getCacheDir(), "temp_partial_file_test");
+        PartialFile.delete(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        PartialFile.delete(file);
+        super.tearDown();
+    }
+
+    public void testResume() throws IOException {
+        PartialFile partialFile = new PartialFile(file, URL);
+        assertFalse(partialFile.toString(), partialFile.isResumable());
+        partialFile.onFullContent("\"etag1\"", 10, "");
+        partialFile.readStream(new ByteArrayInputStream("0123".getBytes()));
+        assertIncomplete(partialFile);
+
+        assertFalse("Other URL", new PartialFile(file, URL + "?size=2").isResumable());
+        partialFile = new PartialFile(file, URL);
+        assertTrue(partialFile.toString(), partialFile.isResumable());
+        assertEquals(4, partialFile.getResumeFrom());
+        partialFile.onPartialContent("bytes 4-9/10", "");
+        partialFile.readStream(new ByteArrayInputStream("456789".getBytes()));
+        partialFile.onCompleted();
+        assertEquals(10, file.length());
+        assertFalse(new File(file.getPath() + PartialFile.VALIDATOR_FILE_SUFFIX).exists());
+        assertFalse("Complete file is not resumed", new PartialFile(file, URL).isResumable());
+    }
+
+    public void testChangedOnServer() throws IOException {
+        PartialFile partialFile = new PartialFile(file, URL);
+        partialFile.onFullContent("Wed, 05 Mar 2014 16:37:17 GMT", 10, "");
+        partialFile.readStream(new ByteArrayInputStream("0123".getBytes()));
+        assertIncomplete(partialFile);
+
+        partialFile = new PartialFile(file, URL);
+        assertTrue(partialFile.toString(), partialFile.isResumable());
+        partialFile.onFullContent("Thu, 06 Mar 2014 16:37:17 GMT", 5, "");
+        partialFile.readStream(new ByteArrayInputStream("abcde".getBytes()));
+        partialFile.onCompleted();
+        assertEquals(5, file.length());
+
+        partialFile = new PartialFile(file, URL);
+        partialFile.onFullContent("\"etag2\"", 10, "");
+        partialFile.readStream(new ByteArrayInputStream("0123".getBytes()));
+        assertIncomplete(partialFile);
+        partialFile = new PartialFile(file, URL);
+        try {
+            partialFile.onPartialContent("bytes 2-9/10", "");
+            fail("Wrong range should not be appended");
+        } catch (IOException e) {
+            assertFalse(file.exists());
+        }
+    }
+
+    public void testParseChecksum() {
+        assertEquals("", PartialFile.parseChecksum(null, null));
+        assertEquals("", PartialFile.parseChecksum("UNIXsum=30637", ""));
+        assertEquals("MD5=HUXZLQLMuI/KZ5KDcJPcOA==", PartialFile.parseChecksum(null, "HUXZLQLMuI/KZ5KDcJPcOA=="));
+        assertEquals("SHA-1=thvDyvhfIqlvFe+A9MYgxAfm1q8=",
+                PartialFile.parseChecksum("UNIXsum=30637, SHA=thvDyvhfIqlvFe+A9MYgxAfm1q8=", "HUXZLQLMuI/KZ5KDcJPcOA=="));
+    }
+
+    public void testChecksumOfResumedFile() throws IOException, NoSuchAlgorithmException {
+        String checksum = "MD5=" + md5("0123456789");
+        PartialFile partialFile = new PartialFile(file, URL);
+        partialFile.onFullContent("\"etag3\"", 10, checksum);
+        partialFile.readStream(new ByteArrayInputStream("0123".getBytes()));
+        assertIncomplete(partialFile);
+
+        partialFile = new PartialFile(file, URL);
+        assertTrue(partialFile.toString(), partialFile.isResumable());
+        partialFile.onPartialContent("bytes 4-9/10", "");
+        partialFile.readStream(new ByteArrayInputStream("456789".getBytes()));
+        assertTrue("Stored checksum matches", partialFile.onCompleted());
+        assertEquals(10, file.length());
+
+        PartialFile.delete(file);
+        partialFile = new PartialFile(file, URL);
+        partialFile.onFullContent("\"etag3\"", 10, checksum);
+        partialFile.readStream(new ByteArrayInputStream("0123".getBytes()));
+        assertIncomplete(partialFile);
+        partialFile = new PartialFile(file, URL);
+        partialFile.onPartialContent("bytes 4-9/10", "");
+        partialFile.readStream(new ByteArrayInputStream("45678X".getBytes()));
+        assertFalse("Corrupted resumed file", partialFile.onCompleted());
+        assertFalse(file.exists());
+        assertFalse("Download from the start", new PartialFile(file, URL).isResumable());
+    }
+
+    public void testChecksumOfFullFile() throws IOException, NoSuchAlgorithmException {
+        PartialFile partialFile = new PartialFile(file, URL);
+        partialFile.onFullContent("", 5, "MD5=" + md5("abcde"));
+        partialFile.readStream(new ByteArrayInputStream("abcde".getBytes()));
+        assertTrue(partialFile.onCompleted());
+
+        partialFile = new PartialFile(file, URL);
+        partialFile.onFullContent("", 5, "MD5=" + md5("abcde"));
+        partialFile.readStream(new ByteArrayInputStream("abcdX".getBytes()));
+        try {
+            partialFile.onCompleted();
+            fail("Corrupted file");
+        } catch (IOException e) {
+            assertFalse(file.exists());
+        }
+    }
+
+    private static String md5(String content) throws NoSuchAlgorithmException {
+        return Base64.encodeToString(MessageDigest.getInstance("MD5").digest(content.getBytes()), Base64.NO_WRAP);
+    }
+
+    private void assertIncomplete(PartialFile partialFile) {
+        try {
+            partialFile.onCompleted();
+            fail("File is incomplete");
+        } catch (IOException e) {
+            assertEquals(4, file.length());
+        }
+    }
+}
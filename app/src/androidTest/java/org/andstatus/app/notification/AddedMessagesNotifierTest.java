@@ -1,16 +1,26 @@
 package org.andstatus.app.notification;
 
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
 import android.test.InstrumentationTestCase;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MessageCounters;
+import org.andstatus.app.database.CounterTable;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.service.CommandResult;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Travis
 public class AddedMessagesNotifierTest extends InstrumentationTestCase {
     
@@ -44,4 +54,49 @@ public class AddedMessagesNotifierTest extends InstrumentationTestCase {
         assertNotNull(TestSuite.getMyContextForTest().getNotifications().get(TimelineType.MENTIONS));
         assertNotNull(TestSuite.getMyContextForTest().getNotifications().get(TimelineType.DIRECT));
     }
+
+    public void testClearedAtZeroCountsAllSyncs() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        List<ContentValues> counters = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT * FROM " + CounterTable.TABLE_NAME, null);
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(cursor, values);
+                counters.add(values);
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        try {
+            db.delete(CounterTable.TABLE_NAME, null, null);
+            assertEquals(0, MessageCounters.getCounts(0).newCount);
+            AddedMessagesNotifier.newInstance(MyContextHolder.get()).clearCounters();
+
+            addMessages(2);
+            assertEquals("The first sync", 2, AddedMessagesNotifier.getNumberToShow(TimelineType.HOME,
+                    MessageCounters.getCounts(0).newCount, 2));
+            addMessages(3);
+            assertEquals("Both syncs since clearing", 5, AddedMessagesNotifier.getNumberToShow(TimelineType.HOME,
+                    MessageCounters.getCounts(0).newCount, 3));
+
+            AddedMessagesNotifier.newInstance(MyContextHolder.get()).clearCounters();
+            addMessages(1);
+            assertEquals("After clearing", 1, AddedMessagesNotifier.getNumberToShow(TimelineType.HOME,
+                    MessageCounters.getCounts(0).newCount, 1));
+        } finally {
+            db.delete(CounterTable.TABLE_NAME, null, null);
+            for (ContentValues values : counters) {
+                db.insert(CounterTable.TABLE_NAME, null, values);
+            }
+            AddedMessagesNotifier.newInstance(MyContextHolder.get()).clearCounters();
+        }
+    }
+
+    private void addMessages(int count) {
+        for (int ind = 0; ind < count; ind++) {
+            MessageCounters.onMessageAdded(-1, -1, false, false);
+        }
+    }
 }
@@ -128,6 +128,35 @@ public class AvatarDownloaderTest extends InstrumentationTestCase {
         assertTrue(data.getFile().exists());
     }
     
+    public void testSharedFile() throws IOException {
+        ma = MyContextHolder.get().persistentAccounts().fromAccountName(TestSuite.CONVERSATION_ACCOUNT_NAME);
+        MyAccount ma2 = MyContextHolder.get().persistentAccounts().fromAccountName(TestSuite.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        assertTrue(TestSuite.GNUSOCIAL_TEST_ACCOUNT_NAME + " exists", ma2.isValid());
+
+        changeMaAvatarUrl(TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL);
+        loadAndAssertStatusForMa(DownloadStatus.LOADED, false);
+        DownloadData data = AvatarData.getForUser(ma.getUserId());
+
+        changeAvatarUrl(ma2, TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL);
+        FileDownloader loader = new AvatarDownloader(ma2.getUserId());
+        // The same Uri is not downloaded again
+        loader.connectionMock = new ConnectionTwitterGnuSocialMock(new ConnectionException("Mocked IO exception"));
+        loader.load(CommandData.newCommand(CommandEnum.FETCH_AVATAR));
+        DownloadData data2 = AvatarData.getForUser(ma2.getUserId());
+        assertEquals("Loaded " + data2, DownloadStatus.LOADED, data2.getStatus());
+        assertEquals("The same file " + data2, data.getFilename(), data2.getFilename());
+
+        AvatarData.deleteAllOfThisUser(ma.getUserId());
+        assertTrue("The file is still used " + data2, data2.getFile().exists());
+        loadAndAssertStatusForMa(DownloadStatus.LOADED, false);
+        assertEquals("Stored once " + data2, data2.getFilename(),
+                AvatarData.getForUser(ma.getUserId()).getFilename());
+
+        changeAvatarUrl(ma2, TestSuite.GNUSOCIAL_TEST_ACCOUNT_AVATAR_URL);
+        AvatarData.deleteAllOfThisUser(ma2.getUserId());
+        assertTrue("The file is still used " + data, data.getFile().exists());
+    }
+
     private int changeMaAvatarUrl(String urlString) {
         return changeAvatarUrl(ma, urlString);
     }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.andstatus.app.service;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.MsgTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Travis
+public class AvatarRefreshPlannerTest extends InstrumentationTestCase {
+    /** Users, which are not authors of messages */
+    private static final long USER1 = 1000001;
+    private static final long USER2 = 1000002;
+    private static final long USER3 = 1000003;
+
+    private static class LoaderMock extends AvatarRefreshPlanner.Loader {
+        final Map<Long, String> urls = new HashMap<>();
+        final List<Long> loaded = new ArrayList<>();
+        volatile int batchesRequested = 0;
+        volatile long loadingMillis = 0;
+        volatile DownloadStatus status = DownloadStatus.LOADED;
+
+        @Override
+        String getUrlToLoad(long userId) {
+            String url = urls.get(userId);
+            return url == null ? "http://example.com/avatar" + userId + ".png" : url;
+        }
+
+        @Override
+        DownloadStatus load(long userId, CommandData commandData) {
+            loaded.add(userId);
+            if (loadingMillis > 0) {
+                DbUtils.waitMs(this, loadingMillis);
+            }
+            if (status == DownloadStatus.SOFT_ERROR) {
+                commandData.getResult().setMessage("Failed to load avatar of " + userId);
+                commandData.getResult().incrementNumIoExceptions();
+            }
+            return status;
+        }
+
+        @Override
+        void requestBatch() {
+            batchesRequested++;
+        }
+    }
+
+    private LoaderMock loader;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+        AvatarRefreshPlanner.forget();
+        loader = new LoaderMock();
+        AvatarRefreshPlanner.loader = loader;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        AvatarRefreshPlanner.loader = new AvatarRefreshPlanner.Loader();
+        AvatarRefreshPlanner.forget();
+        super.tearDown();
+    }
+
+    public void testVisibleUsersThenAuthorsThenOthers() {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        long authorId = MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable.AUTHOR_ID,
+                "t." + MsgTable.AUTHOR_ID + "<>" + ma.getUserId());
+        assertTrue("Author found", authorId != 0);
+        AvatarRefreshPlanner.onUserChanged(USER1, loader.getUrlToLoad(USER1));
+        AvatarRefreshPlanner.onUserChanged(authorId, loader.getUrlToLoad(authorId));
+        AvatarRefreshPlanner.onVisible(USER2);
+        assertEquals("One batch requested", 1, loader.batchesRequested);
+
+        CommandData commandData = newBatchCommand();
+        AvatarRefreshPlanner.downloadBatch(commandData);
+        assertEquals(listOf(USER2, authorId, USER1), loader.loaded);
+        assertEquals(3, commandData.getResult().getDownloadedCount());
+        assertFalse(commandData.getResult().hasError());
+    }
+
+    public void testBatchSizeLimit() {
+        AvatarRefreshPlanner.onUserChanged(USER1, loader.getUrlToLoad(USER1));
+        AvatarRefreshPlanner.onUserChanged(USER2, loader.getUrlToLoad(USER2));
+        AvatarRefreshPlanner.onUserChanged(USER3, loader.getUrlToLoad(USER3));
+
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand(), 2, AvatarRefreshPlanner.BATCH_TIME_BUDGET_MILLIS);
+        assertEquals(listOf(USER1, USER2), loader.loaded);
+        assertEquals("The next batch requested", 2, loader.batchesRequested);
+
+        loader.loaded.clear();
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand(), 2, AvatarRefreshPlanner.BATCH_TIME_BUDGET_MILLIS);
+        assertEquals("Postponed", listOf(USER3), loader.loaded);
+    }
+
+    public void testBatchTimeLimit() {
+        AvatarRefreshPlanner.onUserChanged(USER1, loader.getUrlToLoad(USER1));
+        AvatarRefreshPlanner.onUserChanged(USER2, loader.getUrlToLoad(USER2));
+        AvatarRefreshPlanner.onUserChanged(USER3, loader.getUrlToLoad(USER3));
+
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand(), AvatarRefreshPlanner.BATCH_SIZE_MAX, -1);
+        assertTrue("Nothing loaded, when time is out at once", loader.loaded.isEmpty());
+
+        loader.loadingMillis = 300;
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand(), AvatarRefreshPlanner.BATCH_SIZE_MAX, 100);
+        assertEquals("Time is out after the first download", listOf(USER1), loader.loaded);
+
+        loader.loadingMillis = 0;
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand());
+        assertEquals("Postponed downloads keep their order", listOf(USER1, USER2, USER3), loader.loaded);
+    }
+
+    public void testSameUrlIsNotRetriedSoon() {
+        String url = loader.getUrlToLoad(USER1);
+        AvatarRefreshPlanner.onUserChanged(USER1, url);
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand());
+        assertEquals(listOf(USER1), loader.loaded);
+
+        AvatarRefreshPlanner.onUserChanged(USER1, url);
+        AvatarRefreshPlanner.onVisible(USER1);
+        CommandData commandData = newBatchCommand();
+        AvatarRefreshPlanner.downloadBatch(commandData);
+        assertEquals("Not retried within " + AvatarRefreshPlanner.RETRY_PERIOD_MILLIS + "ms",
+                listOf(USER1), loader.loaded);
+        assertEquals(0, commandData.getResult().getDownloadedCount());
+
+        String url2 = "http://example.com/avatar-new.png";
+        loader.urls.put(USER1, url2);
+        AvatarRefreshPlanner.onUserChanged(USER1, url2);
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand());
+        assertEquals("New URL loaded", listOf(USER1, USER1), loader.loaded);
+
+        String url3 = "http://example.com/avatar-newer.png";
+        loader.urls.put(USER1, url3);
+        AvatarRefreshPlanner.onUserChanged(USER1, url3);
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand());
+        AvatarRefreshPlanner.onVisible(USER1);
+        AvatarRefreshPlanner.downloadBatch(newBatchCommand());
+        assertEquals("Visible, but the same URL", listOf(USER1, USER1, USER1), loader.loaded);
+    }
+
+    public void testErrorsAreInTheBatchResult() {
+        loader.status = DownloadStatus.SOFT_ERROR;
+        AvatarRefreshPlanner.onUserChanged(USER1, loader.getUrlToLoad(USER1));
+        CommandData commandData = newBatchCommand();
+        AvatarRefreshPlanner.downloadBatch(commandData);
+        assertEquals(listOf(USER1), loader.loaded);
+        assertTrue(commandData.getResult().hasSoftError());
+        assertEquals(1, commandData.getResult().getNumIoExceptions());
+        assertTrue(commandData.getResult().getMessage(),
+                commandData.getResult().getMessage().contains("Failed to load avatar of " + USER1));
+    }
+
+    private CommandData newBatchCommand() {
+        return CommandData.newCommand(CommandEnum.FETCH_AVATAR);
+    }
+
+    private static List<Long> listOf(long... userIds) {
+        List<Long> list = new ArrayList<>();
+        for (long userId : userIds) {
+            list.add(userId);
+        }
+        return list;
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.andstatus.app.timeline;
 
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.provider.BaseColumns;
 import android.test.InstrumentationTestCase;
 
 import org.andstatus.app.account.MyAccount;
@@ -23,6 +26,8 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.TimelineTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.TriState;
@@ -89,6 +94,45 @@ public class PersistentTimelinesTest extends InstrumentationTestCase {
         }
     }
 
+    public void testOnlyChangedColumnsAreSaved() {
+        Timeline timeline = MyContextHolder.get().persistentTimelines().getHome();
+        assertTrue(timeline.toString(), timeline.getId() != 0);
+        MyContextHolder.get().persistentTimelines().saveChanged();
+        assertFalse(timeline.toString(), timeline.isChanged());
+
+        String where = "t." + BaseColumns._ID + "=" + timeline.getId();
+        String errorMessageStored = DatabaseUtils.stringForQuery(MyContextHolder.get().getDatabase(),
+                "SELECT " + TimelineTable.ERROR_MESSAGE + " FROM " + TimelineTable.TABLE_NAME
+                        + " WHERE " + BaseColumns._ID + "=" + timeline.getId(), null);
+        int visibleYStored = timeline.getVisibleY();
+        try {
+            String errorMessage = "Changed in the database " + System.currentTimeMillis();
+            setErrorMessage(timeline, errorMessage);
+            int visibleY = visibleYStored + 1;
+            timeline.setVisibleY(visibleY);
+            assertTrue(timeline.toString(), timeline.isChanged());
+            MyContextHolder.get().persistentTimelines().saveChanged();
+            assertFalse(timeline.toString(), timeline.isChanged());
+
+            assertEquals(visibleY, MyQuery.conditionToLongColumnValue(TimelineTable.TABLE_NAME,
+                    TimelineTable.VISIBLE_Y, where));
+            assertEquals("Not changed column shouldn't be overwritten", timeline.getId(),
+                    MyQuery.conditionToLongColumnValue(TimelineTable.TABLE_NAME, BaseColumns._ID,
+                            where + " AND t." + TimelineTable.ERROR_MESSAGE + "='" + errorMessage + "'"));
+        } finally {
+            setErrorMessage(timeline, errorMessageStored);
+            timeline.setVisibleY(visibleYStored);
+            MyContextHolder.get().persistentTimelines().saveChanged();
+        }
+    }
+
+    private static void setErrorMessage(Timeline timeline, String errorMessage) {
+        ContentValues values = new ContentValues();
+        values.put(TimelineTable.ERROR_MESSAGE, errorMessage);
+        MyContextHolder.get().getDatabase().update(TimelineTable.TABLE_NAME, values,
+                BaseColumns._ID + "=" + timeline.getId(), null);
+    }
+
     public void testDefaultTimelinesForAccounts() {
         checkDefaultTimelinesForAccounts();
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.data.QueryPlanChecker;
+import org.andstatus.app.data.UserListSql;
+
+@Travis
+public class UserListQueryPlanTest extends InstrumentationTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testUserListQueries() {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        assertTrue(ma.isValid());
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, ma.getOriginId(), TestSuite.CONVERSATION_ENTRY_MESSAGE_OID);
+        assertTrue("Message found", msgId != 0);
+        UsersOfMessageListLoader usersOfMessage = new UsersOfMessageListLoader(UserListType.USERS_OF_MESSAGE,
+                ma, msgId);
+        usersOfMessage.addUserIdToList(ma.getOrigin(), ma.getUserId());
+        assertNoFullScans(usersOfMessage);
+
+        assertNoFullScans(new FollowersListLoader(UserListType.FOLLOWERS, ma, ma.getUserId()));
+        assertNoFullScans(new FollowersListLoader(UserListType.FRIENDS, ma, ma.getUserId()));
+    }
+
+    private static void assertNoFullScans(UserListLoader loader) {
+        QueryPlanChecker.assertNoFullScans(loader.toString(), MyProvider.QuerySql.build(loader.getContentUri(),
+                UserListSql.getListProjection(), loader.getSelection(), null, null));
+    }
+}
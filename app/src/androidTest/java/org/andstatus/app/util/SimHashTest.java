@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class SimHashTest extends InstrumentationTestCase {
+    private static final String TEXT1 = "what is good about android is that i can use quitter.se via andstatus.";
+    private static final String TEXT2 = "interactions timeline in twidere is the same or close to existing mentions timeline in andstatus";
+
+    public void testFingerprint() {
+        assertEquals(SimHash.EMPTY, SimHash.fingerprint(""));
+        assertEquals(SimHash.EMPTY, SimHash.fingerprint(null));
+        assertEquals("Whitespace only", SimHash.EMPTY, SimHash.fingerprint(" \n\t "));
+        long fingerprint1 = SimHash.fingerprint(TEXT1);
+        assertTrue(fingerprint1 != SimHash.EMPTY);
+        assertEquals(fingerprint1, SimHash.fingerprint(" " + TEXT1.replace(" ", "  ") + " "));
+        assertEquals(0, SimHash.distance(fingerprint1, SimHash.fingerprint(TEXT1)));
+        assertTrue(SimHash.distance(fingerprint1, SimHash.fingerprint(TEXT2)) > 3);
+    }
+}
@@ -8,6 +8,8 @@ import android.widget.RemoteViews;
 
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.CommandResult;
 import org.andstatus.app.util.MyLog;
 
@@ -25,9 +27,22 @@ public class AppWidgets {
         appWidgets.updateViews();
     }
 
-    public static void updateWidgets(MyContext myContext) {
-        AppWidgets appWidgets = AppWidgets.newInstance(myContext);
-        appWidgets.updateViews();
+    /** Widget data is loaded from the database, so on UI thread this is done asynchronously */
+    public static void updateWidgets(final MyContext myContext) {
+        if (MyAsyncTask.isUiThread()) {
+            AsyncTaskLauncher.execute(myContext, false,
+                    new MyAsyncTask<Void, Void, Void>(AppWidgets.class.getSimpleName(), MyAsyncTask.PoolEnum.QUICK_UI) {
+                        @Override
+                        protected Void doInBackground2(Void... params) {
+                            AppWidgets.newInstance(myContext).updateViews();
+                            return null;
+                        }
+                    }
+            );
+        } else {
+            AppWidgets appWidgets = AppWidgets.newInstance(myContext);
+            appWidgets.updateViews();
+        }
     }
 
     public static AppWidgets newInstance(MyContext myContext) {
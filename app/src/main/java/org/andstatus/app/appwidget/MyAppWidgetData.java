@@ -23,6 +23,8 @@ import android.text.TextUtils;
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.MessageCounters;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.CommandResult;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
@@ -46,11 +48,12 @@ public class MyAppWidgetData {
     public static final String PREFS_FILE_NAME = TAG;
 
     /**
-     * Key to store number of new messages/tweets received
+     * Keys to store numbers of new messages in {@link MessageCounters} at the moment,
+     * when counters of this widget were cleared
      */
-    private static final String PREF_NUM_HOME_TIMELINE_KEY = "num_messages";
-    private static final String PREF_NUM_MENTIONS_KEY = "num_mentions";
-    private static final String PREF_NUM_DIRECTMESSAGES_KEY = "num_directmessages";
+    private static final String PREF_BASE_HOME_TIMELINE_KEY = "base_messages";
+    private static final String PREF_BASE_MENTIONS_KEY = "base_mentions";
+    private static final String PREF_BASE_DIRECTMESSAGES_KEY = "base_directmessages";
     /**
      * Words shown in a case there is nothing new
      */
@@ -78,6 +81,9 @@ public class MyAppWidgetData {
     int numMentions = 0;
     int numDirectMessages = 0;
 
+    /** null if the counters were cleared on UI thread: they will be cleared at the next load not on UI thread */
+    private MessageCounters.Counts base = MessageCounters.Counts.EMPTY;
+
     /**  Value of {@link #dateLastChecked} before counters were cleared */
     long dateSince = 0;
     /**
@@ -116,13 +122,14 @@ public class MyAppWidgetData {
                 }
             }
             dateLastChecked = prefs.getLong(PREF_DATECHECKED_KEY, 0);
-            if (dateLastChecked == 0) {
+            if (dateLastChecked == 0 || !prefs.contains(PREF_BASE_HOME_TIMELINE_KEY)) {
                 clearCounters();
             } else {
-                numHomeTimeline = prefs.getInt(PREF_NUM_HOME_TIMELINE_KEY, 0);
-                numMentions = prefs.getInt(PREF_NUM_MENTIONS_KEY, 0);
-                numDirectMessages = prefs.getInt(PREF_NUM_DIRECTMESSAGES_KEY, 0);
+                base = new MessageCounters.Counts(prefs.getLong(PREF_BASE_HOME_TIMELINE_KEY, 0),
+                        prefs.getLong(PREF_BASE_MENTIONS_KEY, 0),
+                        prefs.getLong(PREF_BASE_DIRECTMESSAGES_KEY, 0));
                 dateSince = prefs.getLong(PREF_DATESINCE_KEY, 0);
+                loadCounters();
             }
 
             if (MyLog.isVerboseEnabled()) {
@@ -130,10 +137,15 @@ public class MyAppWidgetData {
                         + " were loaded");
             }
             isLoaded = true;
+            if (base != null && !prefs.contains(PREF_BASE_HOME_TIMELINE_KEY)) {
+                // Counters, cleared on UI thread, got their base
+                save();
+            }
         }
     }
 
     public void clearCounters() {
+        base = MyAsyncTask.isUiThread() ? null : MessageCounters.getCounts(0);
         numMentions = 0;
         numDirectMessages = 0;
         numHomeTimeline = 0;
@@ -141,6 +153,27 @@ public class MyAppWidgetData {
         changed = true;
     }
 
+    /** New messages since the counters were cleared. The database is not queried on UI thread */
+    private void loadCounters() {
+        if (MyAsyncTask.isUiThread()) {
+            return;
+        }
+        if (base == null) {
+            clearCounters();
+            return;
+        }
+        MessageCounters.Counts counts = MessageCounters.getCounts(0);
+        if (counts.newCount < base.newCount || counts.mentionsCount < base.mentionsCount
+                || counts.directCount < base.directCount) {
+            // E.g. the database was restored
+            clearCounters();
+            return;
+        }
+        numHomeTimeline = (int) (counts.newCount - base.newCount);
+        numMentions = (int) (counts.mentionsCount - base.mentionsCount);
+        numDirectMessages = (int) (counts.directCount - base.directCount);
+    }
+
     public boolean areThereAnyNewMessagesInAnyTimeline() {
         return (numMentions >0) || (numDirectMessages > 0) || (numHomeTimeline > 0);
     }
@@ -164,9 +197,15 @@ public class MyAppWidgetData {
                 MyLog.e(this, "Prefs Editor was not loaded");
             } else {
                 prefs.putString(PREF_NOTHING_KEY, nothingPref);
-                prefs.putInt(PREF_NUM_HOME_TIMELINE_KEY, numHomeTimeline);
-                prefs.putInt(PREF_NUM_MENTIONS_KEY, numMentions);
-                prefs.putInt(PREF_NUM_DIRECTMESSAGES_KEY, numDirectMessages);
+                if (base == null) {
+                    prefs.remove(PREF_BASE_HOME_TIMELINE_KEY);
+                    prefs.remove(PREF_BASE_MENTIONS_KEY);
+                    prefs.remove(PREF_BASE_DIRECTMESSAGES_KEY);
+                } else {
+                    prefs.putLong(PREF_BASE_HOME_TIMELINE_KEY, base.newCount);
+                    prefs.putLong(PREF_BASE_MENTIONS_KEY, base.mentionsCount);
+                    prefs.putLong(PREF_BASE_DIRECTMESSAGES_KEY, base.directCount);
+                }
                 
                 prefs.putLong(PREF_DATECHECKED_KEY, dateLastChecked);
                 prefs.putLong(PREF_DATESINCE_KEY, dateSince);
@@ -181,11 +220,11 @@ public class MyAppWidgetData {
     }
 
     /**
-     * Delete the preferences file!
+     * Delete the preferences file! The data is not loaded for this
      * */
-    public boolean delete() {
-        MyLog.v(this, "Deleting data for widgetId=" + mAppWidgetId );
-        return SharedPreferencesUtil.delete(mContext, prefsFileName); 
+    public static boolean delete(Context context, int appWidgetId) {
+        MyLog.v(TAG, "Deleting data for widgetId=" + appWidgetId);
+        return SharedPreferencesUtil.delete(context, PREFS_FILE_NAME + appWidgetId);
     }
 
     @Override
@@ -204,9 +243,7 @@ public class MyAppWidgetData {
         if (result.hasError() && result.getDownloadedCount() == 0) {
             return;
         }
-        numHomeTimeline += result.getMessagesAdded();
-        numMentions += result.getMentionsAdded();
-        numDirectMessages += result.getDirectedAdded();
+        loadCounters();
         onDataCheckedOnTheServer();
         save();
     }
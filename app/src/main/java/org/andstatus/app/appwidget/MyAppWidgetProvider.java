@@ -22,6 +22,8 @@ import android.content.Context;
 import android.content.Intent;
 
 import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.MyLog;
 
 import java.util.Arrays;
@@ -41,13 +43,30 @@ public class MyAppWidgetProvider extends AppWidgetProvider {
         super.onReceive(context, intent);
     }
 
+    /** Widget data is loaded from the database, so views are updated in background */
     @Override
-    public void onUpdate(Context context, AppWidgetManager appWidgetManager,
-            int[] appWidgetIds) {
+    public void onUpdate(Context context, final AppWidgetManager appWidgetManager,
+            final int[] appWidgetIds) {
         MyLog.v(this, "onUpdate; ids=" + Arrays.toString(appWidgetIds));
-        AppWidgets appWidgets = AppWidgets.newInstance(MyContextHolder.get());
-        for (int id : appWidgetIds) {
-            appWidgets.updateView(appWidgetManager, id);
+        final PendingResult pendingResult = goAsync();
+        boolean launched = AsyncTaskLauncher.execute(this, false,
+                new MyAsyncTask<Void, Void, Void>(this, MyAsyncTask.PoolEnum.QUICK_UI) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        try {
+                            AppWidgets appWidgets = AppWidgets.newInstance(MyContextHolder.get());
+                            for (int id : appWidgetIds) {
+                                appWidgets.updateView(appWidgetManager, id);
+                            }
+                        } finally {
+                            pendingResult.finish();
+                        }
+                        return null;
+                    }
+                }
+        );
+        if (!launched) {
+            pendingResult.finish();
         }
     }
     
@@ -56,7 +75,7 @@ public class MyAppWidgetProvider extends AppWidgetProvider {
         MyLog.v(this, "onDeleted; ids=" + Arrays.toString(appWidgetIds));
         // When the user deletes the widget, delete all data, associated with it.
         for (int id : appWidgetIds) {
-            MyAppWidgetData.newInstance(context, id).delete();
+            MyAppWidgetData.delete(context, id);
         }
     }
 
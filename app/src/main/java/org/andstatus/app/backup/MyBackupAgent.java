@@ -138,6 +138,10 @@ public class MyBackupAgent extends BackupAgent {
     }
 
     private void doBackup(MyBackupDataOutput data) throws IOException {
+        DatabaseHolder db = MyContextHolder.get().getMyDatabase();
+        if (db != null) {
+            db.checkpoint(true);
+        }
         sharedPreferencesBackedUp = backupFile(data,
                 SHARED_PREFERENCES_KEY,
                 SharedPreferencesUtil.defaultSharedPreferencesPath(MyContextHolder.get().context()));
@@ -262,6 +266,7 @@ public class MyBackupAgent extends BackupAgent {
     private void doRestore(MyBackupDataInput data) throws IOException {
         restoreSharedPreferences(data);
         assertNextHeader(data, DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME);
+        DatabaseHolder.deleteWriteAheadLog(MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
         databasesRestored += restoreFile(data,
                     MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
         if (optionalNextHeader(data, DATABASE_KEY + "_" + TimelineSearchSuggestionsProvider.DATABASE_NAME)) {
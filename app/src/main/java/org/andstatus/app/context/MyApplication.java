@@ -30,6 +30,7 @@ import org.acra.ACRA;
 import org.acra.ReportingInteractionMode;
 import org.acra.annotation.ReportsCrashes;
 import org.andstatus.app.R;
+import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TamperingDetector;
 
@@ -66,6 +67,14 @@ public class MyApplication extends Application {
                 MyLocale.onConfigurationChanged(this, newConfig));
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (!isAcraProcess) {
+            MyImageCache.onTrimMemory(level);
+        }
+    }
+
     @Override
     public File getDatabasePath(String name) {
         return isAcraProcess ? super.getDatabasePath(name) : MyStorage.getDatabasePath(name);
@@ -26,11 +26,15 @@ import android.support.annotation.NonNull;
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 
+import org.andstatus.app.data.DownloadFileIndex;
+import org.andstatus.app.data.SlowQueryLog;
+import org.andstatus.app.data.StatementCache;
 import org.andstatus.app.database.DatabaseConverterController;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.net.http.TlsSniSocketFactory;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.ExceptionsCounter;
+import org.andstatus.app.service.AvatarRefreshPlanner;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
@@ -279,6 +283,10 @@ public final class MyContextHolder {
         TlsSniSocketFactory.forget();
         AsyncTaskLauncher.forget();
         ExceptionsCounter.forget();
+        DownloadFileIndex.forget();
+        StatementCache.forget();
+        SlowQueryLog.forget();
+        AvatarRefreshPlanner.forget();
         MyLog.forget();
         SharedPreferencesUtil.forget();
         MyLog.i(TAG, "releaseGlobal completed");
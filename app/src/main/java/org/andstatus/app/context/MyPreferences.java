@@ -104,6 +104,9 @@ public class MyPreferences {
     public static final String KEY_USE_EXTERNAL_STORAGE_NEW = "use_external_storage_new";
     public static final String KEY_HISTORY_SIZE = "history_size";
     public static final String KEY_HISTORY_TIME = "history_time";
+    /** Maximum size of downloaded avatars and attachments in MB */
+    public static final String KEY_DOWNLOADS_SIZE_MB = "downloads_size_mb";
+    public static final long DOWNLOADS_SIZE_MB_DEFAULT = 1000;
     public static final String KEY_ENABLE_ANDROID_BACKUP = "enable_android_backup";
 
     // ----------------------------------------------------------
@@ -118,6 +121,7 @@ public class MyPreferences {
     public static final String KEY_DEBUGGING_INFO_IN_UI = "debugging_info_in_ui";
     public static final String KEY_SENDING_MESSAGES_LOG_ENABLED = "sending_messages_log_enabled";
     public static final String KEY_LOG_NETWORK_LEVEL_MESSAGES = "log_network_level_messages";
+    public static final String KEY_LOG_SLOW_QUERIES = "log_slow_queries";
     public static final String KEY_LOG_EVERYTHING_TO_FILE = "log_everything_to_file";
 
     // ----------------------------------------------------------
@@ -125,6 +129,10 @@ public class MyPreferences {
     /** System time when shared preferences were changed */
     public static final String KEY_PREFERENCES_CHANGE_TIME = "preferences_change_time";
     public static final String KEY_DATA_PRUNED_DATE = "data_pruned_date";
+    /** {@link org.andstatus.app.util.MyHtml#PREPARE_FOR_VIEW_VERSION} of stored message bodies */
+    public static final String KEY_BODY_TO_VIEW_VERSION = "body_to_view_version";
+    /** Comma separated names of {@link org.andstatus.app.database.DatabaseBackfill}s, which didn't end yet */
+    public static final String KEY_BACKFILLS_PENDING = "backfills_pending";
     /** Version code of last opened application (int) */
     public static final String KEY_VERSION_CODE_LAST = "version_code_last";
     public static final String KEY_BEING_EDITED_MESSAGE_ID = "draft_message_id";
@@ -139,6 +147,11 @@ public class MyPreferences {
         return SharedPreferencesUtil.getLongStoredAsString(KEY_DONT_SYNCHRONIZE_OLD_MESSAGES, 0);
     }
 
+    public static long getDownloadsSizeBytes() {
+        return SharedPreferencesUtil.getLongStoredAsString(KEY_DOWNLOADS_SIZE_MB, DOWNLOADS_SIZE_MB_DEFAULT)
+                * 1024L * 1024L;
+    }
+
     public static int getConnectionTimeoutMs() {
         return (int) java.util.concurrent.TimeUnit.SECONDS.toMillis(
                 SharedPreferencesUtil.getLongStoredAsString(
@@ -105,6 +105,7 @@ public class MySettingsFragment extends PreferenceFragment implements
         showConnectionTimeout();
         showHistorySize();
         showHistoryTime();
+        showDownloadsSize();
         showRingtone();
         showMinLogLevel();
         showUseExternalStorage();
@@ -172,6 +173,12 @@ public class MySettingsFragment extends PreferenceFragment implements
                 R.string.summary_preference_history_time);
     }
     
+    protected void showDownloadsSize() {
+        SharedPreferencesUtil.showListPreference(this, MyPreferences.KEY_DOWNLOADS_SIZE_MB,
+                R.array.downloads_size_values, R.array.downloads_size_entries,
+                R.string.summary_preference_downloads_size);
+    }
+
     protected void showMinLogLevel() {
         SharedPreferencesUtil.showListPreference(this, MyPreferences.KEY_MIN_LOG_LEVEL,
                 R.array.log_level_values, R.array.log_level_entries,
@@ -410,6 +417,9 @@ public class MySettingsFragment extends PreferenceFragment implements
                 case MyPreferences.KEY_HISTORY_TIME:
                     showHistoryTime();
                     break;
+                case MyPreferences.KEY_DOWNLOADS_SIZE_MB:
+                    showDownloadsSize();
+                    break;
                 case MyPreferences.KEY_MIN_LOG_LEVEL:
                     showMinLogLevel();
                     break;
@@ -25,6 +25,7 @@ import net.jcip.annotations.GuardedBy;
 import org.andstatus.app.ActivityRequestCode;
 import org.andstatus.app.R;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DownloadFileIndex;
 import org.andstatus.app.data.TimelineSearchSuggestionsProvider;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.nosupport.util.DialogFactory;
@@ -391,6 +392,7 @@ public class StorageSwitch {
             try {
                 SharedPreferencesUtil.putBoolean(MyPreferences.KEY_USE_EXTERNAL_STORAGE, useExternalStorageNew);
                 MyPreferences.onPreferencesChanged();
+                DownloadFileIndex.forget();
             } catch (Exception e) {
                 MyLog.v(this, "Save new settings", e);
                 messageToAppend.append("Couldn't save new settings. " + e.getMessage());
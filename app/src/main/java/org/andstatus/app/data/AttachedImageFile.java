@@ -30,15 +30,12 @@ import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.database.DownloadTable;
 import org.andstatus.app.graphics.AttachedImageView;
+import org.andstatus.app.graphics.ImageDecodeScheduler;
 import org.andstatus.app.graphics.MyDrawableCache;
 import org.andstatus.app.graphics.MyImageCache;
-import org.andstatus.app.os.AsyncTaskLauncher;
-import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.MyLog;
 
 public class AttachedImageFile {
-    private static final String TAG = AttachedImageFile.class.getSimpleName();
-
     private final long downloadRowId;
     private final DownloadFile downloadFile;
     private Point size = null;
@@ -79,7 +76,7 @@ public class AttachedImageFile {
 
     public Drawable getDrawableSync() {
         if (downloadFile.exists()) {
-            return MyImageCache.getAttachedImageDrawable(this, downloadFile.getFilePath());
+            return MyImageCache.getAttachedImageDrawable(this, downloadFile.getFilePath(), downloadRowId);
         }
         if (downloadRowId == 0) {
             // TODO: Why we get here?
@@ -101,7 +98,7 @@ public class AttachedImageFile {
             return;
         }
         if (downloadFile.exists()) {
-            setImageDrawableAsync(myActivity, null, downloadFile.getFilePath(), "-preload");
+            setImageDrawableAsync(myActivity, null, downloadFile.getFilePath());
         }
     }
 
@@ -110,6 +107,7 @@ public class AttachedImageFile {
             return;
         }
         if (isEmpty()) {
+            ImageDecodeScheduler.unbind(imageView);
             imageView.setVisibility(View.GONE);
             return;
         }
@@ -118,9 +116,11 @@ public class AttachedImageFile {
         }
         Drawable drawable = getDrawableFromCache();
         if (drawable == MyDrawableCache.BROKEN) {
+            ImageDecodeScheduler.unbind(imageView);
             imageView.setVisibility(View.GONE);
             return;
         } else if (drawable != null) {
+            ImageDecodeScheduler.unbind(imageView);
             imageView.setImageDrawable(drawable);
             imageView.setVisibility(View.VISIBLE);
             return;
@@ -128,8 +128,9 @@ public class AttachedImageFile {
         if (downloadFile.exists()) {
             imageView.setImageDrawable(BLANK_DRAWABLE);
             imageView.setVisibility(View.VISIBLE);
-            setImageDrawableAsync(myActivity, imageView, downloadFile.getFilePath(), "-load");
+            setImageDrawableAsync(myActivity, imageView, downloadFile.getFilePath());
         } else {
+            ImageDecodeScheduler.unbind(imageView);
             imageView.setVisibility(View.GONE);
             if (downloadRowId == 0) {
                 // TODO: Why we get here?
@@ -141,48 +142,29 @@ public class AttachedImageFile {
     }
 
     private void setImageDrawableAsync(final MyActivity myActivity,
-                                       @Nullable final ImageView imageView, final String path,
-                                       final String taskSuffix) {
-        AsyncTaskLauncher.execute(this, false,
-                new MyAsyncTask<Void, Void, Drawable>(TAG + downloadRowId + taskSuffix,
-                        MyAsyncTask.PoolEnum.QUICK_UI) {
-                    @Override
-                    protected Drawable doInBackground2(Void... params) {
-                        return MyImageCache.getAttachedImageDrawable(this, path);
-                    }
-
-                    @Override
-                    protected void onCancelled(Drawable drawable) {
-                        onEnded(drawable);
-                    }
-
-                    @Override
-                    protected void onPostExecute(Drawable drawable) {
-                        onEnded(drawable);
-                        super.onPostExecute(drawable);
-                    }
+                                       @Nullable final ImageView imageView, final String path) {
+        ImageDecodeScheduler.bind(imageView, new ImageDecodeScheduler.Request(path) {
+            @Override
+            protected Drawable decode() {
+                return MyImageCache.getAttachedImageDrawable(AttachedImageFile.this, path, downloadRowId);
+            }
 
-                    private void onEnded(Drawable drawable) {
-                        if (imageView == null || !myActivity.isResumedMy()) {
-                            return;
-                        }
-                        if (drawable == null) {
-                            MyLog.v(this, "Failed to load attached image: " + path);
-                        } else {
-                            try {
-                                if (AttachedImageView.class.isAssignableFrom(imageView.getClass())) {
-                                    ((AttachedImageView) imageView).setMeasuresLocked(true);
-                                }
-                                imageView.setImageDrawable(drawable);
-                                MyLog.v(this, "Attached image loaded: " + path);
-                            } catch (Exception e) {
-                                MyLog.d(this, "Error on setting image: " + path, e);
-                            }
-
-                        }
-                        super.onPostExecute(drawable);
+            @Override
+            protected void onDecoded(@NonNull ImageView imageView, @Nullable Drawable drawable) {
+                if (!myActivity.isResumedMy()) {
+                    return;
+                }
+                if (drawable == null || drawable == MyDrawableCache.BROKEN) {
+                    MyLog.v(AttachedImageFile.this, "Failed to load attached image: " + path);
+                } else {
+                    if (AttachedImageView.class.isAssignableFrom(imageView.getClass())) {
+                        ((AttachedImageView) imageView).setMeasuresLocked(true);
                     }
-                });
+                    imageView.setImageDrawable(drawable);
+                    MyLog.v(AttachedImageFile.this, "Attached image loaded: " + path);
+                }
+            }
+        });
     }
 
     public boolean isEmpty() {
@@ -19,25 +19,11 @@ package org.andstatus.app.data;
 import android.net.Uri;
 
 import org.andstatus.app.database.UserTable;
-import org.andstatus.app.os.AsyncTaskLauncher;
-import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.UriUtils;
 
 public class AvatarData extends DownloadData {
     public static final String TAG = AvatarData.class.getSimpleName();
 
-    public static void asyncRequestDownload(final long userIdIn) {
-        AsyncTaskLauncher.execute(TAG, false,
-                new MyAsyncTask<Void, Void, Void>(TAG + userIdIn, MyAsyncTask.PoolEnum.FILE_DOWNLOAD) {
-                    @Override
-                    protected Void doInBackground2(Void... params) {
-                        getForUser(userIdIn).requestDownload();
-                        return null;
-                    }
-                }
-        );
-    }
-    
     public static AvatarData getForUser(long userIdIn) {
         Uri avatarUriNew = UriUtils.fromString(MyQuery.userIdToStringColumnValue(UserTable.AVATAR_URL, userIdIn));
         AvatarData data = new AvatarData(userIdIn, Uri.EMPTY);
@@ -19,12 +19,16 @@ package org.andstatus.app.data;
 import android.database.Cursor;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.ImageView;
 
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.graphics.ImageDecodeScheduler;
 import org.andstatus.app.graphics.MyDrawableCache;
 import org.andstatus.app.graphics.MyImageCache;
+import org.andstatus.app.service.AvatarRefreshPlanner;
 
 public class AvatarFile {
     private final long userId;
@@ -42,16 +46,17 @@ public class AvatarFile {
 
     @NonNull
     public static Drawable getDrawable(long authorId, Cursor cursor) {
-        Drawable drawable = null;
+        AvatarFile avatarFile = fromCursor(authorId, cursor);
+        return avatarFile == null ? getDefaultDrawable() : avatarFile.getDrawable();
+    }
+
+    /** @return null if avatars are not shown */
+    @Nullable
+    public static AvatarFile fromCursor(long authorId, Cursor cursor) {
         if (MyPreferences.getShowAvatars()) {
-            String avatarFilename = DbUtils.getString(cursor, DownloadTable.AVATAR_FILE_NAME);
-            AvatarFile avatarFile = new AvatarFile(authorId, avatarFilename);
-            drawable = avatarFile.getDrawable();
+            return new AvatarFile(authorId, DbUtils.getString(cursor, DownloadTable.AVATAR_FILE_NAME));
         }
-        if (drawable == null) {
-            drawable = getDefaultDrawable();
-        }
-        return drawable;
+        return null;
     }
 
     @NonNull
@@ -63,11 +68,34 @@ public class AvatarFile {
             return drawable;
         }
         if (!downloadFile.exists()) {
-            AvatarData.asyncRequestDownload(userId);
+            AvatarRefreshPlanner.onVisible(userId);
         }
         return getDefaultDrawable();
     }
 
+    /** Shows the avatar from the memory cache or decodes it in background */
+    public void showAvatar(@NonNull ImageView imageView) {
+        Drawable drawable = MyImageCache.getCachedAvatarDrawable(this, downloadFile.getFilePath());
+        if (drawable != null) {
+            ImageDecodeScheduler.unbind(imageView);
+            imageView.setImageDrawable(drawable == MyDrawableCache.BROKEN ? getDefaultDrawable() : drawable);
+            return;
+        }
+        imageView.setImageDrawable(getDefaultDrawable());
+        if (!downloadFile.exists()) {
+            ImageDecodeScheduler.unbind(imageView);
+            AvatarRefreshPlanner.onVisible(userId);
+            return;
+        }
+        ImageDecodeScheduler.bind(imageView, new ImageDecodeScheduler.Request(downloadFile.getFilePath()) {
+            @Override
+            protected Drawable decode() {
+                Drawable drawable = MyImageCache.getAvatarDrawable(AvatarFile.this, downloadFile.getFilePath());
+                return drawable == MyDrawableCache.BROKEN ? null : drawable;
+            }
+        });
+    }
+
     @Override
     public String toString() {
         return "AvatarFile [userId=" + userId + ", " + downloadFile + "]";
@@ -17,6 +17,7 @@
 package org.andstatus.app.data;
 
 import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.text.TextUtils;
 
@@ -188,6 +189,8 @@ public class DataInserter {
                 }
                 values.put(MsgTable.BODY, message.getBody());
                 values.put(MsgTable.BODY_TO_SEARCH, message.getBodyToSearch());
+                values.put(MsgTable.BODY_TO_VIEW, message.getBodyToView());
+                values.put(MsgTable.BODY_FINGERPRINT, message.getBodyFingerprint());
             }
             
             /**
@@ -259,36 +262,59 @@ public class DataInserter {
             if (MyContextHolder.get().isTestRun()) {
                 MyContextHolder.get().put(new AssertionData(MSG_ASSERTION_KEY, values));
             }
-            if (message.msgId == 0) {
-                Uri msgUri = execContext.getContext().getContentResolver().insert(
-                        MatchedUri.getMsgUri(execContext.getMyAccount().getUserId(), 0), values);
-                message.msgId = ParsedUri.fromUri(msgUri).getMessageId();
-            } else {
-                Uri msgUri = MatchedUri.getMsgUri(execContext.getMyAccount().getUserId(), message.msgId);
-                execContext.getContext().getContentResolver().update(msgUri, values, null, null);
-            }
-            if (message.conversationId == 0) {
-                message.conversationId = message.msgId;
-                Uri msgUri = MatchedUri.getMsgUri(execContext.getMyAccount().getUserId(), message.msgId);
-                ContentValues values2 = new ContentValues();
-                values2.put(MsgTable.CONVERSATION_ID, message.conversationId);
-                execContext.getContext().getContentResolver().update(msgUri, values2, null, null);
+            // The message and its counters are stored atomically.
+            // Attachments are saved after that, because they may be downloaded at once
+            SQLiteDatabase db = MyContextHolder.get().getDatabase();
+            long msgIdStored = message.msgId;
+            boolean stored = false;
+            if (db != null) {
+                db.beginTransactionNonExclusive();
+            }
+            try {
+                if (message.msgId == 0) {
+                    Uri msgUri = execContext.getContext().getContentResolver().insert(
+                            MatchedUri.getMsgUri(execContext.getMyAccount().getUserId(), 0), values);
+                    message.msgId = ParsedUri.fromUri(msgUri).getMessageId();
+                } else {
+                    Uri msgUri = MatchedUri.getMsgUri(execContext.getMyAccount().getUserId(), message.msgId);
+                    execContext.getContext().getContentResolver().update(msgUri, values, null, null);
+                }
+                if (message.conversationId == 0) {
+                    message.conversationId = message.msgId;
+                    Uri msgUri = MatchedUri.getMsgUri(execContext.getMyAccount().getUserId(), message.msgId);
+                    ContentValues values2 = new ContentValues();
+                    values2.put(MsgTable.CONVERSATION_ID, message.conversationId);
+                    execContext.getContext().getContentResolver().update(msgUri, values2, null, null);
+                }
+
+                if (isNewerThanInDatabase && !keywordsFilter.matchedAny(message.getBody())) {
+                    // This message is newer than already stored in our database, so count it!
+                    execContext.getResult().incrementMessagesCount();
+                    if (mentioned) {
+                        execContext.getResult().incrementMentionsCount();
+                    }
+                    if (isDirectMessage) {
+                        execContext.getResult().incrementDirectCount();
+                    }
+                    MessageCounters.onMessageAdded(execContext.getTimeline().getId(),
+                            execContext.getMyAccount().getUserId(), mentioned, isDirectMessage);
+                }
+                if (db != null) {
+                    db.setTransactionSuccessful();
+                }
+                stored = true;
+            } finally {
+                if (db != null) {
+                    db.endTransaction();
+                }
+                if (!stored) {
+                    message.msgId = msgIdStored;
+                }
             }
 
             if (isFirstTimeLoaded || isDraftUpdated) {
                 saveAttachments(message);
             }
-
-            if (isNewerThanInDatabase && !keywordsFilter.matchedAny(message.getBody())) {
-                // This message is newer than already stored in our database, so count it!
-                execContext.getResult().incrementMessagesCount();
-                if (mentioned) {
-                    execContext.getResult().incrementMentionsCount();
-                }
-                if (isDirectMessage) {
-                    execContext.getResult().incrementDirectCount();
-                }
-            }
             if (messageIn.getSenderId() != 0) {
                 // Remember all messages that we added or updated
                 lum.onNewUserMsg(new UserMsg(messageIn.getSenderId(), message.msgId, message.sentDate));
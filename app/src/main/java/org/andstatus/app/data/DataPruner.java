@@ -16,7 +16,7 @@
 
 package org.andstatus.app.data;
 
-import android.content.ContentResolver;
+import android.content.ContentValues;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -31,13 +31,14 @@ import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
-import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Clean database from outdated information
@@ -45,14 +46,22 @@ import java.util.List;
  */
 public class DataPruner {
     private MyContext mMyContext;
-    private ContentResolver mContentResolver;
     private int mDeleted = 0;
     static final long MAX_DAYS_LOGS_TO_KEEP = 10;
     static final long PRUNE_MIN_PERIOD_DAYS = 1;	
+    static final long PRUNE_MESSAGES_TIME_BUDGET_MILLIS = 10000;
+    static final int PRUNE_MESSAGES_CHUNK_SIZE = 200;
+    /** Let other writers (sync, UI) take the database lock between chunks */
+    private static final long PRUNE_MESSAGES_CHUNK_PAUSE_MILLIS = 20;
+    static final long PRUNE_DOWNLOADS_TIME_BUDGET_MILLIS = 10000;
+    private static final int PRUNE_DOWNLOADS_CHUNK_SIZE = 100;
+    /** Downloads still exceed their quota, because time budget of the previous run was exhausted */
+    private static volatile boolean downloadsPruneIncomplete = false;
+    /** Messages were scanned up to this id, when time budget of the previous run was exhausted. 0 - complete */
+    static volatile long messagesPruneResumeFromId = 0;
 
     public DataPruner(MyContext myContext) {
         mMyContext = myContext;
-        mContentResolver = myContext.context().getContentResolver();
     }
 
     /**
@@ -62,100 +71,189 @@ public class DataPruner {
         final String method = "prune";
         boolean pruned = false;
         if (!isTimeToPrune()) {
+            if (!mMyContext.isInForeground()) {
+                continueIncomplete();
+            }
             return pruned;
         }
         MyLog.v(this, method + " started");
 
         mDeleted = 0;
-        int nDeletedTime = 0;
-        // We're using global preferences here
-        SharedPreferences sp = SharedPreferencesUtil
-                .getDefaultSharedPreferences();
-
-        // Don't delete messages, which are favorited by any user
-        String sqlNotFavoritedMessage = "NOT EXISTS ("
-                + "SELECT * FROM " + MsgOfUserTable.TABLE_NAME + " AS gnf WHERE "
-                + MsgTable.TABLE_NAME + "." + MsgTable._ID + "=gnf." + MsgOfUserTable.MSG_ID
-                + " AND gnf." + MsgOfUserTable.FAVORITED + "=1"
-                + ")";
-        String sqlNotLatestMessageByFollowedUser = MsgTable.TABLE_NAME + "." + MsgTable._ID + " NOT IN("
-                + "SELECT " + UserTable.USER_MSG_ID
-                + " FROM " + UserTable.TABLE_NAME + " AS userf"
-                + " INNER JOIN " + FriendshipTable.TABLE_NAME
-                + " ON" 
-                + " userf." + UserTable._ID + "=" + FriendshipTable.TABLE_NAME + "." + FriendshipTable.FRIEND_ID
-                + " AND " + FriendshipTable.TABLE_NAME + "." + FriendshipTable.FOLLOWED + "=1"
-                + ")";
-
-        int maxDays = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_TIME, "3"));
-        long latestTimestamp = 0;
-
-        int nTweets = 0;
-        int nToDeleteSize = 0;
-        int nDeletedSize = 0;
-        int maxSize = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_SIZE, "2000"));
-        long latestTimestampSize = 0;
-        Cursor cursor = null;
+        int maxDays = getHistoryDays();
+        int maxSize = getHistorySize();
         try {
-            if (maxDays > 0) {
-                latestTimestamp = System.currentTimeMillis() - java.util.concurrent.TimeUnit.DAYS.toMillis(maxDays);
-                SelectionAndArgs sa = new SelectionAndArgs();
-                sa.addSelection(MsgTable.TABLE_NAME + "." + MsgTable.INS_DATE + " <  ?",
-                        new String[] {String.valueOf(latestTimestamp)});
-                sa.addSelection(sqlNotFavoritedMessage);
-                sa.addSelection(sqlNotLatestMessageByFollowedUser);
-                nDeletedTime = mContentResolver.delete(MatchedUri.MSG_CONTENT_URI, sa.selection, sa.selectionArgs);
-            }
+            mDeleted = pruneMessages(maxDays, maxSize, PRUNE_MESSAGES_TIME_BUDGET_MILLIS);
+            pruned = true;
+        } catch (Exception e) {
+            MyLog.i(this, method + " failed", e);
+        }
+        if (mDeleted > 0) {
+            pruneAttachments();
+        }
+        pruneDownloads(MyPreferences.getDownloadsSizeBytes(), PRUNE_DOWNLOADS_TIME_BUDGET_MILLIS);
+        pruneLogs(MAX_DAYS_LOGS_TO_KEEP);
+        setDataPrunedNow();
+        MyLog.v(this, method + " " + (pruned ? "succeeded" : "failed") + "; History time=" + maxDays
+                + " days, size=" + maxSize + " messages; deleted " + mDeleted + " messages");
+        return pruned;
+    }
 
-            if (maxSize > 0) {
-                nDeletedSize = 0;
-                cursor = mContentResolver.query(MatchedUri.MSG_CONTENT_COUNT_URI, null, null, null, null);
-                if (cursor.moveToFirst()) {
-                    // Count is in the first column
-                    nTweets = cursor.getInt(0);
-                    nToDeleteSize = nTweets - maxSize;
+    /** Pruning, which was interrupted because its time budget was exhausted, goes on between daily runs */
+    private void continueIncomplete() {
+        final String method = "continueIncomplete";
+        if (messagesPruneResumeFromId != 0) {
+            try {
+                mDeleted = pruneMessages(getHistoryDays(), getHistorySize(), PRUNE_MESSAGES_TIME_BUDGET_MILLIS);
+                if (mDeleted > 0) {
+                    pruneAttachments();
                 }
-                cursor.close();
-                if (nToDeleteSize > 0) {
-                    // Find INS_DATE of the most recent tweet to delete
-                    cursor = mContentResolver.query(MatchedUri.MSG_CONTENT_URI, new String[] {
-                            MsgTable.INS_DATE
-                    }, null, null, MsgTable.INS_DATE + " ASC LIMIT 0," + nToDeleteSize);
-                    if (cursor.moveToLast()) {
-                        latestTimestampSize = cursor.getLong(0);
+            } catch (Exception e) {
+                MyLog.i(this, method + " failed", e);
+            }
+        }
+        if (downloadsPruneIncomplete) {
+            pruneDownloads(MyPreferences.getDownloadsSizeBytes(), PRUNE_DOWNLOADS_TIME_BUDGET_MILLIS);
+        }
+    }
+
+    private static int getHistoryDays() {
+        // We're using global preferences here
+        SharedPreferences sp = SharedPreferencesUtil.getDefaultSharedPreferences();
+        return Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_TIME, "3"));
+    }
+
+    private static int getHistorySize() {
+        SharedPreferences sp = SharedPreferencesUtil.getDefaultSharedPreferences();
+        return Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_SIZE, "2000"));
+    }
+
+    /**
+     * Deletes messages, which are older than maxDays, and the oldest messages, while there are more than maxSize.
+     * Messages are scanned in the order of their ids (which is the order of their insertion) in chunks,
+     * each chunk is deleted in its own short transaction, so sync and loaders are not blocked for long.
+     * Favorited messages and the latest messages of followed users are never deleted, their ids
+     * are found once per run. If the time budget is exhausted, the next run resumes from the last scanned id
+     * @param maxDays 0 - don't limit by time
+     * @param maxSize 0 - don't limit by size
+     * @return number of deleted messages
+     */
+    int pruneMessages(int maxDays, int maxSize, long timeBudgetMillis) {
+        final String method = "pruneMessages";
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(this, method + "; Database is null");
+            return 0;
+        }
+        if (maxDays <= 0 && maxSize <= 0) {
+            messagesPruneResumeFromId = 0;
+            return 0;
+        }
+        long startedAt = System.currentTimeMillis();
+        long latestTimestamp = maxDays > 0
+                ? startedAt - java.util.concurrent.TimeUnit.DAYS.toMillis(maxDays) : 0;
+        long nToDeleteSize = maxSize > 0 ? MyQuery.sqlToLong(db, method,
+                "SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME) - maxSize : 0;
+        Set<Long> protectedIds = getProtectedMessageIds(db);
+        String userIds = getMsgOfUserUserIds(db);
+        long fromId = messagesPruneResumeFromId;
+        int nDeleted = 0;
+        boolean completed = false;
+        boolean timeIsOut = false;
+        while (!completed && !timeIsOut) {
+            List<Long> toDelete = new ArrayList<>();
+            long lastId = fromId;
+            Cursor cursor = null;
+            try {
+                cursor = SlowQueryLog.rawQuery(db, "SELECT " + MsgTable._ID + ", " + MsgTable.INS_DATE
+                        + " FROM " + MsgTable.TABLE_NAME
+                        + " WHERE " + MsgTable._ID + ">" + fromId
+                        + " ORDER BY " + MsgTable._ID + " LIMIT " + PRUNE_MESSAGES_CHUNK_SIZE, null);
+                completed = cursor.getCount() < PRUNE_MESSAGES_CHUNK_SIZE;
+                while (cursor.moveToNext()) {
+                    long msgId = cursor.getLong(0);
+                    if (cursor.getLong(1) >= latestTimestamp && nToDeleteSize - toDelete.size() <= 0) {
+                        // Newer messages follow, and there are not too many of them
+                        completed = true;
+                        break;
                     }
-                    cursor.close();
-                    if (latestTimestampSize > 0) {
-                        SelectionAndArgs sa = new SelectionAndArgs();
-                        sa.addSelection(MsgTable.TABLE_NAME + "." + MsgTable.INS_DATE + " <=  ?",
-                                new String[] {String.valueOf(latestTimestampSize)});
-                        sa.addSelection(sqlNotFavoritedMessage);
-                        sa.addSelection(sqlNotLatestMessageByFollowedUser);
-                        nDeletedSize = mContentResolver.delete(MatchedUri.MSG_CONTENT_URI, sa.selection,
-                                sa.selectionArgs);
+                    lastId = msgId;
+                    if (!protectedIds.contains(msgId)) {
+                        toDelete.add(msgId);
                     }
                 }
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+            if (!toDelete.isEmpty()) {
+                deleteMessages(db, userIds, toDelete);
+                nDeleted += toDelete.size();
+                nToDeleteSize -= toDelete.size();
+            }
+            fromId = lastId;
+            if (!completed) {
+                timeIsOut = System.currentTimeMillis() - startedAt > timeBudgetMillis
+                        || DbUtils.waitMs(method, PRUNE_MESSAGES_CHUNK_PAUSE_MILLIS);
+            }
+        }
+        messagesPruneResumeFromId = completed ? 0 : fromId;
+        MyLog.v(this, method + "; deleted " + nDeleted + " messages in "
+                + (System.currentTimeMillis() - startedAt) + "ms, before " + new Date(latestTimestamp).toString()
+                + ", " + protectedIds.size() + " protected" + (timeIsOut ? ", time is out at id " + fromId : ""));
+        return nDeleted;
+    }
+
+    /** Favorited messages and the latest messages of followed users */
+    private Set<Long> getProtectedMessageIds(SQLiteDatabase db) {
+        String sql = "SELECT " + MsgOfUserTable.MSG_ID + " FROM " + MsgOfUserTable.TABLE_NAME
+                + " WHERE " + MsgOfUserTable.FAVORITED + "=1"
+                + " UNION SELECT " + UserTable.USER_MSG_ID
+                + " FROM " + UserTable.TABLE_NAME
+                + " INNER JOIN " + FriendshipTable.TABLE_NAME
+                + " ON " + UserTable.TABLE_NAME + "." + UserTable._ID + "="
+                + FriendshipTable.TABLE_NAME + "." + FriendshipTable.FRIEND_ID
+                + " AND " + FriendshipTable.TABLE_NAME + "." + FriendshipTable.FOLLOWED + "=1";
+        Set<Long> ids = new HashSet<>();
+        Cursor cursor = null;
+        try {
+            cursor = SlowQueryLog.rawQuery(db, sql, null);
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
             }
-            pruned = true;
-        } catch (Exception e) {
-            MyLog.i(this, method + " failed", e);
         } finally {
             DbUtils.closeSilently(cursor);
         }
-        mDeleted = nDeletedTime + nDeletedSize;
-        if (mDeleted > 0) {
-            pruneAttachments();
+        return ids;
+    }
+
+    /** Rows of {@link MsgOfUserTable} are found by its primary key (user, message), so we need all the users */
+    private String getMsgOfUserUserIds(SQLiteDatabase db) {
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = SlowQueryLog.rawQuery(db, "SELECT DISTINCT " + MsgOfUserTable.USER_ID
+                    + " FROM " + MsgOfUserTable.TABLE_NAME, null);
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
         }
-        pruneLogs(MAX_DAYS_LOGS_TO_KEEP);
-        setDataPrunedNow();
-        if (MyLog.isVerboseEnabled()) {
-            MyLog.v(this,
-                    method + " " + (pruned ? "succeeded" : "failed") + "; History time=" + maxDays + " days; deleted " + nDeletedTime
-                    + " , before " + new Date(latestTimestamp).toString());
-            MyLog.v(this, method + "; History size=" + maxSize + " messages; deleted "
-                    + nDeletedSize + " of " + nTweets + " messages, before " + new Date(latestTimestampSize).toString());
+        return ids.isEmpty() ? "" : DownloadData.toSqlList(ids);
+    }
+
+    private void deleteMessages(SQLiteDatabase db, String userIds, List<Long> msgIds) {
+        String sqlMsgIds = DownloadData.toSqlList(msgIds);
+        db.beginTransactionNonExclusive();
+        try {
+            if (!userIds.isEmpty()) {
+                db.delete(MsgOfUserTable.TABLE_NAME, MsgOfUserTable.USER_ID + " IN (" + userIds + ")"
+                        + " AND " + MsgOfUserTable.MSG_ID + " IN (" + sqlMsgIds + ")", null);
+            }
+            db.delete(MsgTable.TABLE_NAME, MsgTable._ID + " IN (" + sqlMsgIds + ")", null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-        return pruned;
     }
 
     long pruneAttachments() {
@@ -175,7 +273,7 @@ public class DataPruner {
         List<Long> list = new ArrayList<Long>();
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(sql, null);
+            cursor = SlowQueryLog.rawQuery(db, sql, null);
             while (cursor.moveToNext()) {
                 list.add(cursor.getLong(0));
             }
@@ -192,6 +290,120 @@ public class DataPruner {
         return nDeleted;
     }
 
+    /**
+     * Delete least recently accessed downloaded files, while their total size exceeds the quota.
+     * Evicted rows become {@link DownloadStatus#ABSENT}, so the files are downloaded again, when needed.
+     * If the time budget is exhausted, pruning continues on the next run
+     * @return number of deleted files
+     */
+    long pruneDownloads(long maxBytes, long timeBudgetMillis) {
+        final String method = "pruneDownloads";
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(this, method + "; Database is null");
+            return 0;
+        }
+        long startedAt = System.currentTimeMillis();
+        DownloadFileIndex.saveAccessTimes();
+        long totalBytes = getDownloadsSize(db);
+        if (totalBytes <= maxBytes) {
+            downloadsPruneIncomplete = false;
+            return 0;
+        }
+        // Free some more space, so we won't prune on every run
+        long targetBytes = maxBytes - maxBytes / 10;
+        long nDeleted = 0;
+        boolean timeIsOut = false;
+        while (totalBytes > targetBytes && !timeIsOut) {
+            List<String> filenames = getLeastRecentlyAccessed(db, PRUNE_DOWNLOADS_CHUNK_SIZE);
+            if (filenames.isEmpty()) {
+                break;
+            }
+            for (String filename : filenames) {
+                totalBytes -= evictDownload(db, filename);
+                nDeleted++;
+                if (totalBytes <= targetBytes) {
+                    break;
+                }
+                if (System.currentTimeMillis() - startedAt > timeBudgetMillis) {
+                    timeIsOut = true;
+                    break;
+                }
+            }
+        }
+        downloadsPruneIncomplete = timeIsOut;
+        MyLog.v(this, method + "; deleted " + nDeleted + " files in "
+                + (System.currentTimeMillis() - startedAt) + "ms, " + totalBytes + " bytes left, quota " + maxBytes
+                + (timeIsOut ? ", time is out" : ""));
+        return nDeleted;
+    }
+
+    /** Shared files are counted once */
+    long getDownloadsSize(SQLiteDatabase db) {
+        String sql = "SELECT DISTINCT " + DownloadTable.FILE_NAME + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                + " AND " + DownloadTable.FILE_NAME + " IS NOT NULL";
+        long size = 0;
+        Cursor cursor = null;
+        try {
+            cursor = SlowQueryLog.rawQuery(db, sql, null);
+            while (cursor.moveToNext()) {
+                size += new DownloadFile(cursor.getString(0)).getSize();
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return size;
+    }
+
+    /** Rows without access time were not shown since they were downloaded */
+    private List<String> getLeastRecentlyAccessed(SQLiteDatabase db, int limit) {
+        String sql = "SELECT " + DownloadTable.FILE_NAME + ", MAX(COALESCE("
+                + DownloadTable.ACCESSED_DATE + ", " + DownloadTable.VALID_FROM + ")) AS accessed"
+                + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                + " AND " + DownloadTable.FILE_NAME + " IS NOT NULL"
+                + " GROUP BY " + DownloadTable.FILE_NAME
+                + " ORDER BY accessed ASC LIMIT " + limit;
+        List<String> filenames = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = SlowQueryLog.rawQuery(db, sql, null);
+            while (cursor.moveToNext()) {
+                filenames.add(cursor.getString(0));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return filenames;
+    }
+
+    /**
+     * The file is deleted, and all rows, which refer to it, may be downloaded again
+     * @return size of the deleted file
+     */
+    private long evictDownload(SQLiteDatabase db, String filename) {
+        String where = DownloadTable.FILE_NAME + "=" + MyQuery.quoteIfNotQuoted(filename);
+        Cursor cursor = null;
+        try {
+            cursor = SlowQueryLog.rawQuery(db, "SELECT " + DownloadTable._ID + " FROM " + DownloadTable.TABLE_NAME
+                    + " WHERE " + where, null);
+            while (cursor.moveToNext()) {
+                ThumbnailFile.deleteAll(cursor.getLong(0));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        ContentValues values = new ContentValues();
+        values.put(DownloadTable.DOWNLOAD_STATUS, DownloadStatus.ABSENT.save());
+        values.putNull(DownloadTable.CONTENT_HASH);
+        db.update(DownloadTable.TABLE_NAME, values, where, null);
+        DownloadFile file = new DownloadFile(filename);
+        long size = file.getSize();
+        file.delete();
+        return size;
+    }
+
     public static void setDataPrunedNow() {
         SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_DATE, System.currentTimeMillis());
     }
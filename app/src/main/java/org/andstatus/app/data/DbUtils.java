@@ -235,7 +235,9 @@ public final class DbUtils {
 
     public static void execSQL(SQLiteDatabase db, String sql) {
         MyLog.v("execSQL", sql);
+        long startedAt = SlowQueryLog.start();
         db.execSQL(sql);
+        SlowQueryLog.end(startedAt, sql, -1);
     }
 
     public static String sqlZeroToNull(long value) {
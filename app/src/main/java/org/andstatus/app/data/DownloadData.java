@@ -5,10 +5,12 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.net.http.PartialFile;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.CommandData;
@@ -22,6 +24,8 @@ import java.util.List;
 
 public class DownloadData {
     private static final String TAG = DownloadData.class.getSimpleName();
+    private static final String CONTENT_FILE_PREFIX = "content_";
+    private static final String TEMP_FILE_PREFIX = "temp_";
     public static final DownloadData EMPTY = new DownloadData();
 
     private DownloadType downloadType = DownloadType.UNKNOWN;
@@ -31,6 +35,7 @@ public class DownloadData {
     private DownloadStatus status = DownloadStatus.UNKNOWN; 
     private long downloadId = 0;
     private DownloadFile fileStored = DownloadFile.EMPTY;
+    private String contentHashStored = "";
     protected Uri uri = Uri.EMPTY;
 
     private boolean hardError = false;
@@ -39,6 +44,7 @@ public class DownloadData {
 
     private long loadTimeNew = 0;
     private DownloadFile fileNew = DownloadFile.EMPTY;
+    private String contentHashNew = "";
 
     public static DownloadData fromId(long downloadId) {
         DownloadData dd = new DownloadData();
@@ -92,7 +98,8 @@ public class DownloadData {
     private void loadOtherFields() {
         if (checkHardErrorBeforeLoad()) return;
         String sql = "SELECT " + DownloadTable.DOWNLOAD_STATUS + ", "
-                + DownloadTable.FILE_NAME
+                + DownloadTable.FILE_NAME + ", "
+                + DownloadTable.CONTENT_HASH
                 + (downloadType == DownloadType.UNKNOWN ? ", " + DownloadTable.DOWNLOAD_TYPE : "")
                 + (userId == 0 ? ", " + DownloadTable.USER_ID : "")
                 + (msgId == 0 ? ", " + DownloadTable.MSG_ID : "")
@@ -115,6 +122,7 @@ public class DownloadData {
             if (cursor.moveToNext()) {
                 status = DownloadStatus.load(DbUtils.getLong(cursor, DownloadTable.DOWNLOAD_STATUS));
                 fileStored = new DownloadFile(DbUtils.getString(cursor, DownloadTable.FILE_NAME));
+                contentHashStored = DbUtils.getString(cursor, DownloadTable.CONTENT_HASH);
                 if (downloadType == DownloadType.UNKNOWN) {
                     downloadType = DownloadType.load(DbUtils.getLong(cursor, DownloadTable.DOWNLOAD_TYPE));
                 }
@@ -174,6 +182,7 @@ public class DownloadData {
             fileStored = DownloadFile.EMPTY;
         }
         fileNew = fileStored;
+        contentHashNew = contentHashStored;
         if (hardError) {
             status = DownloadStatus.HARD_ERROR;
         } else if (DownloadStatus.LOADED.equals(status) 
@@ -192,6 +201,60 @@ public class DownloadData {
                 + "_"
                 + Long.toString(InstanceId.next())
                 + getOptionalExtension());
+        contentHashNew = "";
+    }
+
+    /**
+     * Avatars are stored by content, so identical images of many users
+     * are downloaded, stored and decoded once
+     */
+    public boolean isStoredByContent() {
+        return downloadType == DownloadType.AVATAR;
+    }
+
+    /**
+     * Use the file, which was loaded from the same Uri for another row, instead of downloading it again
+     * @return true if the file was found
+     */
+    public boolean useLoadedOfTheSameUri() {
+        if (!isStoredByContent() || UriUtils.isEmpty(uri)) {
+            return false;
+        }
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            return false;
+        }
+        String sql = "SELECT " + DownloadTable.FILE_NAME + ", " + DownloadTable.CONTENT_HASH
+                + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.URI + "=" + MyQuery.quoteIfNotQuoted(uri.toString())
+                + " AND " + DownloadTable.DOWNLOAD_TYPE + "=" + downloadType.save()
+                + " AND " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                + " AND " + DownloadTable.CONTENT_HASH + " IS NOT NULL"
+                + " AND " + DownloadTable._ID + "<>" + downloadId;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                DownloadFile file = new DownloadFile(cursor.getString(0));
+                if (file.exists()) {
+                    fileNew = file;
+                    contentHashNew = cursor.getString(1);
+                    MyLog.v(this, "Reused " + file.getFilename() + "; " + userMsgUriToString());
+                    return true;
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return false;
+    }
+
+    /** The new file will be named by its content */
+    public void onContentDownloaded(@NonNull String contentHash) {
+        if (isStoredByContent() && !TextUtils.isEmpty(contentHash)) {
+            contentHashNew = contentHash;
+            fileNew = new DownloadFile(CONTENT_FILE_PREFIX + contentHash + getOptionalExtension());
+        }
     }
 
     private String getOptionalExtension() {
@@ -217,6 +280,7 @@ public class DownloadData {
             }
             if (!isError()) {
                 fileStored = fileNew;
+                contentHashStored = contentHashNew;
             }
         } catch (Exception e) {
             softErrorLogged("Couldn't save to database", e);
@@ -234,9 +298,13 @@ public class DownloadData {
        }
        values.put(DownloadTable.CONTENT_TYPE, contentType.save());
        values.put(DownloadTable.VALID_FROM, loadTimeNew);
+       values.put(DownloadTable.ACCESSED_DATE, loadTimeNew);
        values.put(DownloadTable.URI, uri.toString());
        values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
        values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
+       if (!TextUtils.isEmpty(contentHashNew)) {
+           values.put(DownloadTable.CONTENT_HASH, contentHashNew);
+       }
 
        downloadId = DbUtils.addRowWithRetry(MyContextHolder.get(), DownloadTable.TABLE_NAME, values, 3);
        if (downloadId == -1) {
@@ -261,10 +329,16 @@ public class DownloadData {
     private void update() {
         ContentValues values = new ContentValues();
         values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
-        boolean changeFile = !isError() && fileNew.exists() && fileStored != fileNew;
+        boolean changeFile = !isError() && fileNew.exists() && !fileStored.equals(fileNew);
         if (changeFile) {
             values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
             values.put(DownloadTable.VALID_FROM, loadTimeNew);
+            values.put(DownloadTable.ACCESSED_DATE, loadTimeNew);
+            if (TextUtils.isEmpty(contentHashNew)) {
+                values.putNull(DownloadTable.CONTENT_HASH);
+            } else {
+                values.put(DownloadTable.CONTENT_HASH, contentHashNew);
+            }
         }
 
         if (DbUtils.updateRowWithRetry(MyContextHolder.get(), DownloadTable.TABLE_NAME, downloadId, values, 3) != 1) {
@@ -273,7 +347,8 @@ public class DownloadData {
             MyLog.v(this, "Updated " + userMsgUriToString());
         }
         if (!isError() && changeFile) {
-            fileStored.delete();
+            deleteFileIfNotShared(MyContextHolder.get().getDatabase(), fileStored, contentHashStored);
+            ThumbnailFile.deleteAll(downloadId);
         }
     }
 
@@ -321,7 +396,8 @@ public class DownloadData {
 
     private static void deleteSelected(final String method, SQLiteDatabase db, String where) {
         String sql = "SELECT " + DownloadTable._ID + ", "
-                + DownloadTable.FILE_NAME
+                + DownloadTable.FILE_NAME + ", "
+                + DownloadTable.CONTENT_HASH
                 + " FROM " + DownloadTable.TABLE_NAME
                 + " WHERE " + where;
         int rowsDeleted = 0;
@@ -336,8 +412,12 @@ public class DownloadData {
                 cursor = db.rawQuery(sql, null);
                 while (cursor.moveToNext()) {
                     long rowIdOld = cursor.getLong(0);
-                    new DownloadFile(cursor.getString(1)).delete();
+                    ThumbnailFile.deleteAll(rowIdOld);
+                    DownloadFile fileTemp = tempFileOf(rowIdOld);
+                    PartialFile.delete(fileTemp.getFile());
+                    DownloadFileIndex.onDeleted(fileTemp.getFilename());
                     rowsDeleted += db.delete(DownloadTable.TABLE_NAME, DownloadTable._ID + "=" + Long.toString(rowIdOld), null);
+                    deleteFileIfNotShared(db, new DownloadFile(cursor.getString(1)), cursor.getString(2));
                 }
                 done = true;
             } catch (SQLiteException e) {
@@ -354,6 +434,17 @@ public class DownloadData {
         }
     }
 
+    /** A file, stored by content, is deleted, when no rows refer to it */
+    private static void deleteFileIfNotShared(SQLiteDatabase db, DownloadFile file, String contentHash) {
+        if (!TextUtils.isEmpty(contentHash) && MyQuery.sqlToLong(db, "",
+                "SELECT COUNT(*) FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.CONTENT_HASH + "=" + MyQuery.quoteIfNotQuoted(contentHash)
+                + " AND " + DownloadTable.FILE_NAME + "=" + MyQuery.quoteIfNotQuoted(file.getFilename())) > 0) {
+            return;
+        }
+        file.delete();
+    }
+
     public static void deleteAllOfThisMsg(SQLiteDatabase db, long msgId) {
         final String method = "deleteAllOfThisMsg msgId=" + msgId;
         deleteSelected(method, db, DownloadTable.MSG_ID + "=" + msgId);
@@ -383,6 +474,10 @@ public class DownloadData {
         return list;
     }
 
+    public MyContentType getContentType() {
+        return contentType;
+    }
+
     public DownloadFile getFile() {
         return fileStored;
     }
@@ -399,6 +494,15 @@ public class DownloadData {
         return status;
     }
 
+    /** The name is stable for the download row, so a partially downloaded file may be resumed */
+    public DownloadFile getTempFile() {
+        return tempFileOf(downloadId);
+    }
+
+    private static DownloadFile tempFileOf(long rowId) {
+        return new DownloadFile(TEMP_FILE_PREFIX + rowId);
+    }
+
     public String getFilenameNew() {
         return fileNew.getFilename();
     }
@@ -19,7 +19,6 @@ package org.andstatus.app.data;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
-import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
@@ -32,7 +31,7 @@ public class DownloadFile {
     public DownloadFile(String filename) {
         this.filename = filename;
         if (!TextUtils.isEmpty(filename)) {
-            file = new File(MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS), filename);
+            file = new File(DownloadFileIndex.getDir(), filename);
         } else {
             file = null;
         }
@@ -42,8 +41,9 @@ public class DownloadFile {
         return file == null;
     }
 
+    /** The check doesn't access the disk, see {@link DownloadFileIndex} */
     public boolean exists() {
-        return !isEmpty() && file.exists() && file.isFile();
+        return !isEmpty() && DownloadFileIndex.getMetadata(filename, file).exists();
     }
     
     public File getFile() {
@@ -56,10 +56,7 @@ public class DownloadFile {
     }
 
     public long getSize() {
-        if (exists()) {
-            return file.length();
-        }
-        return 0;
+        return isEmpty() ? 0 : DownloadFileIndex.getMetadata(filename, file).size;
     }
 
     public String getFilename() {
@@ -76,6 +73,7 @@ public class DownloadFile {
         if(exists()) {
             deleted = file.delete();
             if (deleted) {
+                DownloadFileIndex.onDeleted(filename);
                 MyLog.v(this, "Deleted file " + file.toString());
             } else {
                 MyLog.e(this, "Couldn't delete file " + file.toString());
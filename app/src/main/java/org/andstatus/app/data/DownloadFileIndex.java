@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory metadata of files in the downloads directory, so checks of avatars and attachments
+ * while binding list rows don't hit the (possibly slow external) storage.
+ * Files, referred by {@link DownloadTable}, are indexed in background once: only files, which are
+ * {@link DownloadStatus#LOADED} there, are checked on disk.
+ * Other files are checked on the first request. A request in the UI thread doesn't wait for the check:
+ * the file is reported as absent, until it's checked in background.
+ * The index is kept in sync by {@link DownloadFile}
+ * and {@link org.andstatus.app.service.FileDownloader}.
+ * Access times of files are collected here and saved to {@link DownloadTable#ACCESSED_DATE} in batches
+ */
+public class DownloadFileIndex {
+    private static final String TAG = DownloadFileIndex.class.getSimpleName();
+    private static final int ACCESS_TIMES_TO_SAVE_MIN = 100;
+
+    static class Metadata {
+        static final Metadata ABSENT = new Metadata(DownloadStatus.ABSENT, 0, 0);
+        /** The file was not checked yet */
+        static final Metadata UNKNOWN = new Metadata(DownloadStatus.UNKNOWN, 0, 0);
+        final DownloadStatus status;
+        final long size;
+        final long lastModified;
+
+        Metadata(DownloadStatus status, long size, long lastModified) {
+            this.status = status;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static Metadata of(File file) {
+            return file != null && file.isFile()
+                    ? new Metadata(DownloadStatus.LOADED, file.length(), file.lastModified()) : ABSENT;
+        }
+
+        boolean exists() {
+            return status == DownloadStatus.LOADED;
+        }
+    }
+
+    /** Keys are file names */
+    private static final Map<String, Metadata> files = new ConcurrentHashMap<>();
+    private static volatile File dir = null;
+    private static final AtomicBoolean loadStarted = new AtomicBoolean();
+    /** Access times, not saved yet. Keys are file names */
+    private static final ConcurrentHashMap<String, Long> accessTimes = new ConcurrentHashMap<>();
+    private static final AtomicBoolean savingAccessTimes = new AtomicBoolean();
+    /** Files, requested in the UI thread and not checked on disk yet. Keys are file names */
+    private static final ConcurrentHashMap<String, File> filesToCheck = new ConcurrentHashMap<>();
+    private static final AtomicBoolean checkingFiles = new AtomicBoolean();
+
+    private DownloadFileIndex() {
+        // Empty
+    }
+
+    /** The directory is resolved once, because this involves disk access and reading of preferences */
+    @Nullable
+    static File getDir() {
+        File dir1 = dir;
+        if (dir1 == null) {
+            dir1 = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+            dir = dir1;
+        }
+        return dir1;
+    }
+
+    /** @param path Absolute path of a file. Files outside the downloads directory are checked on disk */
+    public static boolean exists(String path) {
+        if (TextUtils.isEmpty(path)) {
+            return false;
+        }
+        String filename = toFilename(path);
+        if (TextUtils.isEmpty(filename)) {
+            return new File(path).exists();
+        }
+        return getMetadata(filename, new File(path)).exists();
+    }
+
+    /** @return File name, if the file is in the downloads directory, or an empty string */
+    @NonNull
+    private static String toFilename(String path) {
+        File dir1 = getDir();
+        if (dir1 != null && path.startsWith(dir1.getAbsolutePath() + File.separator)) {
+            String filename = path.substring(dir1.getAbsolutePath().length() + 1);
+            if (filename.indexOf(File.separatorChar) < 0) {
+                return filename;
+            }
+        }
+        return "";
+    }
+
+    /** The file is being shown, so it should not be evicted soon */
+    public static void onAccessed(String path) {
+        if (TextUtils.isEmpty(path)) {
+            return;
+        }
+        String filename = toFilename(path);
+        if (TextUtils.isEmpty(filename)) {
+            return;
+        }
+        accessTimes.put(filename, System.currentTimeMillis());
+        if (accessTimes.size() >= ACCESS_TIMES_TO_SAVE_MIN && savingAccessTimes.compareAndSet(false, true)) {
+            boolean launched = AsyncTaskLauncher.execute(TAG, false,
+                    new MyAsyncTask<Void, Void, Void>(TAG + "Save", MyAsyncTask.PoolEnum.DEFAULT) {
+                        @Override
+                        protected Void doInBackground2(Void... params) {
+                            try {
+                                saveAccessTimes();
+                            } finally {
+                                savingAccessTimes.set(false);
+                            }
+                            return null;
+                        }
+                    }
+            );
+            if (!launched) {
+                savingAccessTimes.set(false);
+            }
+        }
+    }
+
+    /** Save collected access times to the database in one transaction */
+    static void saveAccessTimes() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null || accessTimes.isEmpty()) {
+            return;
+        }
+        Map<String, Long> toSave = new HashMap<>(accessTimes);
+        SQLiteStatement statement = null;
+        db.beginTransactionNonExclusive();
+        try {
+            statement = db.compileStatement("UPDATE " + DownloadTable.TABLE_NAME
+                    + " SET " + DownloadTable.ACCESSED_DATE + "=?"
+                    + " WHERE " + DownloadTable.FILE_NAME + "=?");
+            for (Map.Entry<String, Long> entry : toSave.entrySet()) {
+                statement.bindLong(1, entry.getValue());
+                statement.bindString(2, entry.getKey());
+                statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            MyLog.d(TAG, "Failed to save access times", e);
+            return;
+        } finally {
+            DbUtils.closeSilently(statement);
+            db.endTransaction();
+        }
+        for (Map.Entry<String, Long> entry : toSave.entrySet()) {
+            accessTimes.remove(entry.getKey(), entry.getValue());
+        }
+        MyLog.v(TAG, "Saved access times of " + toSave.size() + " files");
+    }
+
+    /** @return {@link Metadata#UNKNOWN} for a file, not indexed yet, if called in the UI thread */
+    @NonNull
+    static Metadata getMetadata(String filename, File file) {
+        loadAsync();
+        Metadata metadata = files.get(filename);
+        if (metadata == null) {
+            if (MyAsyncTask.isUiThread()) {
+                checkAsync(filename, file);
+                return Metadata.UNKNOWN;
+            }
+            metadata = check(filename, file);
+        }
+        return metadata;
+    }
+
+    @NonNull
+    private static Metadata check(String filename, File file) {
+        Metadata metadata = Metadata.of(file);
+        synchronized (files) {
+            Metadata metadataStored = files.get(filename);
+            if (metadataStored == null) {
+                files.put(filename, metadata);
+            } else {
+                metadata = metadataStored;
+            }
+        }
+        return metadata;
+    }
+
+    private static void checkAsync(String filename, File file) {
+        if (file == null) {
+            return;
+        }
+        filesToCheck.put(filename, file);
+        if (checkingFiles.compareAndSet(false, true)) {
+            boolean launched = AsyncTaskLauncher.execute(TAG, false,
+                    new MyAsyncTask<Void, Void, Void>(TAG + "Check", MyAsyncTask.PoolEnum.QUICK_UI) {
+                        @Override
+                        protected Void doInBackground2(Void... params) {
+                            try {
+                                checkFiles();
+                            } finally {
+                                checkingFiles.set(false);
+                            }
+                            return null;
+                        }
+                    }
+            );
+            if (!launched) {
+                checkingFiles.set(false);
+            }
+        }
+    }
+
+    /** Check on disk the files, requested in the UI thread */
+    static void checkFiles() {
+        for (Map.Entry<String, File> entry : filesToCheck.entrySet()) {
+            check(entry.getKey(), entry.getValue());
+            filesToCheck.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** The file was created or changed */
+    public static void onStored(File file) {
+        if (file != null) {
+            synchronized (files) {
+                files.put(file.getName(), Metadata.of(file));
+            }
+        }
+    }
+
+    static void onDeleted(String filename) {
+        if (!TextUtils.isEmpty(filename)) {
+            synchronized (files) {
+                files.put(filename, Metadata.ABSENT);
+            }
+        }
+    }
+
+    /** Files or the downloads directory were changed outside of the application */
+    public static void forget() {
+        synchronized (files) {
+            dir = null;
+            files.clear();
+            filesToCheck.clear();
+            loadStarted.set(false);
+        }
+    }
+
+    private static void loadAsync() {
+        if (loadStarted.compareAndSet(false, true)) {
+            AsyncTaskLauncher.execute(TAG, false,
+                    new MyAsyncTask<Void, Void, Void>(TAG, MyAsyncTask.PoolEnum.DEFAULT) {
+                        @Override
+                        protected Void doInBackground2(Void... params) {
+                            load();
+                            return null;
+                        }
+                    }
+            );
+        }
+    }
+
+    private static void load() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        File dir1 = getDir();
+        if (db == null || dir1 == null) {
+            loadStarted.set(false);
+            return;
+        }
+        String sql = "SELECT " + DownloadTable.FILE_NAME + ", " + DownloadTable.DOWNLOAD_STATUS
+                + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.FILE_NAME + " IS NOT NULL";
+        long count = 0;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                String filename = cursor.getString(0);
+                if (TextUtils.isEmpty(filename) || files.containsKey(filename)) {
+                    continue;
+                }
+                DownloadStatus status = DownloadStatus.load(cursor.getLong(1));
+                Metadata metadata = status == DownloadStatus.LOADED ? Metadata.of(new File(dir1, filename))
+                        : new Metadata(status, 0, 0);
+                synchronized (files) {
+                    if (!files.containsKey(filename)) {
+                        files.put(filename, metadata);
+                        count++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            MyLog.d(TAG, "Failed to load", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        MyLog.v(TAG, "Loaded " + count + " files");
+    }
+
+    public static String getInfo() {
+        return "Download files indexed: " + files.size() + ", access times to save: " + accessTimes.size();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.database.CounterTable;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Numbers of new messages in {@link CounterTable}: they are incremented, when a new message is stored,
+ * and are read with one query of the small table
+ */
+public class MessageCounters {
+    private static final String TAG = MessageCounters.class.getSimpleName();
+
+    private static final String SQL_INSERT = "INSERT OR IGNORE INTO " + CounterTable.TABLE_NAME
+            + " (" + CounterTable.TIMELINE_ID + ", " + CounterTable.ACCOUNT_ID + ") VALUES (?, ?)";
+    private static final String SQL_INCREMENT = "UPDATE " + CounterTable.TABLE_NAME + " SET "
+            + CounterTable.NEW_COUNT + "=" + CounterTable.NEW_COUNT + "+1, "
+            + CounterTable.MENTIONS_COUNT + "=" + CounterTable.MENTIONS_COUNT + "+?, "
+            + CounterTable.DIRECT_COUNT + "=" + CounterTable.DIRECT_COUNT + "+?, "
+            + CounterTable.UPDATED_DATE + "=?"
+            + " WHERE " + CounterTable.TIMELINE_ID + "=? AND " + CounterTable.ACCOUNT_ID + "=?";
+
+    public static class Counts {
+        public static final Counts EMPTY = new Counts(0, 0, 0);
+
+        public final long newCount;
+        public final long mentionsCount;
+        public final long directCount;
+
+        public Counts(long newCount, long mentionsCount, long directCount) {
+            this.newCount = newCount;
+            this.mentionsCount = mentionsCount;
+            this.directCount = directCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Counts{new:" + newCount + ", mentions:" + mentionsCount + ", direct:" + directCount + "}";
+        }
+    }
+
+    private MessageCounters() {
+        // Empty
+    }
+
+    /** A new message was stored, while syncing the timeline for the account */
+    public static void onMessageAdded(long timelineId, long accountId, boolean mentioned, boolean directed) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, "onMessageAdded; Database is null");
+            return;
+        }
+        try {
+            StatementCache.executeUpdateDelete(db, SQL_INSERT, timelineId, accountId);
+            StatementCache.executeUpdateDelete(db, SQL_INCREMENT, mentioned ? 1 : 0, directed ? 1 : 0,
+                    System.currentTimeMillis(), timelineId, accountId);
+        } catch (Exception e) {
+            MyLog.e(TAG, "onMessageAdded; timelineId=" + timelineId + ", accountId=" + accountId, e);
+        }
+    }
+
+    /** @param accountId 0 - for all accounts */
+    public static Counts getCounts(long accountId) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, "getCounts; Database is null");
+            return Counts.EMPTY;
+        }
+        String sql = "SELECT SUM(" + CounterTable.NEW_COUNT + "), SUM(" + CounterTable.MENTIONS_COUNT + "),"
+                + " SUM(" + CounterTable.DIRECT_COUNT + ") FROM " + CounterTable.TABLE_NAME
+                + (accountId == 0 ? "" : " WHERE " + CounterTable.ACCOUNT_ID + "=" + accountId);
+        Cursor cursor = null;
+        try {
+            cursor = SlowQueryLog.rawQuery(db, sql, null);
+            if (cursor.moveToFirst()) {
+                return new Counts(cursor.getLong(0), cursor.getLong(1), cursor.getLong(2));
+            }
+        } catch (Exception e) {
+            MyLog.e(TAG, "getCounts; SQL:" + sql, e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return Counts.EMPTY;
+    }
+}
@@ -17,7 +17,8 @@
 package org.andstatus.app.data;
 
 import android.database.Cursor;
-import android.text.TextUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import org.andstatus.app.backup.ProgressLogger;
 import org.andstatus.app.context.MyContext;
@@ -25,60 +26,40 @@ import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyLog;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
 /**
+ * Fixes {@link MsgTable#IN_REPLY_TO_MSG_ID} pointing to absent messages and makes
+ * {@link MsgTable#CONVERSATION_ID} the same for all messages of a conversation, i.e. for messages,
+ * linked by replies or having the same {@link MsgTable#CONVERSATION_OID} in an origin.
+ * <p>
+ * Messages are held in primitive arrays (several longs per message instead of an object),
+ * conversations are found with union-find, and changes are saved in short transactions.
+ * Saved chunks are not repeated, if the check is interrupted: the next check finds only the rest.
+ * <p>
+ * Replies may link any messages, so conversations are not known before all links are read, and
+ * messages are not processed in chunks by conversation. Instead only messages, which may be
+ * in a conversation, are loaded: replies, messages replied to and messages with a conversation oid.
+ * Other messages never change. So memory is bounded by 37 bytes per loaded message
+ * (about 4 MB for 100 000 messages in conversations), not by the size of the table
  * @author yvolk@yurivolkov.com
  */
 public class MyDataCheckerConversations {
     private static final int PROGRESS_REPORT_PERIOD_SECONDS = 20;
+    private static final int ROWS_IN_CHUNK = 5000;
+    private static final int ROWS_IN_TRANSACTION = 500;
     private final MyContext myContext;
     private final ProgressLogger logger;
 
-    Map<Long, MsgItem> items = new TreeMap<>();
-    Map<Long, List<MsgItem>> replies = new TreeMap<>();
-
-    private class MsgItem {
-        long id = 0;
-        long originId = 0;
-        long inReplyToId_initial = 0;
-        long inReplyToId = 0;
-        long conversationId_initial = 0;
-        long conversationId = 0;
-        String conversationOid = "";
-
-        public boolean fixConversationId(long conversationId) {
-            final boolean different = this.conversationId != conversationId;
-            if (different) {
-                this.conversationId = conversationId;
-            }
-            return different;
-        }
-
-        public boolean fixInReplyToId(int inReplyToId) {
-            final boolean different = this.inReplyToId != inReplyToId;
-            if (different) {
-                this.inReplyToId = inReplyToId;
-            }
-            return different;
-        }
-
-        public boolean isChanged() {
-            return isConversationIdChanged() || isInReplyToIdChanged();
-        }
-
-        public boolean isConversationIdChanged() {
-            return conversationId != conversationId_initial;
-        }
-
-        public boolean isInReplyToIdChanged() {
-            return inReplyToId != inReplyToId_initial;
-        }
-    }
+    /** Messages, ordered by id. Other arrays have the same indexes */
+    private long[] ids = new long[0];
+    private long[] inReplyToIds = new long[0];
+    private long[] conversationIds = new long[0];
+    /** Union-find of conversations: index of a parent. The root of a conversation is its oldest message */
+    private int[] roots = new int[0];
+    /** The message is a reply or has a conversation oid, the root of a conversation also */
+    private boolean[] inConversation = new boolean[0];
+    private int size = 0;
 
     public MyDataCheckerConversations(MyContext myContext, ProgressLogger logger) {
         this.myContext = myContext;
@@ -95,160 +76,253 @@ public class MyDataCheckerConversations {
 
     public int fixInternal(boolean countOnly) {
         final String method = "checkConversations";
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(this, method + "; Database is null");
+            return 0;
+        }
         logger.logProgress(method + " started");
-        loadMessages();
-        fixConversationsUsingReplies();
-        fixConversationsUsingConversationOid();
-        int changedCount = saveChanges(countOnly);
+        int changedCount = 0;
+        try {
+            loadMessages(db);
+            joinReplies();
+            joinByConversationOid(db);
+            changedCount = saveChanges(db, countOnly);
+        } catch (Exception e) {
+            String logMsg = method + " error: " + e.getMessage();
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+        } finally {
+            release();
+        }
         logger.logProgress(method + " ended, " + (changedCount > 0 ?  "changed " + changedCount + " messages" : " no changes were required"));
         DbUtils.waitMs(method, changedCount == 0 ? 1000 : 3000);
         return changedCount;
     }
 
-    private void loadMessages() {
-        items.clear();
-        replies.clear();
-        String sql = "SELECT " + MsgTable._ID
-                + ", " + MsgTable.ORIGIN_ID
-                + ", " + MsgTable.IN_REPLY_TO_MSG_ID
-                + ", " + MsgTable.CONVERSATION_ID
-                + ", " + MsgTable.CONVERSATION_OID
-                + " FROM " + MsgTable.TABLE_NAME
-                ;
-        Cursor c = null;
-        long rowsCount = 0;
-        try {
-            c = myContext.getDatabase().rawQuery(sql, null);
-            while (c.moveToNext()) {
-                rowsCount++;
-                MsgItem item = new MsgItem();
-                item.id = c.getLong(0);
-                item.originId = c.getLong(1);
-                item.inReplyToId = c.getLong(2);
-                item.inReplyToId_initial = item.inReplyToId;
-                item.conversationId = c.getLong(3);
-                item.conversationId_initial = item.conversationId;
-                item.conversationOid = c.getString(4);
-                items.put(item.id, item);
-                if (item.inReplyToId != 0) {
-                    List<MsgItem> replies1 = replies.get(item.inReplyToId);
-                    if (replies1 == null) {
-                        replies1 = new ArrayList<>();
-                        replies.put(item.inReplyToId, replies1);
-                    }
-                    replies1.add(item);
+    /** Messages, added during the check, are left for the next check */
+    private void loadMessages(SQLiteDatabase db) {
+        long maxId = MyQuery.sqlToLong(db, "", "SELECT MAX(" + MsgTable._ID + ") FROM " + MsgTable.TABLE_NAME);
+        String mayBeInConversation = "(" + MsgTable.IN_REPLY_TO_MSG_ID + " IS NOT NULL"
+                + " OR (" + MsgTable.CONVERSATION_OID + " IS NOT NULL AND " + MsgTable.CONVERSATION_OID + "<>'')"
+                + " OR " + MsgTable._ID + " IN (SELECT " + MsgTable.IN_REPLY_TO_MSG_ID
+                + " FROM " + MsgTable.TABLE_NAME + " WHERE " + MsgTable.IN_REPLY_TO_MSG_ID + " IS NOT NULL))";
+        allocate((int) MyQuery.sqlToLong(db, "", "SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable._ID + "<=" + maxId + " AND " + mayBeInConversation));
+        long fromId = 0;
+        boolean more = true;
+        while (more && size < ids.length) {
+            String sql = "SELECT " + MsgTable._ID
+                    + ", " + MsgTable.IN_REPLY_TO_MSG_ID
+                    + ", " + MsgTable.CONVERSATION_ID
+                    + " FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable._ID + ">" + fromId + " AND " + MsgTable._ID + "<=" + maxId
+                    + " AND " + mayBeInConversation
+                    + " ORDER BY " + MsgTable._ID
+                    + " LIMIT " + ROWS_IN_CHUNK;
+            Cursor c = null;
+            try {
+                c = db.rawQuery(sql, null);
+                more = c.getCount() == ROWS_IN_CHUNK;
+                while (c.moveToNext() && size < ids.length) {
+                    ids[size] = c.getLong(0);
+                    inReplyToIds[size] = c.getLong(1);
+                    conversationIds[size] = c.getLong(2);
+                    roots[size] = size;
+                    fromId = ids[size];
+                    size++;
                 }
+            } finally {
+                DbUtils.closeSilently(c);
+            }
+            if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                logger.logProgress("Loaded " + size + " messages of " + ids.length);
             }
-        } finally {
-            DbUtils.closeSilently(c);
         }
-        logger.logProgress(Long.toString(rowsCount) + " messages loaded");
+        logger.logProgress(Long.toString(size) + " messages loaded");
     }
 
-    private void fixConversationsUsingReplies() {
-        int counter = 0;
-        for (MsgItem item : items.values()) {
-            if (item.inReplyToId != 0) {
-                MsgItem parent = items.get(item.inReplyToId);
-                if (parent == null) {
-                    item.fixInReplyToId(0);
-                } else {
-                    if (parent.conversationId == 0) {
-                        parent.fixConversationId(item.conversationId == 0 ? parent.id : item.conversationId);
-                    }
-                    if (item.fixConversationId(parent.conversationId)) {
-                        changeConversationOfReplies(item, 200);
-                    }
-                }
+    private void allocate(int count) {
+        ids = new long[count];
+        inReplyToIds = new long[count];
+        conversationIds = new long[count];
+        roots = new int[count];
+        inConversation = new boolean[count];
+        size = 0;
+    }
+
+    private void release() {
+        allocate(0);
+    }
+
+    private int indexOf(long msgId) {
+        return msgId == 0 ? -1 : Arrays.binarySearch(ids, 0, size, msgId);
+    }
+
+    private int findRoot(int index) {
+        int root = index;
+        while (roots[root] != root) {
+            roots[root] = roots[roots[root]];
+            root = roots[root];
+        }
+        return root;
+    }
+
+    private void join(int index1, int index2) {
+        inConversation[index1] = true;
+        inConversation[index2] = true;
+        int root1 = findRoot(index1);
+        int root2 = findRoot(index2);
+        if (root1 < root2) {
+            roots[root2] = root1;
+        } else if (root2 < root1) {
+            roots[root1] = root2;
+        }
+    }
+
+    private void joinReplies() {
+        for (int index = 0; index < size; index++) {
+            int parent = indexOf(inReplyToIds[index]);
+            if (parent >= 0) {
+                join(index, parent);
             }
-            counter++;
             if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
-                logger.logProgress("Checked replies for " + counter + " messages of " + items.size());
+                logger.logProgress("Checked replies for " + index + " messages of " + size);
             }
         }
     }
 
-    private void fixConversationsUsingConversationOid() {
+    /** Only the first message of a group with the same conversation oid is held in memory */
+    private void joinByConversationOid(SQLiteDatabase db) {
+        long maxId = size == 0 ? 0 : ids[size - 1];
+        String sql = "SELECT " + MsgTable._ID
+                + ", " + MsgTable.ORIGIN_ID
+                + ", " + MsgTable.CONVERSATION_OID
+                + " FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable._ID + "<=" + maxId
+                + " AND " + MsgTable.CONVERSATION_OID + " IS NOT NULL"
+                + " AND " + MsgTable.CONVERSATION_OID + "<>''"
+                + " ORDER BY " + MsgTable.ORIGIN_ID + ", " + MsgTable.CONVERSATION_OID;
+        long originIdPrev = 0;
+        String conversationOidPrev = "";
+        int first = -1;
         int counter = 0;
-        Map<Long, Map<String, MsgItem>> origins = new ConcurrentHashMap<>();
-        for (MsgItem item : items.values()) {
-            if (!TextUtils.isEmpty(item.conversationOid)) {
-                Map<String, MsgItem> firstConversationMembers = origins.get(item.originId);
-                if (firstConversationMembers == null) {
-                    firstConversationMembers = new ConcurrentHashMap<>();
-                    origins.put(item.originId, firstConversationMembers);
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, null);
+            while (c.moveToNext()) {
+                int index = indexOf(c.getLong(0));
+                if (index < 0) {
+                    continue;
                 }
-                MsgItem parent = firstConversationMembers.get(item.conversationOid);
-                if (parent == null) {
-                    item.fixConversationId(item.conversationId == 0 ? item.id : item.conversationId);
-                    firstConversationMembers.put(item.conversationOid, item);
+                long originId = c.getLong(1);
+                String conversationOid = c.getString(2);
+                if (first < 0 || originId != originIdPrev || !conversationOid.equals(conversationOidPrev)) {
+                    first = index;
+                    inConversation[index] = true;
+                    originIdPrev = originId;
+                    conversationOidPrev = conversationOid;
                 } else {
-                    if (item.fixConversationId(parent.conversationId)) {
-                        changeConversationOfReplies(item, 200);
-                    }
+                    join(first, index);
+                }
+                counter++;
+                if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                    logger.logProgress("Checked conversation oids of " + counter + " messages");
                 }
             }
-            counter++;
-            if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
-                logger.logProgress("Checked conversations for " + counter + " messages of " + items.size());
-            }
+        } finally {
+            DbUtils.closeSilently(c);
         }
     }
 
-    private void changeConversationOfReplies(MsgItem parent, int level) {
-        List<MsgItem> replies1 = replies.get(parent.id);
-        if (replies1 == null) {
-            return;
-        }
-        for (MsgItem item : replies1) {
-            if (item.fixConversationId(parent.conversationId)) {
-                if (level > 0) {
-                    changeConversationOfReplies(item, level - 1);
-                } else {
-                    logger.logProgress("Too long conversation, couldn't fix msgId=" + item.id);
+    /**
+     * A conversation gets the first not empty conversation id of its messages (ordered by id)
+     * or the id of its oldest message
+     */
+    private long[] getConversationIdsOfRoots() {
+        long[] rootConversationIds = new long[size];
+        for (int index = 0; index < size; index++) {
+            if (inConversation[index]) {
+                int root = findRoot(index);
+                inConversation[root] = true;
+                if (rootConversationIds[root] == 0) {
+                    rootConversationIds[root] = conversationIds[index];
                 }
             }
         }
+        for (int index = 0; index < size; index++) {
+            if (inConversation[index] && roots[index] == index && rootConversationIds[index] == 0) {
+                rootConversationIds[index] = ids[index];
+            }
+        }
+        return rootConversationIds;
     }
 
-    private int saveChanges(boolean countOnly) {
+    private int saveChanges(SQLiteDatabase db, boolean countOnly) {
+        long[] rootConversationIds = getConversationIdsOfRoots();
         int changedCount = 0;
-        for (MsgItem item : items.values()) {
-            if (item.isChanged()) {
-                String sql = "";
-                try {
-                    if (changedCount < 5) {
-                        MyLog.v(this, "msgId=" + item.id + "; "
-                            + (item.isInReplyToIdChanged() ? "inReplyToId changed from "
-                                + item.inReplyToId_initial + " to " + item.inReplyToId : "")
-                            + (item.isInReplyToIdChanged() && item.isConversationIdChanged() ? " and " : "")
-                            + (item.isConversationIdChanged() ? "conversationId changed from "
-                                + item.conversationId_initial + " to " + item.conversationId : ""));
-                    }
-                    if (!countOnly) {
-                        sql = "UPDATE " + MsgTable.TABLE_NAME
-                                + " SET "
-                                + (item.isInReplyToIdChanged() ?
-                                    MsgTable.IN_REPLY_TO_MSG_ID + "=" + DbUtils.sqlZeroToNull(item.inReplyToId) : "")
-                                + (item.isInReplyToIdChanged() && item.isConversationIdChanged() ? ", " : "")
-                                + (item.isConversationIdChanged() ?
-                                    MsgTable.CONVERSATION_ID + "=" + DbUtils.sqlZeroToNull(item.conversationId) : "")
-                                + " WHERE " + MsgTable._ID + "=" + item.id;
-                        myContext.getDatabase().execSQL(sql);
-                    }
-                    changedCount++;
-                    if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
-                        logger.logProgress("Saved changes for " + changedCount + " messages");
-                        MyServiceManager.setServiceUnavailable();
+        SQLiteStatement statement = null;
+        boolean inTransaction = false;
+        try {
+            if (!countOnly) {
+                statement = db.compileStatement("UPDATE " + MsgTable.TABLE_NAME
+                        + " SET " + MsgTable.IN_REPLY_TO_MSG_ID + "=?, "
+                        + MsgTable.CONVERSATION_ID + "=?"
+                        + " WHERE " + MsgTable._ID + "=?");
+            }
+            for (int index = 0; index < size; index++) {
+                long inReplyToId = inReplyToIds[index] != 0 && indexOf(inReplyToIds[index]) < 0
+                        ? 0 : inReplyToIds[index];
+                long conversationId = inConversation[index]
+                        ? rootConversationIds[findRoot(index)] : conversationIds[index];
+                if (inReplyToId == inReplyToIds[index] && conversationId == conversationIds[index]) {
+                    continue;
+                }
+                if (changedCount < 5) {
+                    MyLog.v(this, "msgId=" + ids[index] + "; "
+                            + (inReplyToId != inReplyToIds[index] ? "inReplyToId changed from "
+                                + inReplyToIds[index] + " to " + inReplyToId + " " : "")
+                            + (conversationId != conversationIds[index] ? "conversationId changed from "
+                                + conversationIds[index] + " to " + conversationId : ""));
+                }
+                if (!countOnly) {
+                    if (!inTransaction) {
+                        db.beginTransactionNonExclusive();
+                        inTransaction = true;
                     }
-                } catch (Exception e) {
-                    String logMsg = "Error: " + e.getMessage() + ", SQL:" + sql;
-                    logger.logProgress(logMsg);
-                    MyLog.e(this, logMsg, e);
+                    bindZeroToNull(statement, 1, inReplyToId);
+                    bindZeroToNull(statement, 2, conversationId);
+                    statement.bindLong(3, ids[index]);
+                    statement.execute();
+                }
+                changedCount++;
+                if (inTransaction && changedCount % ROWS_IN_TRANSACTION == 0) {
+                    db.setTransactionSuccessful();
+                    db.endTransaction();
+                    inTransaction = false;
                 }
+                if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                    logger.logProgress((countOnly ? "Found" : "Saved") + " changes for " + changedCount + " messages");
+                    MyServiceManager.setServiceUnavailable();
+                }
+            }
+            if (inTransaction) {
+                db.setTransactionSuccessful();
             }
+        } finally {
+            if (inTransaction) {
+                db.endTransaction();
+            }
+            DbUtils.closeSilently(statement);
         }
         return changedCount;
     }
 
+    private static void bindZeroToNull(SQLiteStatement statement, int index, long value) {
+        if (value == 0) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
+    }
 }
@@ -34,6 +34,7 @@ import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.database.OriginTable;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.msg.KeywordsFilter;
+import org.andstatus.app.service.AvatarRefreshPlanner;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
@@ -81,6 +82,7 @@ public class MyProvider extends ContentProvider {
             MyLog.v(this, "delete; Database is null");
             return 0;
         }
+        long startedAt = SlowQueryLog.start();
         int count;
         ParsedUri uriParser = ParsedUri.fromUri(uri);
         switch (uriParser.matched()) {
@@ -104,13 +106,14 @@ public class MyProvider extends ContentProvider {
             default:
                 throw new IllegalArgumentException(uriParser.toString());
         }
+        SlowQueryLog.end(startedAt, "delete " + uri + "; selection=" + selection, count);
         return count;
     }
 
     private int deleteMessages(SQLiteDatabase db, String selection, String[] selectionArgs) {
         int count = 0;
         String sqlDesc = "";
-        db.beginTransaction();
+        db.beginTransactionNonExclusive();
         try {
             // Delete all related records from MyDatabase.MsgOfUser for these messages
             String selectionG = " EXISTS ("
@@ -156,8 +159,9 @@ public class MyProvider extends ContentProvider {
         FriendshipValues friendshipValues = null;
         long accountUserId = 0;
         
-        long rowId;
+        long rowId = -1;
         Uri newUri = null;
+        long startedAt = SlowQueryLog.start();
         try {
             Long now = System.currentTimeMillis();
             SQLiteDatabase db = MyContextHolder.get().getDatabase();
@@ -246,12 +250,14 @@ public class MyProvider extends ContentProvider {
         } catch (Exception e) {
           MyLog.e(this, "Insert " + uri, e);
         }
+        SlowQueryLog.end(startedAt, "insert " + uri, rowId == -1 ? 0 : 1);
         return newUri;
     }
 
+    /** Avatars are downloaded in batches, after a sync, see {@link AvatarRefreshPlanner} */
     private void optionallyLoadAvatar(long userId, ContentValues values) {
         if (MyPreferences.getShowAvatars() && values.containsKey(UserTable.AVATAR_URL)) {
-            AvatarData.getForUser(userId).requestDownload();
+            AvatarRefreshPlanner.onUserChanged(userId, values.getAsString(UserTable.AVATAR_URL));
         }
     }
     
@@ -265,142 +271,165 @@ public class MyProvider extends ContentProvider {
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selectionIn, String[] selectionArgsIn,
             String sortOrder) {
-        SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-        boolean built = false;
-        String selection = selectionIn;
-        String[] selectionArgs = selectionArgsIn; 
-        String sql = "";
-
-        ParsedUri uriParser = ParsedUri.fromUri(uri);
-        switch (uriParser.matched()) {
-            case TIMELINE:
-                qb.setDistinct(true);
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
-                qb.setProjectionMap(ProjectionMap.MSG);
-                break;
-
-            case TIMELINE_ITEM:
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
-                qb.setProjectionMap(ProjectionMap.MSG);
-                qb.appendWhere(ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + "=" + uriParser.getMessageId());
-                break;
-
-            case TIMELINE_SEARCH:
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
-                qb.setProjectionMap(ProjectionMap.MSG);
-                String rawQuery = uriParser.getSearchQuery();
-                if (!TextUtils.isEmpty(rawQuery)) {
-                    if (!TextUtils.isEmpty(selection)) {
-                        selection = " AND (" + selection + ")";
-                    } else {
-                        selection = "";
-                    }
-                    KeywordsFilter searchQuery  = new KeywordsFilter(rawQuery);
-                    // TODO: Search in MyDatabase.User.USERNAME also
-                    selection = "(" + UserTable.AUTHOR_NAME + " LIKE ?  OR "
-                            + searchQuery.getSqlSelection(MsgTable.BODY_TO_SEARCH)
-                            + ")" + selection;
-
-                    selectionArgs = searchQuery.prependSqlSelectionArgs(selectionArgs);
-                    selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
+        QuerySql query = QuerySql.build(uri, projection, selectionIn, selectionArgsIn, sortOrder);
+        Cursor c = null;
+        if (MyContextHolder.get().isReady()) {
+            // Get the database and run the query
+            SQLiteDatabase db = MyContextHolder.get().getDatabase();
+            boolean logQuery = MyLog.isVerboseEnabled();
+            try {
+                // Here we substitute ?-s in selection with values from selectionArgs
+                c = SlowQueryLog.rawQuery(db, query.sql, query.selectionArgs);
+                if (c == null) {
+                    MyLog.e(this, "Null cursor returned");
+                    logQuery = true;
                 }
-                break;
+            } catch (Exception e) {
+                logQuery = true;
+                MyLog.e(this, "Database query failed", e);
+            }
 
-            case MSG_COUNT:
-                sql = "SELECT count(*) FROM " + MsgTable.TABLE_NAME + " AS " + ProjectionMap.MSG_TABLE_ALIAS;
-                if (!TextUtils.isEmpty(selection)) {
-                    sql += " WHERE " + selection;
+            if (logQuery) {
+                String msg = "query, SQL=\"" + query.sql + "\"";
+                if (query.selectionArgs != null && query.selectionArgs.length > 0) {
+                    msg += "; selectionArgs=" + Arrays.toString(query.selectionArgs);
                 }
-                break;
+                MyLog.v(TAG, msg);
+                if (query.built) {
+                    msg = "uri=" + uri + "; projection=" + Arrays.toString(projection)
+                    + "; selection=" + query.selection + "; sortOrder=" + sortOrder
+                    + "; qb.getTables=" + query.tables + "; orderBy=" + query.orderBy;
+                    MyLog.v(TAG, msg);
+                }
+            }
+        }
 
-            case MSG:
-                qb.setTables(MsgTable.TABLE_NAME + " AS " + ProjectionMap.MSG_TABLE_ALIAS);
-                qb.setProjectionMap(ProjectionMap.MSG);
-                break;
+        if (c != null) {
+            c.setNotificationUri(getContext().getContentResolver(), uri);
+        }
+        return c;
+    }
 
-            case USER:
-            case USERLIST:
-                qb.setTables(UserListSql.tablesForList(uri, projection));
-                qb.setProjectionMap(ProjectionMap.USER);
-                break;
+    /** SQL of a {@link #query}, built separately, so its query plan may be checked also */
+    public static class QuerySql {
+        public String sql = "";
+        public String selection;
+        public String[] selectionArgs;
+        String tables = "";
+        String orderBy = "";
+        boolean built = false;
 
-            case USER_ITEM:
-                qb.setTables(UserTable.TABLE_NAME);
-                qb.setProjectionMap(ProjectionMap.USER);
-                qb.appendWhere(BaseColumns._ID + "=" + uriParser.getUserId());
-                break;
+        private QuerySql(String selection, String[] selectionArgs) {
+            this.selection = selection;
+            this.selectionArgs = selectionArgs;
+        }
 
-            default:
-                throw new IllegalArgumentException(uriParser.toString());
+        /** The same parameters, as for {@link MyProvider#query(Uri, String[], String, String[], String)} */
+        public static QuerySql build(@NonNull Uri uri, String[] projection, String selectionIn,
+                                     String[] selectionArgsIn, String sortOrder) {
+            QuerySql query = new QuerySql(selectionIn, selectionArgsIn);
+            query.buildSql(uri, projection, sortOrder);
+            return query;
         }
 
-        // If no sort order is specified use the default
-        String orderBy;
-        if (TextUtils.isEmpty(sortOrder)) {
+        private void buildSql(Uri uri, String[] projection, String sortOrder) {
+            SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
+
+            ParsedUri uriParser = ParsedUri.fromUri(uri);
             switch (uriParser.matched()) {
                 case TIMELINE:
+                    qb.setDistinct(true);
+                    qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
+                    qb.setProjectionMap(ProjectionMap.MSG);
+                    break;
+
                 case TIMELINE_ITEM:
+                    qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
+                    qb.setProjectionMap(ProjectionMap.MSG);
+                    qb.appendWhere(ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + "=" + uriParser.getMessageId());
+                    break;
+
                 case TIMELINE_SEARCH:
-                    orderBy = MsgTable.DESC_SORT_ORDER;
+                    qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
+                    qb.setProjectionMap(ProjectionMap.MSG);
+                    String rawQuery = uriParser.getSearchQuery();
+                    if (!TextUtils.isEmpty(rawQuery)) {
+                        if (!TextUtils.isEmpty(selection)) {
+                            selection = " AND (" + selection + ")";
+                        } else {
+                            selection = "";
+                        }
+                        KeywordsFilter searchQuery  = new KeywordsFilter(rawQuery);
+                        // TODO: Search in MyDatabase.User.USERNAME also
+                        selection = "(" + UserTable.AUTHOR_NAME + " LIKE ?  OR "
+                                + searchQuery.getSqlSelection(MsgTable.BODY_TO_SEARCH)
+                                + ")" + selection;
+
+                        selectionArgs = searchQuery.prependSqlSelectionArgs(selectionArgs);
+                        selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
+                    }
                     break;
 
                 case MSG_COUNT:
-                    orderBy = "";
+                    sql = "SELECT count(*) FROM " + MsgTable.TABLE_NAME + " AS " + ProjectionMap.MSG_TABLE_ALIAS;
+                    if (!TextUtils.isEmpty(selection)) {
+                        sql += " WHERE " + selection;
+                    }
+                    break;
+
+                case MSG:
+                    qb.setTables(MsgTable.TABLE_NAME + " AS " + ProjectionMap.MSG_TABLE_ALIAS);
+                    qb.setProjectionMap(ProjectionMap.MSG);
                     break;
 
                 case USER:
                 case USERLIST:
+                    qb.setTables(UserListSql.tablesForList(uri, projection));
+                    qb.setProjectionMap(ProjectionMap.USER);
+                    break;
+
                 case USER_ITEM:
-                    orderBy = UserTable.DEFAULT_SORT_ORDER;
+                    qb.setTables(UserTable.TABLE_NAME);
+                    qb.setProjectionMap(ProjectionMap.USER);
+                    qb.appendWhere(BaseColumns._ID + "=" + uriParser.getUserId());
                     break;
 
                 default:
                     throw new IllegalArgumentException(uriParser.toString());
             }
-        } else {
-            orderBy = sortOrder;
-        }
 
-        Cursor c = null;
-        if (MyContextHolder.get().isReady()) {
-            // Get the database and run the query
-            SQLiteDatabase db = MyContextHolder.get().getDatabase();
-            boolean logQuery = MyLog.isVerboseEnabled();
-            try {
-                if (sql.length() == 0) {
-                    sql = qb.buildQuery(projection, selection, null, null, orderBy, null);
-                    built = true;
+            // If no sort order is specified use the default
+            if (TextUtils.isEmpty(sortOrder)) {
+                switch (uriParser.matched()) {
+                    case TIMELINE:
+                    case TIMELINE_ITEM:
+                    case TIMELINE_SEARCH:
+                        orderBy = MsgTable.DESC_SORT_ORDER;
+                        break;
+
+                    case MSG_COUNT:
+                        orderBy = "";
+                        break;
+
+                    case USER:
+                    case USERLIST:
+                    case USER_ITEM:
+                        orderBy = UserTable.DEFAULT_SORT_ORDER;
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException(uriParser.toString());
                 }
-                // Here we substitute ?-s in selection with values from selectionArgs
-                c = db.rawQuery(sql, selectionArgs);
-                if (c == null) {
-                    MyLog.e(this, "Null cursor returned");
-                    logQuery = true;
-                }
-            } catch (Exception e) {
-                logQuery = true;
-                MyLog.e(this, "Database query failed", e);
+            } else {
+                orderBy = sortOrder;
             }
 
-            if (logQuery) {
-                String msg = "query, SQL=\"" + sql + "\"";
-                if (selectionArgs != null && selectionArgs.length > 0) {
-                    msg += "; selectionArgs=" + Arrays.toString(selectionArgs);
-                }
-                MyLog.v(TAG, msg);
-                if (built) {
-                    msg = "uri=" + uri + "; projection=" + Arrays.toString(projection)
-                    + "; selection=" + selection + "; sortOrder=" + sortOrder
-                    + "; qb.getTables=" + qb.getTables() + "; orderBy=" + orderBy;
-                    MyLog.v(TAG, msg);
-                }
+            if (sql.length() == 0) {
+                sql = qb.buildQuery(projection, selection, null, null, orderBy, null);
+                built = true;
             }
+            tables = qb.getTables();
         }
-
-        if (c != null) {
-            c.setNotificationUri(getContext().getContentResolver(), uri);
-        }
-        return c;
     }
 
     /**
@@ -413,6 +442,7 @@ public class MyProvider extends ContentProvider {
             MyLog.v(this, "update; Database is null");
             return 0;
         }
+        long startedAt = SlowQueryLog.start();
         int count = 0;
         ParsedUri uriParser = ParsedUri.fromUri(uri);
         long accountUserId;
@@ -456,6 +486,7 @@ public class MyProvider extends ContentProvider {
                 throw new IllegalArgumentException(uriParser.toString());
         }
 
+        SlowQueryLog.end(startedAt, "update " + uri + "; selection=" + selection, count);
         return count;
     }
 }
@@ -85,20 +85,44 @@ public class MyQuery {
         switch (oidEnum) {
             case MSG_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + MsgTable.TABLE_NAME
-                        + " WHERE " + MsgTable.ORIGIN_ID + "=" + originId + " AND " + MsgTable.MSG_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + MsgTable.ORIGIN_ID + "=? AND " + MsgTable.MSG_OID + "=?";
                 break;
 
             case USER_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
-                        + " WHERE " + UserTable.ORIGIN_ID + "=" + originId + " AND " + UserTable.USER_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + UserTable.ORIGIN_ID + "=? AND " + UserTable.USER_OID + "=?";
                 break;
 
             default:
                 throw new IllegalArgumentException(msgLog + "; Unknown oidEnum");
         }
-        return sqlToLong(database, msgLog, sql);
+        return cachedSqlToLong(database, msgLog, sql, originId, unquote(quoteIfNotQuoted(oid)));
+    }
+
+    /**
+     * The same as {@link #sqlToLong(SQLiteDatabase, String, String)} for a SQL of a frequent lookup,
+     * which values are bound to "?" placeholders, see {@link StatementCache}
+     */
+    static long cachedSqlToLong(SQLiteDatabase databaseIn, String msgLog, String sql, Object... args) {
+        SQLiteDatabase db = databaseIn == null ? MyContextHolder.get().getDatabase() : databaseIn;
+        if (db == null) {
+            MyLog.v(TAG, msgLog + "; database is null");
+            return 0;
+        }
+        long value = 0;
+        try {
+            value = StatementCache.simpleQueryForLong(db, sql, args);
+        } catch (SQLiteDoneException e) {
+            MyLog.ignored(TAG, e);
+            value = 0;
+        } catch (Exception e) {
+            MyLog.e(TAG, msgLog + "; sql='" + sql + "'", e);
+            value = 0;
+        }
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(TAG, msgLog + " -> " + value);
+        }
+        return value;
     }
 
     public static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql) {
@@ -115,6 +139,7 @@ public class MyQuery {
         String msgLogSql = msgLog + (msgLog.contains(sql) ? "" : "; sql='" + sql +"'");
         long value = 0;
         SQLiteStatement statement = null;
+        long startedAt = SlowQueryLog.start();
         try {
             statement = db.compileStatement(sql);
             value = statement.simpleQueryForLong();
@@ -131,6 +156,7 @@ public class MyQuery {
         } finally {
             DbUtils.closeSilently(statement);
         }
+        SlowQueryLog.end(startedAt, sql, 1);
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(TAG, msgLog + " -> " + value);
         }
@@ -159,6 +185,11 @@ public class MyQuery {
         return quoted;
     }
 
+    /** The value of a SQL string literal, e.g. to bind it instead of the literal */
+    private static String unquote(String quoted) {
+        return quoted.substring(1, quoted.length() - 1).replace("''", "'");
+    }
+
     /**
      * Lookup Originated system's id from the System's (AndStatus) id
      * 
@@ -192,7 +223,6 @@ public class MyQuery {
     public static String idToOid(SQLiteDatabase db, OidEnum oe, long entityId, long rebloggerUserId) {
         String method = "idToOid";
         String oid = "";
-        SQLiteStatement prog = null;
         String sql = "";
     
         if (entityId > 0) {
@@ -200,13 +230,14 @@ public class MyQuery {
                 switch (oe) {
                     case MSG_OID:
                         sql = "SELECT " + MsgTable.MSG_OID + " FROM "
-                                + MsgTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=" + entityId;
+                                + MsgTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=?";
+                        oid = StatementCache.simpleQueryForString(db, sql, entityId);
                         break;
     
                     case USER_OID:
                         sql = "SELECT " + UserTable.USER_OID + " FROM "
-                                + UserTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "="
-                                + entityId;
+                                + UserTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=?";
+                        oid = StatementCache.simpleQueryForString(db, sql, entityId);
                         break;
     
                     case REBLOG_OID:
@@ -215,15 +246,14 @@ public class MyQuery {
                         }
                         sql = "SELECT " + MsgOfUserTable.REBLOG_OID + " FROM "
                                 + MsgOfUserTable.TABLE_NAME + " WHERE "
-                                + MsgOfUserTable.MSG_ID + "=" + entityId + " AND "
-                                + MsgOfUserTable.USER_ID + "=" + rebloggerUserId;
+                                + MsgOfUserTable.MSG_ID + "=? AND "
+                                + MsgOfUserTable.USER_ID + "=?";
+                        oid = StatementCache.simpleQueryForString(db, sql, entityId, rebloggerUserId);
                         break;
     
                     default:
                         throw new IllegalArgumentException(method + "; Unknown parameter: " + oe);
                 }
-                prog = db.compileStatement(sql);
-                oid = prog.simpleQueryForString();
                 
                 if (TextUtils.isEmpty(oid) && oe == OidEnum.REBLOG_OID) {
                     // This not reblogged message
@@ -234,10 +264,8 @@ public class MyQuery {
                 MyLog.ignored(TAG, e);
                 oid = "";
             } catch (Exception e) {
-                MyLog.e(TAG, method, e);
+                MyLog.e(TAG, method + "; sql='" + sql + "'", e);
                 oid = "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + ": " + oe + " + " + entityId + " -> " + oid);
@@ -250,7 +278,6 @@ public class MyQuery {
         final String method = "msgIdToUsername";
         String userName = "";
         if (messageId != 0) {
-            SQLiteStatement prog = null;
             String sql = "";
             try {
                 if (userIdColumnName.contentEquals(MsgTable.SENDER_ID) ||
@@ -260,7 +287,7 @@ public class MyQuery {
                     sql = "SELECT " + userNameField(userInTimeline) + " FROM " + UserTable.TABLE_NAME
                             + " INNER JOIN " + MsgTable.TABLE_NAME + " ON "
                             + MsgTable.TABLE_NAME + "." + userIdColumnName + "=" + UserTable.TABLE_NAME + "." + BaseColumns._ID
-                            + " WHERE " + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "=" + messageId;
+                            + " WHERE " + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "=?";
                 } else {
                     throw new IllegalArgumentException( method + "; Unknown name \"" + userIdColumnName + "\"");
                 }
@@ -269,16 +296,13 @@ public class MyQuery {
                     MyLog.v(TAG, method + "; Database is null");
                     return "";
                 }
-                prog = db.compileStatement(sql);
-                userName = prog.simpleQueryForString();
+                userName = StatementCache.simpleQueryForString(db, sql, messageId);
             } catch (SQLiteDoneException e) {
                 MyLog.ignored(TAG, e);
                 userName = "";
             } catch (Exception e) {
                 MyLog.e(TAG, method, e);
                 userName = "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + "; " + userIdColumnName + ": " + messageId + " -> " + userName );
@@ -308,8 +332,12 @@ public class MyQuery {
     private static long idToLongColumnValue(String tableName, String columnName, long systemId) {
         if (systemId == 0) {
             return 0;
+        } else if (TextUtils.isEmpty(tableName) || TextUtils.isEmpty(columnName)) {
+            throw new IllegalArgumentException("idToLongColumnValue; tableName or columnName are empty");
         } else {
-            return conditionToLongColumnValue(tableName, columnName, "t._id=" + systemId);
+            return cachedSqlToLong(null,
+                    "idToLongColumnValue " + tableName + "." + columnName + ", id=" + systemId,
+                    "SELECT " + columnName + " FROM " + tableName + " WHERE " + BaseColumns._ID + "=?", systemId);
         }
     }
 
@@ -364,27 +392,22 @@ public class MyQuery {
         if (TextUtils.isEmpty(tableName) || TextUtils.isEmpty(columnName)) {
             throw new IllegalArgumentException(method + " tableName or columnName are empty");
         } else if (systemId != 0) {
-            SQLiteStatement prog = null;
-            String sql = "";
             try {
-                sql = "SELECT " + columnName
+                String sql = "SELECT " + columnName
                         + " FROM " + tableName
-                        + " WHERE _id=" + systemId;
+                        + " WHERE _id=?";
                 SQLiteDatabase db = MyContextHolder.get().getDatabase();
                 if (db == null) {
                     MyLog.v(TAG, method + "; Database is null");
                     return "";
                 }
-                prog = db.compileStatement(sql);
-                columnValue = prog.simpleQueryForString();
+                columnValue = StatementCache.simpleQueryForString(db, sql, systemId);
             } catch (SQLiteDoneException e) {
                 MyLog.ignored(TAG, e);
             } catch (Exception e) {
                 MyLog.e(TAG, method + " table='" + tableName
                         + "', column='" + columnName + "'", e);
                 return "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + " table=" + tableName + ", column=" + columnName + ", id=" + systemId + " -> " + columnValue );
@@ -449,22 +472,17 @@ public class MyQuery {
             return 0;
         }
         long id = 0;
-        SQLiteStatement prog = null;
         String sql = "";
         try {
             sql = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
-                    + " WHERE " + UserTable.ORIGIN_ID + "=" + originId + " AND " + columnName + "='"
-                    + columnValue + "'";
-            prog = db.compileStatement(sql);
-            id = prog.simpleQueryForLong();
+                    + " WHERE " + UserTable.ORIGIN_ID + "=? AND " + columnName + "=?";
+            id = StatementCache.simpleQueryForLong(db, sql, originId, columnValue);
         } catch (SQLiteDoneException e) {
             MyLog.ignored(MyQuery.TAG, e);
             id = 0;
         } catch (Exception e) {
             MyLog.e(MyQuery.TAG, method + ": SQL:'" + sql + "'", e);
             id = 0;
-        } finally {
-            DbUtils.closeSilently(prog);
         }
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(MyQuery.TAG, method + ":" + originId + "+" + columnValue + " -> " + id);
@@ -502,7 +520,7 @@ public class MyQuery {
         }
         Cursor c = null;
         try {
-            c = db.rawQuery(sql, null);
+            c = SlowQueryLog.rawQuery(db, sql, null);
             while (c.moveToNext()) {
                 ids.add(c.getLong(0));
             }
@@ -546,7 +564,7 @@ public class MyQuery {
         }
         Cursor c = null;
         try {
-            c = db.rawQuery(sql, null);
+            c = SlowQueryLog.rawQuery(db, sql, null);
             while (c.moveToNext()) {
                 replies.add(c.getLong(0));
             }
@@ -570,7 +588,7 @@ public class MyQuery {
         }
         Cursor c = null;
         try {
-            c = db.rawQuery(sql, null);
+            c = SlowQueryLog.rawQuery(db, sql, null);
             while (c.moveToNext()) {
                 rebloggers.add(c.getLong(0));
             }
@@ -593,9 +611,10 @@ public class MyQuery {
     }
 
     public static long conversationOidToId(long originId, String conversationOid) {
-        return conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable.CONVERSATION_ID,
-                MsgTable.ORIGIN_ID + "=" + originId
-                + " AND " + MsgTable.CONVERSATION_OID + "=" + quoteIfNotQuoted(conversationOid));
+        return cachedSqlToLong(null, "conversationOidToId",
+                "SELECT " + MsgTable.CONVERSATION_ID + " FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable.ORIGIN_ID + "=? AND " + MsgTable.CONVERSATION_OID + "=?",
+                originId, unquote(quoteIfNotQuoted(conversationOid)));
     }
 
     @NonNull
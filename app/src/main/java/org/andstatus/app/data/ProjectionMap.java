@@ -54,6 +54,9 @@ public class ProjectionMap {
         MSG.put(MsgTable.SENDER_ID, MsgTable.SENDER_ID);
         MSG.put(UserTable.SENDER_NAME, UserTable.SENDER_NAME);
         MSG.put(MsgTable.BODY, MsgTable.BODY);
+        MSG.put(MsgTable.BODY_TO_SEARCH, MsgTable.BODY_TO_SEARCH);
+        MSG.put(MsgTable.BODY_TO_VIEW, MsgTable.BODY_TO_VIEW);
+        MSG.put(MsgTable.BODY_FINGERPRINT, MsgTable.BODY_FINGERPRINT);
         MSG.put(MsgTable.VIA, MsgTable.VIA);
         MSG.put(MsgTable.URL, MsgTable.URL);
         MSG.put(MsgTable.IN_REPLY_TO_MSG_ID, MsgTable.IN_REPLY_TO_MSG_ID);
@@ -16,11 +16,18 @@
 
 package org.andstatus.app.data;
 
+import android.support.annotation.NonNull;
+
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Helper class to construct sql WHERE clause selecting by UserIds
  * @author yvolk@yurivolkov.com
@@ -36,28 +43,42 @@ public class SelectedUserIds {
         }
     }
 
+    public SelectedUserIds(Collection<MyAccount> accounts) {
+        StringBuilder sb = new StringBuilder();
+        for (MyAccount ma : accounts) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            mSize += 1;
+            sb.append(Long.toString(ma.getUserId()));
+        }
+        sqlUserIds = sb.toString();
+    }
+
     public SelectedUserIds(Timeline timeline) {
+        this(accountsOf(timeline));
+        if (timeline.getTimelineType() == TimelineType.USER && timeline.getUserId() != 0) {
+            mSize = 1;
+            sqlUserIds = Long.toString(timeline.getUserId());
+        }
+    }
+
+    @NonNull
+    private static Collection<MyAccount> accountsOf(Timeline timeline) {
         if (timeline.getTimelineType() == TimelineType.USER) {
-            if ( timeline.getUserId() != 0) {
-                mSize = 1;
-                sqlUserIds = Long.toString(timeline.getUserId());
-            }
+            return Collections.emptyList();
         } else if (timeline.isCombined()) {
-            StringBuilder sb = new StringBuilder();
+            List<MyAccount> accounts = new ArrayList<>();
             for (MyAccount ma : MyContextHolder.get().persistentAccounts().list()) {
                 if (!timeline.getOrigin().isValid() || timeline.getOrigin().equals(ma.getOrigin())) {
-                    if (sb.length() > 0) {
-                        sb.append(", ");
-                    }
-                    mSize += 1;
-                    sb.append(Long.toString(ma.getUserId()));
+                    accounts.add(ma);
                 }
             }
-            sqlUserIds = sb.toString();
+            return accounts;
         } else if (timeline.getMyAccount().isValid()) {
-            mSize = 1;
-            sqlUserIds = Long.toString(timeline.getMyAccount().getUserId());
+            return Collections.singletonList(timeline.getMyAccount());
         }
+        return Collections.emptyList();
     }
 
     public int size() {
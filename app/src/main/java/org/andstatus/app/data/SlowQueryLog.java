@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times SQL statements, when {@link MyPreferences#KEY_LOG_SLOW_QUERIES} is on, and keeps the slowest of them:
+ * their "shape" (SQL without values), duration, number of rows and of calls.
+ * Statements, slower than {@link #SLOW_MILLIS}, are logged as they end (to a file log also, if it's on),
+ * {@link #writeReport()} writes the slowest statements into {@link #REPORT_FILENAME} in the logs folder.
+ * When the log is off, a statement costs one check of a volatile flag
+ */
+public class SlowQueryLog {
+    private static final String TAG = SlowQueryLog.class.getSimpleName();
+    static final String REPORT_FILENAME = "slow_queries.txt";
+    static final int SLOWEST_MAX = 20;
+    static final long SLOW_MILLIS = 100;
+    private static final int SHAPE_LENGTH_MAX = 1000;
+    private static final Pattern QUOTED_VALUE = Pattern.compile("'([^']|'')*'");
+    private static final Pattern NUMBER_VALUE = Pattern.compile("(?<![\\w.])-?\\d+(\\.\\d+)?\\b");
+    private static final Pattern LIST_OF_VALUES = Pattern.compile("\\(\\?(\\s*,\\s*\\?)+\\)");
+
+    private static volatile boolean initialized = false;
+    private static volatile boolean enabled = false;
+
+    private static final Object lock = new Object();
+    /** The slowest statements, one per shape */
+    @GuardedBy("lock")
+    private static final List<Statement> slowest = new ArrayList<>();
+    @GuardedBy("lock")
+    private static long statementsCount = 0;
+    @GuardedBy("lock")
+    private static long statementsNanos = 0;
+
+    static class Statement {
+        final String shape;
+        final long nanos;
+        final int rows;
+        final long endedAt;
+        int count = 1;
+
+        Statement(String shape, long nanos, int rows) {
+            this.shape = shape;
+            this.nanos = nanos;
+            this.rows = rows;
+            endedAt = System.currentTimeMillis();
+        }
+
+        long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        @Override
+        public String toString() {
+            return getMillis() + "ms, rows:" + rows + ", calls:" + count
+                    + ", at " + new Date(endedAt).toString() + "; " + shape;
+        }
+    }
+
+    private static final Comparator<Statement> SLOWEST_FIRST = new Comparator<Statement>() {
+        @Override
+        public int compare(Statement lhs, Statement rhs) {
+            return lhs.nanos == rhs.nanos ? 0 : (lhs.nanos > rhs.nanos ? -1 : 1);
+        }
+    };
+
+    private SlowQueryLog() {
+        // Empty
+    }
+
+    public static boolean isEnabled() {
+        if (!initialized) {
+            enabled = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_LOG_SLOW_QUERIES, false);
+            initialized = true;
+        }
+        return enabled;
+    }
+
+    /** @return 0 if the log is off, otherwise a value to pass to {@link #end(long, String, int)} */
+    public static long start() {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /** @param rows Rows, returned or changed by the statement. -1 if unknown */
+    public static void end(long startedAt, String sql, int rows) {
+        if (startedAt == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - startedAt;
+        String shape = toShape(sql);
+        Statement statement = new Statement(shape, nanos, rows);
+        if (statement.getMillis() >= SLOW_MILLIS) {
+            MyLog.i(TAG, "Slow SQL: " + statement);
+        }
+        synchronized (lock) {
+            statementsCount++;
+            statementsNanos += nanos;
+            add(statement);
+        }
+    }
+
+    @GuardedBy("lock")
+    private static void add(Statement statement) {
+        for (int index = 0; index < slowest.size(); index++) {
+            Statement existing = slowest.get(index);
+            if (existing.shape.equals(statement.shape)) {
+                statement.count = existing.count + 1;
+                if (existing.nanos >= statement.nanos) {
+                    existing.count = statement.count;
+                    return;
+                }
+                slowest.remove(index);
+                break;
+            }
+        }
+        if (slowest.size() >= SLOWEST_MAX) {
+            if (slowest.get(slowest.size() - 1).nanos >= statement.nanos) {
+                return;
+            }
+            slowest.remove(slowest.size() - 1);
+        }
+        int index = Collections.binarySearch(slowest, statement, SLOWEST_FIRST);
+        slowest.add(index < 0 ? -index - 1 : index, statement);
+    }
+
+    /**
+     * The same as {@link SQLiteDatabase#rawQuery(String, String[])}.
+     * The query is executed here, when the log is on, so it's timed
+     */
+    public static Cursor rawQuery(SQLiteDatabase db, String sql, String[] selectionArgs) {
+        long startedAt = start();
+        Cursor cursor = db.rawQuery(sql, selectionArgs);
+        if (startedAt != 0) {
+            end(startedAt, sql, cursor == null ? -1 : cursor.getCount());
+        }
+        return cursor;
+    }
+
+    /** Values are replaced with "?", so the same statements with different values have the same shape */
+    static String toShape(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = QUOTED_VALUE.matcher(sql).replaceAll("?");
+        shape = NUMBER_VALUE.matcher(shape).replaceAll("?");
+        shape = LIST_OF_VALUES.matcher(shape).replaceAll("(?,...)");
+        return MyLog.trimmedString(shape, SHAPE_LENGTH_MAX);
+    }
+
+    public static String getReport() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (lock) {
+            builder.append("Slowest SQL statements of " + statementsCount + ", total "
+                    + TimeUnit.NANOSECONDS.toMillis(statementsNanos) + "ms\n");
+            for (Statement statement : slowest) {
+                builder.append(statement.toString() + "\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /** Does nothing, if nothing was timed */
+    public static boolean writeReport() {
+        synchronized (lock) {
+            if (statementsCount == 0) {
+                return false;
+            }
+        }
+        String report = getReport();
+        MyLog.i(TAG, report);
+        return MyLog.writeStringToFile(report, REPORT_FILENAME);
+    }
+
+    /** The preference is reread, statistics are cleared */
+    public static void forget() {
+        initialized = false;
+        synchronized (lock) {
+            slowest.clear();
+            statementsCount = 0;
+            statementsNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+
+import net.jcip.annotations.GuardedBy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled statements of frequent scalar lookups of {@link MyQuery}, keyed by their SQL,
+ * where values are "?" placeholders, so the SQL of each lookup is parsed and planned once
+ * per database instead of once per call.
+ * A statement is used by one thread at a time. The cache is cleared, when the database changes
+ * and when {@link org.andstatus.app.context.MyContext} is released
+ */
+public class StatementCache {
+    private static final int SIZE_MAX = 50;
+
+    private static final Object lock = new Object();
+    @GuardedBy("lock")
+    private static SQLiteDatabase database = null;
+    @GuardedBy("lock")
+    private static final Map<String, SQLiteStatement> statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+            if (size() > SIZE_MAX) {
+                eldest.getValue().close();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private StatementCache() {
+        // Empty
+    }
+
+    /** @throws SQLiteDoneException if nothing was found */
+    static long simpleQueryForLong(@NonNull SQLiteDatabase db, String sql, Object... args) {
+        SQLiteStatement statement = acquire(db, sql);
+        long startedAt = SlowQueryLog.start();
+        try {
+            synchronized (statement) {
+                bind(statement, args);
+                return statement.simpleQueryForLong();
+            }
+        } finally {
+            statement.releaseReference();
+            SlowQueryLog.end(startedAt, sql, 1);
+        }
+    }
+
+    /** @throws SQLiteDoneException if nothing was found */
+    static String simpleQueryForString(@NonNull SQLiteDatabase db, String sql, Object... args) {
+        SQLiteStatement statement = acquire(db, sql);
+        long startedAt = SlowQueryLog.start();
+        try {
+            synchronized (statement) {
+                bind(statement, args);
+                return statement.simpleQueryForString();
+            }
+        } finally {
+            statement.releaseReference();
+            SlowQueryLog.end(startedAt, sql, 1);
+        }
+    }
+
+    /** @return Number of rows, changed by the statement */
+    static int executeUpdateDelete(@NonNull SQLiteDatabase db, String sql, Object... args) {
+        SQLiteStatement statement = acquire(db, sql);
+        long startedAt = SlowQueryLog.start();
+        int count = 0;
+        try {
+            synchronized (statement) {
+                bind(statement, args);
+                count = statement.executeUpdateDelete();
+                return count;
+            }
+        } finally {
+            statement.releaseReference();
+            SlowQueryLog.end(startedAt, sql, count);
+        }
+    }
+
+    /** The statement is not closed, while the caller holds a reference to it, even if it's evicted */
+    private static SQLiteStatement acquire(SQLiteDatabase db, String sql) {
+        synchronized (lock) {
+            if (database != db) {
+                clear();
+                database = db;
+            }
+            SQLiteStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            statement.acquireReference();
+            return statement;
+        }
+    }
+
+    private static void bind(SQLiteStatement statement, Object... args) {
+        statement.clearBindings();
+        for (int index = 1; index <= args.length; index++) {
+            Object arg = args[index - 1];
+            if (arg == null) {
+                statement.bindNull(index);
+            } else if (arg instanceof Long || arg instanceof Integer) {
+                statement.bindLong(index, ((Number) arg).longValue());
+            } else {
+                statement.bindString(index, arg.toString());
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private static void clear() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        database = null;
+    }
+
+    public static void forget() {
+        synchronized (lock) {
+            clear();
+        }
+    }
+}
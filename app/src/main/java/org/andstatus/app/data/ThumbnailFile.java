@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downscaled copy of a downloaded image, which is ready to be shown without scaling.
+ * Thumbnails are keyed by a download id and a target size, least recently used are deleted
+ * when their total size exceeds {@link #CACHE_SIZE_BYTES}
+ */
+public class ThumbnailFile {
+    static final long CACHE_SIZE_BYTES = 32L * 1024 * 1024;
+    private static final String PREFIX = "thumb_";
+    private static final String TEMP_PREFIX = "temp_";
+    private static final int JPEG_QUALITY = 90;
+    private static final long TOUCH_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final File file;
+
+    public ThumbnailFile(long downloadId, int width, int height) {
+        File dir = getDir();
+        if (downloadId == 0 || dir == null) {
+            file = null;
+        } else {
+            file = new File(dir, PREFIX + downloadId + "_" + width + "x" + height);
+        }
+    }
+
+    private static File getDir() {
+        return MyStorage.getDataFilesDir(MyStorage.DIRECTORY_THUMBNAILS);
+    }
+
+    public boolean exists() {
+        return file != null && file.isFile();
+    }
+
+    @NonNull
+    public String getFilePath() {
+        return file == null ? "" : file.getAbsolutePath();
+    }
+
+    /** Mark the thumbnail as recently used */
+    public void touch() {
+        long now = System.currentTimeMillis();
+        if (exists() && now - file.lastModified() > TOUCH_PERIOD_MILLIS && !file.setLastModified(now)) {
+            MyLog.v(this, "Couldn't touch " + file.getName());
+        }
+    }
+
+    /** @return true if saved */
+    public boolean save(@NonNull Bitmap bitmap) {
+        if (file == null) {
+            return false;
+        }
+        File fileTemp = new File(file.getParentFile(), TEMP_PREFIX + file.getName());
+        OutputStream out = null;
+        boolean saved = false;
+        try {
+            out = new FileOutputStream(fileTemp);
+            saved = bitmap.compress(bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG,
+                    JPEG_QUALITY, out);
+        } catch (IOException e) {
+            MyLog.d(this, "Couldn't save " + file.getName(), e);
+        } finally {
+            DbUtils.closeSilently(out, file.getName());
+        }
+        saved = saved && fileTemp.renameTo(file);
+        if (saved) {
+            MyLog.v(this, "Saved " + file.getName() + ", " + file.length() + " bytes");
+            trim(CACHE_SIZE_BYTES);
+        } else if (fileTemp.exists() && !fileTemp.delete()) {
+            MyLog.d(this, "Couldn't delete " + fileTemp.getName());
+        }
+        return saved;
+    }
+
+    /** Delete thumbnails of all sizes of this download */
+    public static void deleteAll(long downloadId) {
+        File dir = getDir();
+        if (downloadId == 0 || dir == null) {
+            return;
+        }
+        String prefix = PREFIX + downloadId + "_";
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.delete()) {
+                MyLog.d(ThumbnailFile.class, "Couldn't delete " + file.getName());
+            }
+        }
+    }
+
+    /** Delete least recently used thumbnails, so their total size doesn't exceed the budget */
+    static synchronized void trim(long maxBytes) {
+        File dir = getDir();
+        File[] files = dir == null ? null : dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long diff = lhs.lastModified() - rhs.lastModified();
+                return diff == 0 ? 0 : (diff < 0 ? -1 : 1);
+            }
+        });
+        int deletedCount = 0;
+        for (File file : files) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+                deletedCount++;
+            }
+        }
+        MyLog.v(ThumbnailFile.class, "Deleted " + deletedCount + " thumbnails, " + totalBytes + " bytes left");
+    }
+
+    @Override
+    public String toString() {
+        return MyLog.objTagToString(this) + " [" + (file == null ? "(empty)" : file.getName()) + "]";
+    }
+}
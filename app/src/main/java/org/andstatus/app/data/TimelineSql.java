@@ -253,9 +253,13 @@ public class TimelineSql {
 
     /** 
      * Table columns to use for the messages content
+     * @param withBodyToSearch if the body will be used to filter messages
      */
-    public static String[] getTimelineProjection() {
+    public static String[] getTimelineProjection(boolean withBodyToSearch) {
         List<String> columnNames = getBaseProjection();
+        if (withBodyToSearch) {
+            columnNames.add(MsgTable.BODY_TO_SEARCH);
+        }
         if (!columnNames.contains(MsgTable.AUTHOR_ID)) {
             columnNames.add(MsgTable.AUTHOR_ID);
         }
@@ -272,6 +276,8 @@ public class TimelineSql {
         columnNames.add(MsgTable.ORIGIN_ID);
         columnNames.add(UserTable.AUTHOR_NAME);
         columnNames.add(MsgTable.BODY);
+        columnNames.add(MsgTable.BODY_TO_VIEW);
+        columnNames.add(MsgTable.BODY_FINGERPRINT);
         columnNames.add(MsgTable.IN_REPLY_TO_MSG_ID);
         columnNames.add(UserTable.IN_REPLY_TO_NAME);
         columnNames.add(UserTable.RECIPIENT_NAME);
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.data.DbUtils;
+
+/**
+ * Numbers of new messages, added by syncs of a timeline for an account.
+ * They are incremented as messages are stored, so widgets and notifications
+ * don't need to count messages or to keep their own counters
+ */
+public final class CounterTable {
+    public static final String TABLE_NAME = "counter";
+
+    private CounterTable() {
+        // Empty
+    }
+
+    public static final String TIMELINE_ID = TimelineTable.TIMELINE_ID;
+    public static final String ACCOUNT_ID = UserTable.ACCOUNT_ID;
+    /** All new messages */
+    public static final String NEW_COUNT = "new_count";
+    /** New messages, which mention the account */
+    public static final String MENTIONS_COUNT = "mentions_count";
+    /** New direct messages */
+    public static final String DIRECT_COUNT = "direct_count";
+    public static final String UPDATED_DATE = "counter_updated_date";
+
+    public static void create(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "CREATE TABLE " + TABLE_NAME + " ("
+                + TIMELINE_ID + " INTEGER NOT NULL,"
+                + ACCOUNT_ID + " INTEGER NOT NULL,"
+                + NEW_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
+                + MENTIONS_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
+                + DIRECT_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
+                + UPDATED_DATE + " INTEGER DEFAULT 0 NOT NULL,"
+                + " CONSTRAINT pk_counter PRIMARY KEY ("
+                + TIMELINE_ID + " ASC, "
+                + ACCOUNT_ID + " ASC)"
+                + ")");
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data migration of a database upgrade, which is too long to be done inside the upgrade transaction.
+ * An upgrading step of {@link DatabaseConverter} changes the schema only and schedules the backfill,
+ * which is run in background, when the database is available to the application already.
+ * Rows are processed in chunks by ranges of their ids, each chunk in a separate transaction.
+ * The last processed id is checkpointed, so a backfill, which was interrupted,
+ * continues from its checkpoint next time. Indexes, which are needed after the backfill, are created at its end.
+ * As we use the same SQL for all database versions, a backfill should be idempotent.
+ */
+public abstract class DatabaseBackfill {
+    private static final String TAG = DatabaseBackfill.class.getSimpleName();
+    private static final String KEY_CHECKPOINT_PREFIX = "backfill_checkpoint_";
+    private static final int ROWS_IN_CHUNK = 500;
+    private static final int PROGRESS_REPORT_PERIOD_SECONDS = 20;
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    final String name;
+    protected SQLiteDatabase db;
+
+    DatabaseBackfill(String name) {
+        this.name = name;
+    }
+
+    /** @return null if the name is unknown, e.g. the backfill was removed in a newer version of the application */
+    static DatabaseBackfill fromName(String name) {
+        switch (name) {
+            case BodyToSearch.NAME:
+                return new BodyToSearch();
+            case BodyToView.NAME:
+                return new BodyToView();
+            case BodyFingerprint.NAME:
+                return new BodyFingerprint();
+            case IndexesOfVersion31.NAME:
+                return new IndexesOfVersion31();
+            case IndexesOfVersion33.NAME:
+                return new IndexesOfVersion33();
+            default:
+                return null;
+        }
+    }
+
+    /** Called during database upgrade. The backfills start from the beginning */
+    static void schedule(Collection<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        List<String> pending = getPending();
+        for (String name : names) {
+            SharedPreferencesUtil.removeKey(KEY_CHECKPOINT_PREFIX + name);
+            if (!pending.contains(name)) {
+                pending.add(name);
+            }
+        }
+        setPending(pending);
+        MyLog.i(TAG, "Scheduled " + names);
+    }
+
+    public static boolean isPending() {
+        return !getPending().isEmpty();
+    }
+
+    @NonNull
+    private static List<String> getPending() {
+        String value = SharedPreferencesUtil.getString(MyPreferences.KEY_BACKFILLS_PENDING, "");
+        List<String> names = new ArrayList<>();
+        if (!TextUtils.isEmpty(value)) {
+            names.addAll(Arrays.asList(value.split(",")));
+        }
+        return names;
+    }
+
+    private static void setPending(List<String> names) {
+        SharedPreferencesUtil.putString(MyPreferences.KEY_BACKFILLS_PENDING,
+                names.isEmpty() ? null : TextUtils.join(",", names));
+    }
+
+    public static void runPendingAsync(final MyContext myContext) {
+        BodyToView.scheduleIfOutdated();
+        if (!isPending()) {
+            return;
+        }
+        AsyncTaskLauncher.execute(TAG, false,
+                new MyAsyncTask<Void, Void, Void>(TAG, MyAsyncTask.PoolEnum.DEFAULT) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        runPending(myContext, ProgressLogger.getEmpty());
+                        return null;
+                    }
+                }
+        );
+    }
+
+    /** Runs pending backfills one by one, till they end or the database becomes unavailable.
+     * The call returns at once, if the backfills are being run already */
+    public static void runPending(MyContext myContext, ProgressLogger logger) {
+        BodyToView.scheduleIfOutdated();
+        if (!isPending() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (String name : getPending()) {
+                DatabaseBackfill backfill = fromName(name);
+                if (backfill == null) {
+                    MyLog.w(TAG, "Unknown backfill skipped: " + name);
+                } else if (!backfill.run(myContext, logger)) {
+                    break;
+                }
+                List<String> pending = getPending();
+                pending.remove(name);
+                setPending(pending);
+                SharedPreferencesUtil.removeKey(KEY_CHECKPOINT_PREFIX + name);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** @return true if the backfill ended */
+    private boolean run(MyContext myContext, ProgressLogger logger) {
+        final String method = "run " + name;
+        long checkpoint = SharedPreferencesUtil.getLong(KEY_CHECKPOINT_PREFIX + name);
+        logger.logProgress(method + (checkpoint == 0 ? " started" : " continued after id=" + checkpoint));
+        long rowsCount = 0;
+        String sql = "";
+        db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, method + "; Database is null");
+            return false;
+        }
+        try {
+            long maxId = TextUtils.isEmpty(getTableName()) ? 0
+                    : MyQuery.sqlToLong(db, method, "SELECT MAX(_id) FROM " + getTableName());
+            while (checkpoint < maxId) {
+                if (!myContext.isReady() || myContext.getDatabase() != db) {
+                    logger.logProgress(method + " interrupted after id=" + checkpoint);
+                    return false;
+                }
+                long toId = Math.min(checkpoint + ROWS_IN_CHUNK, maxId);
+                db.beginTransactionNonExclusive();
+                try {
+                    rowsCount += fillChunk(checkpoint, toId);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                checkpoint = toId;
+                SharedPreferencesUtil.putLong(KEY_CHECKPOINT_PREFIX + name, checkpoint);
+                if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                    logger.logProgress(method + ": " + rowsCount + " rows filled, at id=" + checkpoint
+                            + " of " + maxId);
+                }
+            }
+            for (String sqlAfter : getSqlAfterFill()) {
+                sql = sqlAfter;
+                DbUtils.execSQL(db, sql);
+            }
+            onEnded();
+        } catch (Exception e) {
+            String logMsg = method + " error: " + e.getMessage() + (TextUtils.isEmpty(sql) ? "" : ", SQL:" + sql);
+            logger.logProgress(logMsg);
+            MyLog.e(TAG, logMsg, e);
+            return false;
+        } finally {
+            db = null;
+        }
+        logger.logProgress(method + " ended, " + rowsCount + " rows filled");
+        return true;
+    }
+
+    /** The table, rows of which are processed by ranges of their "_id". Empty if there are no rows to fill */
+    protected abstract String getTableName();
+
+    /**
+     * Fills rows with ids in the range (fromId, toId], inside a transaction
+     * @return Number of rows filled
+     */
+    protected abstract long fillChunk(long fromId, long toId);
+
+    /** Statements, executed after all rows were filled, e.g. creation of indexes. They should be idempotent */
+    protected List<String> getSqlAfterFill() {
+        return new ArrayList<>();
+    }
+
+    /** Called after all rows were filled */
+    protected void onEnded() {
+        // Empty
+    }
+
+    /**
+     * Creates indexes, which are not needed by the upgrade itself, so the application doesn't wait for them.
+     * Queries work without the indexes, only slower
+     */
+    abstract static class CreateIndexes extends DatabaseBackfill {
+
+        CreateIndexes(String name) {
+            super(name);
+        }
+
+        @Override
+        protected String getTableName() {
+            return "";
+        }
+
+        @Override
+        protected long fillChunk(long fromId, long toId) {
+            return 0;
+        }
+    }
+
+    /** Scheduled by {@link DatabaseConverter.Convert30} */
+    static class IndexesOfVersion31 extends CreateIndexes {
+        static final String NAME = "indexes_31";
+
+        IndexesOfVersion31() {
+            super(NAME);
+        }
+
+        @Override
+        protected List<String> getSqlAfterFill() {
+            return Arrays.asList(
+                    "CREATE INDEX IF NOT EXISTS idx_friendship_friend ON followinguser"
+                            + " (following_user_id, user_followed, user_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_msgofuser_msg ON msgofuser (msg_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_download_user ON download (user_id, download_status, file_name)"
+            );
+        }
+    }
+
+    /** Scheduled by {@link DatabaseConverter.Convert32} */
+    static class IndexesOfVersion33 extends CreateIndexes {
+        static final String NAME = "indexes_33";
+
+        IndexesOfVersion33() {
+            super(NAME);
+        }
+
+        @Override
+        protected List<String> getSqlAfterFill() {
+            return Arrays.asList(
+                    "CREATE INDEX IF NOT EXISTS idx_msg_author_sent_date ON msg (author_id, msg_sent_date)",
+                    "CREATE INDEX IF NOT EXISTS idx_msg_sender_sent_date ON msg (sender_id, msg_sent_date)"
+            );
+        }
+    }
+
+    /**
+     * Fills a column of {@link MsgTable}, which is calculated from the body of a message.
+     * Rows of a chunk are read into memory first, so they are not updated under an open cursor
+     */
+    abstract static class FromMessageBody extends DatabaseBackfill {
+
+        FromMessageBody(String name) {
+            super(name);
+        }
+
+        @Override
+        protected String getTableName() {
+            return MsgTable.TABLE_NAME;
+        }
+
+        protected abstract String getColumnName();
+
+        /** @return Condition for rows to fill, empty to fill all rows */
+        protected String getCondition() {
+            return getColumnName() + " IS NULL";
+        }
+
+        /** @param body may be null */
+        protected abstract void bindValue(SQLiteStatement statement, int index, String body);
+
+        @Override
+        protected long fillChunk(long fromId, long toId) {
+            List<Long> ids = new ArrayList<>();
+            List<String> bodies = new ArrayList<>();
+            String condition = getCondition();
+            Cursor c = null;
+            try {
+                c = db.rawQuery("SELECT " + MsgTable._ID + ", " + MsgTable.BODY + " FROM " + MsgTable.TABLE_NAME
+                        + " WHERE " + MsgTable._ID + ">" + fromId + " AND " + MsgTable._ID + "<=" + toId
+                        + (TextUtils.isEmpty(condition) ? "" : " AND (" + condition + ")"), null);
+                while (c.moveToNext()) {
+                    ids.add(c.getLong(0));
+                    bodies.add(c.getString(1));
+                }
+            } finally {
+                DbUtils.closeSilently(c);
+            }
+            SQLiteStatement statement = null;
+            try {
+                statement = db.compileStatement("UPDATE " + MsgTable.TABLE_NAME
+                        + " SET " + getColumnName() + "=? WHERE " + MsgTable._ID + "=?");
+                for (int ind = 0; ind < ids.size(); ind++) {
+                    bindValue(statement, 1, bodies.get(ind));
+                    statement.bindLong(2, ids.get(ind));
+                    statement.execute();
+                }
+            } finally {
+                DbUtils.closeSilently(statement);
+            }
+            return ids.size();
+        }
+    }
+
+    /** Scheduled by {@link DatabaseConverter.Convert25} */
+    static class BodyToSearch extends FromMessageBody {
+        static final String NAME = "body_to_search";
+
+        BodyToSearch() {
+            super(NAME);
+        }
+
+        @Override
+        protected String getColumnName() {
+            return MsgTable.BODY_TO_SEARCH;
+        }
+
+        @Override
+        protected void bindValue(SQLiteStatement statement, int index, String body) {
+            statement.bindString(index, body == null ? "" : MyHtml.getBodyToSearch(body));
+        }
+    }
+
+    /**
+     * Fills {@link MsgTable#BODY_TO_VIEW} for messages, where it wasn't calculated yet,
+     * or for all messages after change of {@link MyHtml#PREPARE_FOR_VIEW_VERSION}.
+     * Scheduled by {@link DatabaseConverter.Convert26} and on change of the version
+     */
+    static class BodyToView extends FromMessageBody {
+        static final String NAME = "body_to_view";
+        private final boolean allRows;
+
+        BodyToView() {
+            super(NAME);
+            allRows = isOutdated();
+        }
+
+        private static boolean isOutdated() {
+            return SharedPreferencesUtil.getLong(MyPreferences.KEY_BODY_TO_VIEW_VERSION)
+                    != MyHtml.PREPARE_FOR_VIEW_VERSION;
+        }
+
+        static void scheduleIfOutdated() {
+            if (isOutdated() && !getPending().contains(NAME)) {
+                schedule(Collections.singletonList(NAME));
+            }
+        }
+
+        @Override
+        protected String getColumnName() {
+            return MsgTable.BODY_TO_VIEW;
+        }
+
+        @Override
+        protected String getCondition() {
+            return allRows ? "" : super.getCondition();
+        }
+
+        @Override
+        protected void bindValue(SQLiteStatement statement, int index, String body) {
+            if (body == null) {
+                statement.bindNull(index);
+            } else {
+                statement.bindString(index, MyHtml.prepareForView(body));
+            }
+        }
+
+        @Override
+        protected void onEnded() {
+            SharedPreferencesUtil.putLong(MyPreferences.KEY_BODY_TO_VIEW_VERSION, MyHtml.PREPARE_FOR_VIEW_VERSION);
+        }
+    }
+
+    /** Scheduled by {@link DatabaseConverter.Convert27} */
+    static class BodyFingerprint extends FromMessageBody {
+        static final String NAME = "body_fingerprint";
+
+        BodyFingerprint() {
+            super(NAME);
+        }
+
+        @Override
+        protected String getColumnName() {
+            return MsgTable.BODY_FINGERPRINT;
+        }
+
+        @Override
+        protected void bindValue(SQLiteStatement statement, int index, String body) {
+            statement.bindLong(index, MyHtml.getBodyFingerprint(body));
+        }
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.andstatus.app.database;
 
-import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Build;
 
@@ -25,17 +24,19 @@ import org.andstatus.app.backup.ProgressLogger;
 import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.data.ApplicationUpgradeException;
 import org.andstatus.app.data.DbUtils;
-import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.util.FileUtils;
-import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 class DatabaseConverter {
     public static final int PARTIAL_INDEX_SUPPORTED = Build.VERSION_CODES.LOLLIPOP;
     long startTime = java.lang.System.currentTimeMillis();
     ProgressLogger progressLogger;
+    /** Data, which will be filled in background, after the upgrade */
+    private final List<String> backfills = new ArrayList<>();
 
     protected boolean execute(DatabaseConverterController.UpgradeParams params) {
         boolean success = false;
@@ -44,6 +45,7 @@ class DatabaseConverter {
         long endTime = 0;
         try {
             convertAll(params.db, params.oldVersion, params.newVersion);
+            DatabaseBackfill.schedule(backfills);
             success = true;
             endTime = java.lang.System.currentTimeMillis();
         } catch (ApplicationUpgradeException e) {
@@ -88,6 +90,8 @@ class DatabaseConverter {
                     MyLog.e(this, "Stuck at version " + prevVersion + "\n"
                             + "Error: " + lastError);
                     oneStep = null;
+                } else {
+                    backfills.addAll(oneStep.backfills);
                 }
             } catch (ClassNotFoundException e) {
                 converterNotFound = true;
@@ -131,6 +135,8 @@ class DatabaseConverter {
         String sql = "";
         protected String lastError = "?";
         protected String stepTitle = "";
+        /** Names of {@link DatabaseBackfill}s, which will fill data after the upgrade */
+        final List<String> backfills = new ArrayList<>();
 
         int execute(SQLiteDatabase db, int oldVersion, ProgressLogger progressLogger) {
             boolean ok = false;
@@ -160,6 +166,10 @@ class DatabaseConverter {
 
         protected abstract void execute2();
 
+        protected void scheduleBackfill(String name) {
+            backfills.add(name);
+        }
+
         public String getLastError() {
             return lastError;
         }
@@ -401,25 +411,101 @@ class DatabaseConverter {
                     (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
                             " WHERE " + "conversation_id" + " IS NOT NULL" : "");
             DbUtils.execSQL(db, sql);
+            scheduleBackfill(DatabaseBackfill.BodyToSearch.NAME);
+        }
+    }
 
-            String sql = "SELECT _id, body FROM msg";
-            Cursor c = null;
-            int count = 0;
-            try {
-                c = db.rawQuery(sql, null);
-                while (c.moveToNext()) {
-                    sql = "UPDATE msg SET body_to_search=" + MyQuery.quoteIfNotQuoted(MyHtml.getBodyToSearch(c.getString(1)))
-                    + " WHERE _id=" + c.getLong(0);
-                    db.execSQL(sql);
-                    count++;
-                    if (progressLogger.loggedMoreSecondsAgoThan(10)) {
-                        progressLogger.logProgress(stepTitle + ": converted " + count + " rows");
-                    }
-                }
-            } finally {
-                DbUtils.closeSilently(c);
-            }
+    static class Convert26 extends OneStep {
+        Convert26() {
+            versionTo = 27;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE msg ADD COLUMN body_to_view TEXT";
+            DbUtils.execSQL(db, sql);
+            scheduleBackfill(DatabaseBackfill.BodyToView.NAME);
+        }
+    }
 
+    static class Convert27 extends OneStep {
+        Convert27() {
+            versionTo = 28;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE msg ADD COLUMN body_fingerprint INTEGER";
+            DbUtils.execSQL(db, sql);
+            scheduleBackfill(DatabaseBackfill.BodyFingerprint.NAME);
+        }
+    }
+
+    static class Convert28 extends OneStep {
+        Convert28() {
+            versionTo = 29;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE download ADD COLUMN content_hash TEXT";
+            DbUtils.execSQL(db, sql);
+            sql = "CREATE INDEX idx_download_url ON download (url)";
+            DbUtils.execSQL(db, sql);
+            sql = "CREATE INDEX idx_download_hash ON download (content_hash)";
+            DbUtils.execSQL(db, sql);
+            // Avatars, which were loaded before, are not shared. They are replaced on the next download
+        }
+    }
+
+    static class Convert29 extends OneStep {
+        Convert29() {
+            versionTo = 30;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE download ADD COLUMN accessed_date INTEGER";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert30 extends OneStep {
+        Convert30() {
+            versionTo = 31;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "DROP INDEX IF EXISTS idx_download_user";
+            DbUtils.execSQL(db, sql);
+            scheduleBackfill(DatabaseBackfill.IndexesOfVersion31.NAME);
+        }
+    }
+
+    static class Convert31 extends OneStep {
+        Convert31() {
+            versionTo = 32;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "CREATE TABLE counter (timeline_id INTEGER NOT NULL,account_id INTEGER NOT NULL,"
+                    + "new_count INTEGER DEFAULT 0 NOT NULL,mentions_count INTEGER DEFAULT 0 NOT NULL,"
+                    + "direct_count INTEGER DEFAULT 0 NOT NULL,counter_updated_date INTEGER DEFAULT 0 NOT NULL,"
+                    + " CONSTRAINT pk_counter PRIMARY KEY (timeline_id ASC, account_id ASC))";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert32 extends OneStep {
+        Convert32() {
+            versionTo = 33;
+        }
+
+        @Override
+        protected void execute2() {
+            scheduleBackfill(DatabaseBackfill.IndexesOfVersion33.NAME);
         }
     }
 
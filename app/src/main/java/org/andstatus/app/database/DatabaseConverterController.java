@@ -168,6 +168,7 @@ public class DatabaseConverterController {
                 MyServiceManager.stopService();
                 new TimelineSaver(MyContextHolder.get()).setAddDefaults(true).executeNotOnUiThread();
                 new MyDataChecker(MyContextHolder.get(), progressLogger).fixData();
+                DatabaseBackfill.runPendingAsync(MyContextHolder.get());
             }
         }
     }
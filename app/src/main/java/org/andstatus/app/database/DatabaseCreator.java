@@ -33,6 +33,13 @@ public class DatabaseCreator {
      * This is used to check (and upgrade if necessary)
      * existing database after application update.
      *
+     * v.33 2026-10-19 app.v.32 indexes by author and by sender with sent date
+     * v.32 2026-10-19 app.v.32 CounterTable of new messages
+     * v.31 2026-10-19 app.v.32 indexes for followers, users of a message and covering index for avatars
+     * v.30 2026-10-19 app.v.32 accessed_date added to DownloadTable for the downloads quota
+     * v.29 2026-10-19 app.v.32 content_hash added to DownloadTable, avatars are stored by content
+     * v.28 2026-10-19 app.v.32 body_fingerprint added to MsgTable
+     * v.27 2026-10-19 app.v.32 body_to_view added to MsgTable
      * v.26 2016-11-27 app.v.31 Conversation ID added to MsgTable, see https://github.com/andstatus/andstatus/issues/361
      * v.25 2016-06-07 app.v.27 TimelineTable and CommandTable added
      * v.24 2016-02-27 app.v.23 several attributes added to User, https://github.com/andstatus/andstatus/issues/320
@@ -56,7 +63,7 @@ public class DatabaseCreator {
      *      All messages are in the same table.
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. )
      */
-    public static final int DATABASE_VERSION = 26;
+    public static final int DATABASE_VERSION = 33;
     public static final long ORIGIN_ID_TWITTER =  1L;
 
     private final SQLiteDatabase db;
@@ -79,6 +86,7 @@ public class DatabaseCreator {
         OriginTable.create(db);
         TimelineTable.create(db);
         CommandTable.create(db);
+        CounterTable.create(db);
         return this;
     }
 
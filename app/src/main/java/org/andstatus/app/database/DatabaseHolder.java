@@ -17,13 +17,22 @@
 package org.andstatus.app.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 import org.andstatus.app.context.MyContextState;
 import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.util.MyLog;
 
+import java.io.File;
+
+/**
+ * The database uses write-ahead logging, so queries outside of transactions (e.g. of timeline loaders)
+ * run on a pool of read-only connections concurrently with a writer, instead of waiting for its commit.
+ * See https://www.sqlite.org/wal.html
+ */
 public final class DatabaseHolder extends SQLiteOpenHelper  {
     private final boolean creationEnabled;
     private boolean wasNotCreated = false;
@@ -33,6 +42,7 @@ public final class DatabaseHolder extends SQLiteOpenHelper  {
     public DatabaseHolder(Context context, boolean creationEnabled) {
         super(context, DATABASE_NAME, null, DatabaseCreator.DATABASE_VERSION);
         this.creationEnabled = creationEnabled;
+        setWriteAheadLoggingEnabled(true);
         if (!creationEnabled && !context.getDatabasePath(DATABASE_NAME).exists()) {
             wasNotCreated = true;
         }
@@ -91,4 +101,41 @@ public final class DatabaseHolder extends SQLiteOpenHelper  {
         onUpgradeTriggered.set(true);
         new DatabaseConverterController().onUpgrade(db, oldVersion, newVersion);
     }
+
+    /**
+     * Copies pages, committed to the write-ahead log, into the database file.
+     * A passive checkpoint doesn't wait for readers and writers, so it's done when the service is idle.
+     * A full checkpoint is needed before the database file is copied, e.g. for a backup
+     */
+    public void checkpoint(boolean full) {
+        final String method = "checkpoint";
+        long startedAt = System.currentTimeMillis();
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            if (db == null || !db.isWriteAheadLoggingEnabled()) {
+                return;
+            }
+            cursor = db.rawQuery("PRAGMA wal_checkpoint(" + (full ? "FULL" : "PASSIVE") + ")", null);
+            if (cursor.moveToFirst() && MyLog.isVerboseEnabled()) {
+                MyLog.v(this, method + (full ? " full" : "") + "; busy:" + cursor.getInt(0)
+                        + ", log frames:" + cursor.getInt(1) + ", checkpointed:" + cursor.getInt(2)
+                        + " in " + (System.currentTimeMillis() - startedAt) + "ms");
+            }
+        } catch (Exception e) {
+            MyLog.d(this, method + " failed", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    /** The write-ahead log of a closed database shouldn't be applied to a restored database file */
+    public static void deleteWriteAheadLog(File databaseFile) {
+        for (String suffix : new String[]{"-wal", "-shm"}) {
+            File file = new File(databaseFile.getPath() + suffix);
+            if (file.exists() && !file.delete()) {
+                MyLog.d(DatabaseHolder.class.getSimpleName(), "Couldn't delete " + file);
+            }
+        }
+    }
 }
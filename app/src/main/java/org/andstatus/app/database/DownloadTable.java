@@ -20,6 +20,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.provider.BaseColumns;
 
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.DownloadType;
 import org.andstatus.app.data.MyContentType;
@@ -55,6 +56,16 @@ public final class DownloadTable implements BaseColumns {
      */
     public static final String DOWNLOAD_STATUS = "download_status";
     public static final String FILE_NAME = "file_name";
+    /**
+     * Hex SHA-1 of the file content. Avatars are stored by content:
+     * all rows with the same hash share one file, see {@link DownloadData}
+     */
+    public static final String CONTENT_HASH = "content_hash";
+    /**
+     * Date and time the file was shown last time (approximately).
+     * Least recently accessed files are deleted, when downloads exceed their quota
+     */
+    public static final String ACCESSED_DATE = "accessed_date";
 
     /*
      * Derived columns (they are not stored in this table but are result of joins)
@@ -78,12 +89,16 @@ public final class DownloadTable implements BaseColumns {
                 + DownloadTable.URI + " TEXT NOT NULL,"
                 + DownloadTable.LOADED_DATE + " INTEGER,"
                 + DownloadTable.DOWNLOAD_STATUS + " INTEGER NOT NULL DEFAULT 0,"
-                + DownloadTable.FILE_NAME + " TEXT"
+                + DownloadTable.FILE_NAME + " TEXT,"
+                + DownloadTable.CONTENT_HASH + " TEXT,"
+                + DownloadTable.ACCESSED_DATE + " INTEGER"
                 + ")");
 
+        // Covering index for avatars of timeline and user list rows
         DbUtils.execSQL(db, "CREATE INDEX idx_download_user ON " + DownloadTable.TABLE_NAME + " ("
                 + DownloadTable.USER_ID + ", "
-                + DownloadTable.DOWNLOAD_STATUS
+                + DownloadTable.DOWNLOAD_STATUS + ", "
+                + DownloadTable.FILE_NAME
                 + ")");
 
         DbUtils.execSQL(db, "CREATE INDEX idx_download_msg ON " + DownloadTable.TABLE_NAME + " ("
@@ -91,5 +106,13 @@ public final class DownloadTable implements BaseColumns {
                 + DownloadTable.CONTENT_TYPE  + ", "
                 + DownloadTable.DOWNLOAD_STATUS
                 + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_download_url ON " + DownloadTable.TABLE_NAME + " ("
+                + DownloadTable.URI
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_download_hash ON " + DownloadTable.TABLE_NAME + " ("
+                + DownloadTable.CONTENT_HASH
+                + ")");
     }
 }
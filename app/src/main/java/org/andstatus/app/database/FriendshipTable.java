@@ -63,5 +63,12 @@ public final class FriendshipTable {
                 + FriendshipTable.USER_ID + " ASC, "
                 + FriendshipTable.FRIEND_ID + " ASC)"
                 + ")");
+
+        // Covering index for followers of a user
+        DbUtils.execSQL(db, "CREATE INDEX idx_friendship_friend ON " + FriendshipTable.TABLE_NAME + " ("
+                + FriendshipTable.FRIEND_ID + ", "
+                + FriendshipTable.FOLLOWED + ", "
+                + FriendshipTable.USER_ID
+                + ")");
     }
 }
@@ -88,5 +88,10 @@ public final class MsgOfUserTable {
                 + MsgOfUserTable.DIRECTED + " BOOLEAN DEFAULT 0 NOT NULL,"
                 + " CONSTRAINT pk_msgofuser PRIMARY KEY (" + MsgOfUserTable.USER_ID + " ASC, " + MsgOfUserTable.MSG_ID + " ASC)"
                 + ")");
+
+        // For users of a message, e.g. rebloggers, and for deletion of messages
+        DbUtils.execSQL(db, "CREATE INDEX idx_msgofuser_msg ON " + MsgOfUserTable.TABLE_NAME + " ("
+                + MsgOfUserTable.MSG_ID
+                + ")");
     }
 }
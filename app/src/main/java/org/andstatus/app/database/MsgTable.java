@@ -89,6 +89,16 @@ public final class MsgTable implements BaseColumns {
      * Body text, prepared for easy searching in a database
      */
     public static final String BODY_TO_SEARCH = "body_to_search";
+    /**
+     * Body text, prepared for view, see {@link org.andstatus.app.util.MyHtml#prepareForView(String)}
+     * null if not prepared yet
+     */
+    public static final String BODY_TO_VIEW = "body_to_view";
+    /**
+     * {@link org.andstatus.app.util.SimHash} of the body, used to find duplicated messages.
+     * null if not calculated yet
+     */
+    public static final String BODY_FINGERPRINT = "body_fingerprint";
     /**
      * String generally describing Client's software used to post this message
      * It's like "User Agent" string in the browsers?!: "via ..."
@@ -151,6 +161,8 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.RECIPIENT_ID + " INTEGER,"
                 + MsgTable.BODY + " TEXT,"
                 + MsgTable.BODY_TO_SEARCH + " TEXT,"
+                + MsgTable.BODY_TO_VIEW + " TEXT,"
+                + MsgTable.BODY_FINGERPRINT + " INTEGER,"
                 + MsgTable.VIA + " TEXT,"
                 + MsgTable.URL + " TEXT,"
                 + MsgTable.IN_REPLY_TO_MSG_ID + " INTEGER,"
@@ -170,6 +182,17 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.SENT_DATE
                 + ")");
 
+        // For timelines of a user, which are filtered by an author or a sender and sorted by the date
+        DbUtils.execSQL(db, "CREATE INDEX idx_msg_author_sent_date ON " + MsgTable.TABLE_NAME + " ("
+                + MsgTable.AUTHOR_ID + ", "
+                + MsgTable.SENT_DATE
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_msg_sender_sent_date ON " + MsgTable.TABLE_NAME + " ("
+                + MsgTable.SENDER_ID + ", "
+                + MsgTable.SENT_DATE
+                + ")");
+
         // Index not null rows only, see https://www.sqlite.org/partialindex.html
         DbUtils.execSQL(db, "CREATE INDEX idx_msg_in_reply_to_msg_id ON " + MsgTable.TABLE_NAME + " ("
                 + MsgTable.IN_REPLY_TO_MSG_ID + ")" +
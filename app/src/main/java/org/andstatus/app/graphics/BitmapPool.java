@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.util.DisplayMetrics;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Free bitmaps for reuse. Bitmaps are allocated on demand and are grouped into size classes:
+ * each side is rounded up to a multiple of 1/{@link #SIZE_CLASSES_PER_SIDE} of the maximum size.
+ * Size of the pool is limited by a budget in bytes, which is reduced on memory pressure.
+ * Only scratch bitmaps of a decoder are put here. Bitmaps of cached drawables are never returned
+ * to the pool, even after eviction from the cache, because a view may still show them:
+ * they are reclaimed by the garbage collector
+ */
+class BitmapPool {
+    private static final int SIZE_CLASSES_PER_SIDE = 4;
+    private static final int BUDGET_IN_MAX_BITMAPS = 2;
+    private static final long TRIM_MEMORY_EFFECT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private final String name;
+    private final DisplayMetrics displayMetrics;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final long maxBudgetBytes;
+
+    @GuardedBy("this")
+    private final TreeMap<Long, Deque<Bitmap>> buckets = new TreeMap<>();
+    @GuardedBy("this")
+    private long freeBytes = 0;
+    @GuardedBy("this")
+    private long budgetBytes;
+    @GuardedBy("this")
+    private long trimmedAt = 0;
+
+    final AtomicLong allocated = new AtomicLong();
+    final AtomicLong reused = new AtomicLong();
+    final AtomicLong evicted = new AtomicLong();
+
+    BitmapPool(String name, DisplayMetrics displayMetrics, int maxWidth, int maxHeight) {
+        this.name = name;
+        this.displayMetrics = displayMetrics;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        maxBudgetBytes = BUDGET_IN_MAX_BITMAPS * (long) maxWidth * maxHeight * MyDrawableCache.BYTES_PER_PIXEL;
+        budgetBytes = maxBudgetBytes;
+    }
+
+    /**
+     * @return Mutable bitmap of the size class, which fits the requested size, either reused or new.
+     *  null if memory is not enough
+     */
+    @Nullable
+    Bitmap get(int width, int height) {
+        int classWidth = toSizeClass(width, maxWidth);
+        int classHeight = toSizeClass(height, maxHeight);
+        synchronized (this) {
+            Deque<Bitmap> bucket = buckets.get(toKey(classWidth, classHeight));
+            Bitmap bitmap = bucket == null ? null : bucket.pollLast();
+            if (bitmap != null) {
+                freeBytes -= byteCount(bitmap);
+                reused.incrementAndGet();
+                return bitmap;
+            }
+        }
+        try {
+            Bitmap bitmap = newBitmap(classWidth, classHeight);
+            allocated.incrementAndGet();
+            return bitmap;
+        } catch (OutOfMemoryError e) {
+            MyLog.w(this, getInfo(), e);
+            onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+            return null;
+        }
+    }
+
+    private Bitmap newBitmap(int width, int height) {
+        Bitmap bitmap;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            bitmap = Bitmap.createBitmap(displayMetrics, width, height, MyDrawableCache.BITMAP_CONFIG);
+        } else {
+            bitmap = Bitmap.createBitmap(width, height, MyDrawableCache.BITMAP_CONFIG);
+            bitmap.setDensity(displayMetrics.densityDpi);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the bitmap for reuse, or recycles it, if it doesn't fit the pool.
+     * The bitmap shouldn't be referenced by anybody else
+     */
+    void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable() || bitmap.getConfig() != MyDrawableCache.BITMAP_CONFIG
+                || !fitSizeClass(bitmap)) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            if (trimmedAt != 0 && System.currentTimeMillis() - trimmedAt > TRIM_MEMORY_EFFECT_MILLIS) {
+                trimmedAt = 0;
+                budgetBytes = maxBudgetBytes;
+            }
+            long key = toKey(bitmap.getWidth(), bitmap.getHeight());
+            Deque<Bitmap> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                buckets.put(key, bucket);
+            }
+            bucket.addLast(bitmap);
+            freeBytes += byteCount(bitmap);
+            trimToBudget();
+        }
+    }
+
+    /**
+     * A bitmap of a size class is accepted as is. On KitKat and later a larger bitmap
+     * (e.g. decoded into a bitmap of the pool) is reconfigured to its size class
+     */
+    private boolean fitSizeClass(Bitmap bitmap) {
+        int classWidth = toSizeClass(bitmap.getWidth(), maxWidth);
+        int classHeight = toSizeClass(bitmap.getHeight(), maxHeight);
+        if (classWidth == bitmap.getWidth() && classHeight == bitmap.getHeight()) {
+            return true;
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && reconfigure(bitmap, classWidth, classHeight);
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static boolean reconfigure(Bitmap bitmap, int width, int height) {
+        if (bitmap.getAllocationByteCount() < (long) width * height * MyDrawableCache.BYTES_PER_PIXEL) {
+            return false;
+        }
+        try {
+            bitmap.reconfigure(width, height, MyDrawableCache.BITMAP_CONFIG);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Largest size classes are evicted first */
+    @GuardedBy("this")
+    private void trimToBudget() {
+        while (freeBytes > budgetBytes && !buckets.isEmpty()) {
+            Map.Entry<Long, Deque<Bitmap>> entry = buckets.lastEntry();
+            Bitmap bitmap = entry.getValue().pollFirst();
+            if (bitmap == null) {
+                buckets.remove(entry.getKey());
+                continue;
+            }
+            freeBytes -= byteCount(bitmap);
+            bitmap.recycle();
+            evicted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Levels of the application in background are larger than the RUNNING_* levels,
+     * so they are checked first
+     * @param level See {@link ComponentCallbacks2}
+     */
+    synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            budgetBytes = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            budgetBytes = maxBudgetBytes / 4;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            budgetBytes = maxBudgetBytes / 2;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            budgetBytes = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            budgetBytes = maxBudgetBytes / 4;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            budgetBytes = maxBudgetBytes / 2;
+        } else {
+            return;
+        }
+        trimmedAt = System.currentTimeMillis();
+        trimToBudget();
+    }
+
+    synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    synchronized void clear() {
+        long budget = budgetBytes;
+        budgetBytes = 0;
+        trimToBudget();
+        budgetBytes = budget;
+    }
+
+    private static int toSizeClass(int size, int maxSize) {
+        int step = Math.max(1, (maxSize + SIZE_CLASSES_PER_SIDE - 1) / SIZE_CLASSES_PER_SIDE);
+        int sizeClass = ((Math.max(1, size) + step - 1) / step) * step;
+        return Math.max(sizeClass, size);
+    }
+
+    /** Keys are ordered by area of a bitmap */
+    private static long toKey(int width, int height) {
+        return ((long) width * height << 32) | ((long) width << 16) | height;
+    }
+
+    private static long byteCount(Bitmap bitmap) {
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    synchronized String getInfo() {
+        return name + " pool: free " + freeBytes / 1024 + " of " + budgetBytes / 1024 + "KB"
+                + ", allocated:" + allocated.get() + ", reused:" + reused.get() + ", evicted:" + evicted.get();
+    }
+}
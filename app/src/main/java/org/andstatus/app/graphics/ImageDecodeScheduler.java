@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.widget.ImageView;
+
+import org.andstatus.app.util.MyLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes images in background for image views of list rows:
+ * <ul>
+ * <li>Concurrent requests of the same file are decoded once</li>
+ * <li>A decode is dropped, if all its views were bound to other files (recycled) before it started</li>
+ * <li>Requests of views go before preloading, the latest requests go first,
+ * because they are for the rows, which are visible now</li>
+ * <li>No more than {@link #MAX_CONCURRENT_DECODES} images are decoded at a time</li>
+ * </ul>
+ * All methods, except {@link #getInfo()}, should be called in the UI thread.
+ */
+public class ImageDecodeScheduler {
+    private static final String TAG = ImageDecodeScheduler.class.getSimpleName();
+    private static final int MAX_CONCURRENT_DECODES = 2;
+
+    private static final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final ThreadPoolExecutor executor = newExecutor();
+
+    /** Files, currently expected by views */
+    private static final Map<ImageView, String> viewPaths = new WeakHashMap<>();
+    private static final Map<String, Job> jobs = new HashMap<>();
+
+    /** Decoding and showing of one image file */
+    public abstract static class Request {
+        final String path;
+
+        protected Request(@NonNull String path) {
+            this.path = path;
+        }
+
+        /** Called in background, the result is expected to be cached in memory */
+        @Nullable
+        protected abstract Drawable decode();
+
+        /** Called in the UI thread, if the view still shows the same file */
+        protected void onDecoded(@NonNull ImageView imageView, @Nullable Drawable drawable) {
+            if (drawable != null) {
+                imageView.setImageDrawable(drawable);
+            }
+        }
+    }
+
+    /** The view is not held by the queued job, so a closed activity may be collected */
+    private static class Target {
+        final WeakReference<ImageView> imageView;
+        final Request request;
+
+        Target(ImageView imageView, Request request) {
+            this.imageView = new WeakReference<>(imageView);
+            this.request = request;
+        }
+    }
+
+    private static class Job implements Runnable, Comparable<Job> {
+        final Request request;
+        /** Accessed in the UI thread only */
+        final List<Target> targets = new ArrayList<>();
+        // Priority of the job is changed only, when it is not in the queue
+        volatile boolean preload;
+        volatile long order;
+        volatile boolean cancelled = false;
+
+        Job(Request request, boolean preload) {
+            this.request = request;
+            this.preload = preload;
+            order = sequence.incrementAndGet();
+        }
+
+        @Override
+        public int compareTo(@NonNull Job another) {
+            if (preload != another.preload) {
+                return preload ? 1 : -1;
+            }
+            return order == another.order ? 0 : (order > another.order ? -1 : 1);
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Drawable drawable = null;
+            try {
+                drawable = request.decode();
+            } catch (Exception e) {
+                MyLog.d(TAG, "Failed to decode " + request.path, e);
+            }
+            final Drawable result = drawable;
+            uiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onDone(Job.this, result);
+                }
+            });
+        }
+    }
+
+    private ImageDecodeScheduler() {
+        // Empty
+    }
+
+    /**
+     * Decode the file for the view. The view's previous request is dropped
+     * @param imageView null to preload the image into a memory cache
+     */
+    public static void bind(@Nullable ImageView imageView, @NonNull Request request) {
+        if (TextUtils.isEmpty(request.path)) {
+            unbind(imageView);
+            return;
+        }
+        if (imageView != null) {
+            if (request.path.equals(viewPaths.get(imageView))) {
+                return;
+            }
+            unbind(imageView);
+            viewPaths.put(imageView, request.path);
+        }
+        Job job = jobs.get(request.path);
+        if (job == null) {
+            job = new Job(request, imageView == null);
+            if (imageView != null) {
+                job.targets.add(new Target(imageView, request));
+            }
+            jobs.put(request.path, job);
+            execute(job);
+        } else if (imageView != null) {
+            job.targets.add(new Target(imageView, request));
+            raisePriority(job);
+        }
+    }
+
+    /** The view doesn't expect any image now, e.g. it is shown synchronously from a cache */
+    public static void unbind(@Nullable ImageView imageView) {
+        if (imageView == null) {
+            return;
+        }
+        String path = viewPaths.remove(imageView);
+        if (path == null) {
+            return;
+        }
+        Job job = jobs.get(path);
+        if (job == null) {
+            return;
+        }
+        for (int ind = job.targets.size() - 1; ind >= 0; ind--) {
+            ImageView targetView = job.targets.get(ind).imageView.get();
+            if (targetView == null || targetView == imageView) {
+                job.targets.remove(ind);
+            }
+        }
+        if (job.targets.isEmpty() && executor.remove(job)) {
+            job.cancelled = true;
+            jobs.remove(path);
+        }
+    }
+
+    /** The job, which is not started yet, is moved to the head of the queue */
+    private static void raisePriority(Job job) {
+        if (executor.remove(job)) {
+            job.preload = false;
+            job.order = sequence.incrementAndGet();
+            execute(job);
+        }
+    }
+
+    private static void execute(Job job) {
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            MyLog.d(TAG, "Rejected " + job.request.path, e);
+            jobs.remove(job.request.path);
+        }
+    }
+
+    private static void onDone(Job job, Drawable drawable) {
+        if (jobs.get(job.request.path) == job) {
+            jobs.remove(job.request.path);
+        }
+        for (Target target : job.targets) {
+            ImageView imageView = target.imageView.get();
+            if (imageView != null && job.request.path.equals(viewPaths.get(imageView))) {
+                viewPaths.remove(imageView);
+                try {
+                    target.request.onDecoded(imageView, drawable);
+                } catch (Exception e) {
+                    MyLog.d(TAG, "Error on setting image: " + job.request.path, e);
+                }
+            }
+        }
+    }
+
+    /** Idle threads time out, so the executor costs nothing, when no images are decoded */
+    private static ThreadPoolExecutor newExecutor() {
+        ThreadPoolExecutor executorNew = new ThreadPoolExecutor(MAX_CONCURRENT_DECODES, MAX_CONCURRENT_DECODES,
+                1, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
+        executorNew.allowCoreThreadTimeOut(true);
+        return executorNew;
+    }
+
+    /** @return Paths of the queued (not started) decodes in the order of their execution */
+    static List<String> getQueuedPaths() {
+        Job[] queued = executor.getQueue().toArray(new Job[0]);
+        Arrays.sort(queued);
+        List<String> paths = new ArrayList<>();
+        for (Job job : queued) {
+            paths.add(job.request.path);
+        }
+        return paths;
+    }
+
+    /** May be called in any thread */
+    public static String getInfo() {
+        return "Image decodes: queued " + executor.getQueue().size() + ", active " + executor.getActiveCount()
+                + ", completed " + executor.getCompletedTaskCount();
+    }
+}
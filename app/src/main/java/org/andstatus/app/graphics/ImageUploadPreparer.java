@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyContentType;
+import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.MyLog;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Prepares an image, attached to a message, for upload: the image is downscaled to fit
+ * the maximum size of the origin and is re-encoded, so its metadata (e.g. location of a photo) is not sent.
+ * Orientation from the metadata is applied to the pixels.
+ * Images of other types (e.g. animated GIFs) are uploaded as is
+ */
+public class ImageUploadPreparer {
+    private static final String TAG = ImageUploadPreparer.class.getSimpleName();
+    private static final String FILE_PREFIX = "upload_";
+    private static final int JPEG_QUALITY = 85;
+
+    private ImageUploadPreparer() {
+        // Empty
+    }
+
+    /**
+     * @param sizeMax Maximum width and height of the image, 0 - don't downscale
+     * @return A prepared copy in the cache directory or the original file, if it may be uploaded as is.
+     * The copy has a unique name, so concurrent uploads of the same file don't overwrite each other's copies.
+     * It should be deleted by {@link #release(File, File)} after sending
+     */
+    @NonNull
+    public static File prepare(@NonNull File file, int sizeMax) {
+        String mimeType = MyContentType.filename2MimeType(file.getName(), "");
+        boolean isJpeg = "image/jpeg".equals(mimeType);
+        if (!isJpeg && !"image/png".equals(mimeType) || !file.isFile()) {
+            return file;
+        }
+        String path = file.getAbsolutePath();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        int sizeIn = Math.max(options.outWidth, options.outHeight);
+        if (sizeIn <= 0) {
+            return file;
+        }
+        int sizeOut = sizeMax > 0 && sizeMax < sizeIn ? sizeMax : sizeIn;
+        if (sizeOut == sizeIn && !isJpeg) {
+            return file;
+        }
+        File prepared = null;
+        long startedAt = System.currentTimeMillis();
+        Bitmap bitmap = null;
+        try {
+            // The name of the original is kept at the end for its extension
+            prepared = File.createTempFile(FILE_PREFIX, "_" + file.getName(),
+                    MyContextHolder.get().context().getCacheDir());
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = 1;
+            while (sizeIn / (options.inSampleSize * 2) >= sizeOut) {
+                options.inSampleSize *= 2;
+            }
+            bitmap = BitmapFactory.decodeFile(path, options);
+            if (bitmap == null) {
+                return file;
+            }
+            Matrix matrix = new Matrix();
+            float scale = (float) sizeOut / Math.max(bitmap.getWidth(), bitmap.getHeight());
+            if (scale < 1) {
+                matrix.setScale(scale, scale);
+            }
+            if (isJpeg) {
+                applyOrientation(matrix, new ExifInterface(path).getAttributeInt(
+                        ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL));
+            }
+            if (!matrix.isIdentity()) {
+                Bitmap transformed = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
+                        matrix, true);
+                if (transformed != bitmap) {
+                    bitmap.recycle();
+                    bitmap = transformed;
+                }
+            }
+            write(bitmap, isJpeg, prepared);
+        } catch (IOException | OutOfMemoryError e) {
+            MyLog.w(TAG, "Failed to prepare " + path + ", uploading the original", e);
+            release(prepared, file);
+            return file;
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+        MyLog.i(TAG, "Prepared " + file.getName() + " " + options.outWidth + "x" + options.outHeight
+                + " " + I18n.formatBytes(file.length()) + " for upload: max side " + sizeOut
+                + ", " + I18n.formatBytes(prepared.length())
+                + " in " + (System.currentTimeMillis() - startedAt) + "ms");
+        return prepared;
+    }
+
+    private static void applyOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void write(Bitmap bitmap, boolean isJpeg, File file) throws IOException {
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            if (!bitmap.compress(isJpeg ? Bitmap.CompressFormat.JPEG : Bitmap.CompressFormat.PNG,
+                    JPEG_QUALITY, out)) {
+                throw new IOException("Failed to compress into " + file);
+            }
+            out.flush();
+        } finally {
+            DbUtils.closeSilently(out);
+        }
+    }
+
+    /** Deletes the prepared copy after upload */
+    public static void release(File prepared, File original) {
+        if (prepared != null && !prepared.equals(original) && prepared.exists() && !prepared.delete()) {
+            MyLog.d(TAG, "Couldn't delete " + prepared);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.andstatus.app.graphics;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -31,19 +32,21 @@ import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.DisplayMetrics;
 import android.util.LruCache;
 
+import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.DownloadFileIndex;
+import org.andstatus.app.data.ThumbnailFile;
 import org.andstatus.app.util.MyLog;
 
-import java.io.File;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -54,6 +57,13 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
     public final static Drawable BROKEN = new BitmapDrawable();
     public final static Bitmap.Config BITMAP_CONFIG = Bitmap.Config.ARGB_8888;
     public final static int BYTES_PER_PIXEL = 4;
+    /** Don't grow for some time after a memory pressure */
+    private static final long GROW_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long GROW_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final int GROW_MIN_ACCESSES = 20;
+    /** Growing helps, only if the full cache misses often */
+    private static final int GROW_MIN_MISS_RATE_PERCENT = 20;
+    private static final int GROW_STEPS = 8;
     final String name;
     private volatile int requestedCacheSize;
     private volatile int currentCacheSize;
@@ -61,14 +71,46 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
     private volatile int maxBitmapWidth;
     final AtomicLong hits = new AtomicLong();
     final AtomicLong misses = new AtomicLong();
+    private volatile int trimLevel = 0;
+    private volatile long trimmedAt = 0;
+    private volatile long resizedAt = 0;
+    private volatile long hitsAtResize = 0;
+    private volatile long missesAtResize = 0;
     final Set<String> brokenBitmaps = new ConcurrentSkipListSet<>();
-    final Queue<Bitmap> recycledBitmaps;
+    final BitmapPool bitmapPool;
     final DisplayMetrics displayMetrics;
     volatile boolean rounded = false;
 
+    /**
+     * The cache may shrink down to zero and grow back up to its initial capacity
+     * ({@link LruCache#resize(int)} is not used, because it requires API 21)
+     */
     @Override
     public void resize(int maxSize) {
-        throw new IllegalStateException("Cache cannot be resized");
+        int size = Math.max(0, Math.min(maxSize, requestedCacheSize));
+        if (size == currentCacheSize) {
+            return;
+        }
+        MyLog.v(this, name + " resized from " + currentCacheSize + " to " + size);
+        currentCacheSize = size;
+        resizedAt = System.currentTimeMillis();
+        hitsAtResize = hits.get();
+        missesAtResize = misses.get();
+        trimToCurrentSize();
+    }
+
+    /** Least recently used entries go first */
+    private void trimToCurrentSize() {
+        int excess = size() - currentCacheSize;
+        if (excess <= 0) {
+            return;
+        }
+        for (String key : snapshot().keySet()) {
+            if (excess-- <= 0) {
+                break;
+            }
+            remove(key);
+        }
     }
 
     public MyDrawableCache(Context context, String name, int maxBitmapHeightWidthIn, int requestedCacheSizeIn) {
@@ -87,72 +129,126 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         this.setMaxBounds(maxBitmapHeightWidth, maxBitmapHeightWidth);
         this.requestedCacheSize = requestedCacheSizeIn;
         this.currentCacheSize = this.requestedCacheSize;
-        recycledBitmaps = new ConcurrentLinkedQueue<>();
-        try {
-            for (int i = 0; i < currentCacheSize + 2; i++) {
-                recycledBitmaps.add(newBlankBitmap());
-            }
-        } catch (OutOfMemoryError e) {
-            MyLog.w(this, getInfo(), e);
-            currentCacheSize = recycledBitmaps.size() - 2;
-            if (currentCacheSize < 0) {
-                currentCacheSize = 0;
-            }
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                super.resize(currentCacheSize);
-            }
-        }
-    }
-
-    private Bitmap newBlankBitmap() {
-        Bitmap bitmap;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            bitmap = Bitmap.createBitmap(displayMetrics, maxBitmapWidth,
-                    maxBitmapHeight, BITMAP_CONFIG);
-        } else {
-            bitmap = Bitmap.createBitmap(maxBitmapWidth,
-                    maxBitmapHeight, BITMAP_CONFIG);
-            bitmap.setDensity(displayMetrics.densityDpi);
-        }
-        return bitmap;
+        bitmapPool = new BitmapPool(name, displayMetrics, maxBitmapWidth, maxBitmapHeight);
     }
 
     @Nullable
     Drawable getCachedDrawable(Object objTag, String path) {
-        return getDrawable(objTag, path, true);
+        return getDrawable(objTag, path, null, true);
     }
 
     @Nullable
     Drawable getDrawable(Object objTag, String path) {
-        return getDrawable(objTag, path, false);
+        return getDrawable(objTag, path, null, false);
     }
 
-    @Override
-    protected void entryRemoved(boolean evicted, String key, BitmapSubsetDrawable oldValue,
-                                BitmapSubsetDrawable newValue) {
-        recycledBitmaps.add(oldValue.getBitmap());
+    /** @param downloadId of the image, its thumbnail is decoded, if the image is not in memory */
+    @Nullable
+    Drawable getDrawable(Object objTag, String path, long downloadId) {
+        return getDrawable(objTag, path, newThumbnailFile(downloadId), false);
+    }
+
+    @NonNull
+    private ThumbnailFile newThumbnailFile(long downloadId) {
+        return new ThumbnailFile(downloadId, maxBitmapWidth, maxBitmapHeight);
+    }
+
+    /** Create the image's thumbnail in advance, without caching the image in memory */
+    void prepareThumbnail(Object objTag, String path, long downloadId) {
+        ThumbnailFile thumbnail = newThumbnailFile(downloadId);
+        if (TextUtils.isEmpty(path) || thumbnail.exists() || !DownloadFileIndex.exists(path)) {
+            return;
+        }
+        Bitmap bitmap = loadBitmap(objTag, path);
+        if (bitmap != null) {
+            thumbnail.save(bitmap);
+            bitmapPool.put(bitmap);
+        }
+    }
+
+    /**
+     * Shrink the cache on memory pressure and in background.
+     * Evicted bitmaps are not recycled: views may still show them
+     * @param level See {@link ComponentCallbacks2}
+     */
+    void onTrimMemory(int level) {
+        bitmapPool.onTrimMemory(level);
+        int size;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            size = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            size = requestedCacheSize / 4;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            size = requestedCacheSize / 2;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            size = currentCacheSize / 4;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            size = currentCacheSize / 2;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            size = currentCacheSize * 3 / 4;
+        } else {
+            return;
+        }
+        trimLevel = level;
+        trimmedAt = System.currentTimeMillis();
+        if (size < currentCacheSize) {
+            resize(size);
+        }
+    }
+
+    /**
+     * Grow back step by step, while in foreground without memory pressure,
+     * if the full cache misses often
+     */
+    private void growIfMissedOften() {
+        if (currentCacheSize >= requestedCacheSize || size() < currentCacheSize) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - trimmedAt < GROW_DELAY_MILLIS || now - resizedAt < GROW_PERIOD_MILLIS
+                || !MyContextHolder.get().isInForeground()) {
+            return;
+        }
+        long windowMisses = misses.get() - missesAtResize;
+        long windowAccesses = hits.get() - hitsAtResize + windowMisses;
+        if (windowAccesses < GROW_MIN_ACCESSES) {
+            return;
+        }
+        if (windowMisses * 100 / windowAccesses >= GROW_MIN_MISS_RATE_PERCENT) {
+            trimLevel = 0;
+            resize(currentCacheSize + Math.max(1, requestedCacheSize / GROW_STEPS));
+        } else {
+            hitsAtResize = hits.get();
+            missesAtResize = misses.get();
+            resizedAt = now;
+        }
     }
 
     @Nullable
-    private Drawable getDrawable(Object objTag, String path, boolean fromCacheOnly) {
+    private Drawable getDrawable(Object objTag, String path, @Nullable ThumbnailFile thumbnail,
+                                 boolean fromCacheOnly) {
         if (TextUtils.isEmpty(path)) {
             return null;
         }
         BitmapSubsetDrawable bitmap = get(path);
         if (bitmap != null) {
             hits.incrementAndGet();
+            DownloadFileIndex.onAccessed(path);
         } else if (brokenBitmaps.contains(path)) {
             hits.incrementAndGet();
             return BROKEN;
-        } else if (!(new File(path)).exists()) {
+        } else if (!DownloadFileIndex.exists(path)) {
             misses.incrementAndGet();
         } else {
             misses.incrementAndGet();
             if (!fromCacheOnly) {
-                bitmap = loadDrawable(objTag, path);
+                growIfMissedOften();
+                DownloadFileIndex.onAccessed(path);
+                bitmap = loadDrawable(objTag, path, thumbnail);
                 if (bitmap != null) {
                     if (currentCacheSize > 0) {
                         put(path, bitmap);
+                        trimToCurrentSize();
                     }
                 } else {
                     brokenBitmaps.add(path);
@@ -163,16 +259,23 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
     }
 
     @Nullable
-    private BitmapSubsetDrawable loadDrawable(Object objTag, String path) {
-        Bitmap bitmap = loadBitmap(objTag, path);
+    private BitmapSubsetDrawable loadDrawable(Object objTag, String path, @Nullable ThumbnailFile thumbnail) {
+        Bitmap bitmap = loadThumbnail(objTag, thumbnail);
+        if (bitmap == null) {
+            bitmap = loadBitmap(objTag, path);
+            if (bitmap != null && thumbnail != null) {
+                thumbnail.save(bitmap);
+            }
+        }
         if (bitmap == null) {
             return null;
         }
         Rect srcRect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        Bitmap background = getSuitableRecycledBitmap(srcRect);
+        Bitmap background = bitmapPool.get(srcRect.width(), srcRect.height());
         if (background == null) {
             MyLog.w(objTag, "No suitable bitmap found to cache "
                     + srcRect.width() + "x" + srcRect.height() + " '" + path + "'");
+            bitmapPool.put(bitmap);
             return null ;
         }
         Canvas canvas = new Canvas(background);
@@ -182,7 +285,7 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         } else {
             canvas.drawBitmap(bitmap, 0 , 0, null);
         }
-        bitmap.recycle();
+        bitmapPool.put(bitmap);
         return new BitmapSubsetDrawable(background, srcRect);
     }
 
@@ -199,23 +302,48 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         canvas.drawOval(rectF, paint);
     }
 
-    private Bitmap getSuitableRecycledBitmap(Rect srcRect) {
-        return recycledBitmaps.poll();
+    /** The thumbnail fits the bounds already, so no scaling is needed */
+    @Nullable
+    private Bitmap loadThumbnail(Object objTag, @Nullable ThumbnailFile thumbnail) {
+        if (thumbnail == null || !thumbnail.exists()) {
+            return null;
+        }
+        Bitmap bitmap = null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = BITMAP_CONFIG;
+        options.inMutable = true;
+        try {
+            bitmap = BitmapFactory.decodeFile(thumbnail.getFilePath(), options);
+        } catch (OutOfMemoryError e) {
+            MyLog.w(objTag, getInfo(), e);
+            evictAll();
+            bitmapPool.clear();
+        }
+        if (bitmap != null && (bitmap.getWidth() > maxBitmapWidth || bitmap.getHeight() > maxBitmapHeight)) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+        if (bitmap != null) {
+            thumbnail.touch();
+        }
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(objTag, (bitmap == null ? "Failed to load " : "Loaded ") + thumbnail);
+        }
+        return bitmap;
     }
 
     @Nullable
     private Bitmap loadBitmap(Object objTag, String path) {
         Bitmap bitmap = null;
         if (MyPreferences.isShowDebuggingInfoInUi()) {
-            bitmap = BitmapFactory
-                    .decodeFile(path, calculateScaling(objTag, getImageSize(path)));
+            bitmap = decodeFile(path, calculateScaling(objTag, getImageSize(path)));
         } else {
             try {
-                bitmap = BitmapFactory
-                        .decodeFile(path, calculateScaling(objTag, getImageSize(path)));
+                bitmap = decodeFile(path, calculateScaling(objTag, getImageSize(path)));
             } catch (OutOfMemoryError e) {
                 MyLog.w(objTag, getInfo(), e);
                 evictAll();
+                bitmapPool.clear();
             }
         }
         if (MyLog.isVerboseEnabled()) {
@@ -226,6 +354,25 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         return bitmap;
     }
 
+    /** Decodes into a bitmap of the pool, if possible */
+    private Bitmap decodeFile(String path, BitmapFactory.Options options) {
+        options.inMutable = true;
+        options.inPreferredConfig = BITMAP_CONFIG;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && options.outWidth > 0 && options.outHeight > 0) {
+            int sampleSize = Math.max(1, options.inSampleSize);
+            options.inBitmap = bitmapPool.get((options.outWidth + sampleSize - 1) / sampleSize,
+                    (options.outHeight + sampleSize - 1) / sampleSize);
+            try {
+                return BitmapFactory.decodeFile(path, options);
+            } catch (IllegalArgumentException e) {
+                MyLog.v(this, "Couldn't decode into a bitmap of the pool '" + path + "'", e);
+                bitmapPool.put(options.inBitmap);
+                options.inBitmap = null;
+            }
+        }
+        return BitmapFactory.decodeFile(path, options);
+    }
+
     public Point getImageSize(String path) {
         if (!TextUtils.isEmpty(path)) {
             Drawable drawable = get(path);
@@ -246,6 +393,8 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
 
     BitmapFactory.Options calculateScaling(Object objTag, Point imageSize) {
         BitmapFactory.Options options = new BitmapFactory.Options();
+        options.outWidth = imageSize.x;
+        options.outHeight = imageSize.y;
         int x = maxBitmapWidth;
         int y = maxBitmapHeight;
         while (imageSize.y > y || imageSize.x > x) {
@@ -267,16 +416,29 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         if (requestedCacheSize != currentCacheSize) {
             builder.append(" (initially capacity was " + requestedCacheSize + ")");
         }
-        builder.append(", free: " + recycledBitmaps.size());
+        if (trimLevel != 0) {
+            builder.append(", trimmed at level " + trimLevel + " "
+                    + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - trimmedAt) + "s ago");
+        }
+        builder.append(", " + bitmapPool.getInfo());
         if (!brokenBitmaps.isEmpty()) {
             builder.append(", broken: " + brokenBitmaps.size());
         }
         long accesses = hits.get() + misses.get();
         builder.append(", hits:" + hits.get() + ", misses:" + misses.get()
                 + (accesses == 0 ? "" : ", hitRate:" + hits.get() * 100 / accesses + "%"));
+        long recentHits = hits.get() - hitsAtResize;
+        long recentAccesses = recentHits + misses.get() - missesAtResize;
+        if (recentAccesses > 0 && recentAccesses != accesses) {
+            builder.append(", since resize hitRate:" + recentHits * 100 / recentAccesses + "%");
+        }
         return builder.toString();
     }
 
+    int getCurrentCacheSize() {
+        return currentCacheSize;
+    }
+
     public int getMaxBitmapWidth() {
         return maxBitmapWidth;
     }
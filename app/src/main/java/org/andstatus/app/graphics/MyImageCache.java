@@ -32,6 +32,7 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.MyTheme;
 import org.andstatus.app.data.AvatarFile;
+import org.andstatus.app.data.DownloadFileIndex;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
@@ -104,6 +105,17 @@ public class MyImageCache {
         setAvatarsRounded();
     }
 
+    /** @param level See {@link android.content.ComponentCallbacks2} */
+    public static void onTrimMemory(int level) {
+        if (attachedImagesCache != null) {
+            attachedImagesCache.onTrimMemory(level);
+        }
+        if (avatarsCache != null) {
+            avatarsCache.onTrimMemory(level);
+        }
+    }
+
+    /** Avatars, shown at the moment, stay valid: evicted bitmaps are left to the garbage collector */
     public static void setAvatarsRounded() {
         avatarsCache.evictAll();
         avatarsCache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
@@ -145,6 +157,11 @@ public class MyImageCache {
         return avatarsCache.getDrawable(objTag, path);
     }
 
+    @Nullable
+    public static Drawable getCachedAvatarDrawable(Object objTag, String path) {
+        return avatarsCache.getCachedDrawable(objTag, path);
+    }
+
     public static int getAvatarWidthPixels() {
         return avatarsCache.getMaxBitmapWidth();
     }
@@ -153,8 +170,15 @@ public class MyImageCache {
         return attachedImagesCache.getCachedDrawable(objTag, path);
     }
 
-    public static Drawable getAttachedImageDrawable(Object objTag, String path) {
-        return attachedImagesCache.getDrawable(objTag, path);
+    public static Drawable getAttachedImageDrawable(Object objTag, String path, long downloadId) {
+        return attachedImagesCache.getDrawable(objTag, path, downloadId);
+    }
+
+    /** Should be called in background */
+    public static void prepareAttachedImageThumbnail(Object objTag, String path, long downloadId) {
+        if (attachedImagesCache != null) {
+            attachedImagesCache.prepareThumbnail(objTag, path, downloadId);
+        }
     }
 
     public static String getCacheInfo() {
@@ -165,6 +189,8 @@ public class MyImageCache {
             builder.append(avatarsCache.getInfo() + "\n");
             builder.append(attachedImagesCache.getInfo() + "\n");
             builder.append("Styled drawables: " + styledDrawables.size() + "\n");
+            builder.append(ImageDecodeScheduler.getInfo() + "\n");
+            builder.append(DownloadFileIndex.getInfo() + "\n");
         }
         Context context = MyContextHolder.get().context();
         if (context != null) {
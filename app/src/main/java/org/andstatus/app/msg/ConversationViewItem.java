@@ -79,7 +79,9 @@ public class ConversationViewItem extends ConversationItem {
                 super.load(cursor);
                 msgStatus = DownloadStatus.load(DbUtils.getLong(cursor, MsgTable.MSG_STATUS));
                 authorName = TimelineSql.userColumnNameToNameAtTimeline(cursor, UserTable.AUTHOR_NAME, false);
-                setBody(MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)));
+                String bodyToView = DbUtils.getString(cursor, MsgTable.BODY_TO_VIEW);
+                setBody(TextUtils.isEmpty(bodyToView)
+                        ? MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)) : bodyToView);
                 String via = DbUtils.getString(cursor, MsgTable.VIA);
                 if (!TextUtils.isEmpty(via)) {
                     messageSource = Html.fromHtml(via).toString().trim();
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.util.SimHash;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds groups of possible duplicates by message id and by body fingerprints,
+ * which differ in no more than {@link #MAX_DISTANCE} bits.
+ * A fingerprint is split into {@link #BANDS} bands, so close fingerprints have at least one equal band
+ * @param <G> Group of duplicates
+ */
+class DuplicatesIndex<G> {
+    static final int MAX_DISTANCE = 3;
+    private static final int BANDS = MAX_DISTANCE + 1;
+    private static final int BAND_BITS = Long.SIZE / BANDS;
+    private static final long BAND_MASK = (1L << BAND_BITS) - 1;
+
+    private final Map<Long, List<G>> byMsgId = new HashMap<>();
+    private final Map<Long, List<Entry<G>>> byBand = new HashMap<>();
+
+    private static class Entry<G> {
+        final long fingerprint;
+        final G group;
+
+        Entry(long fingerprint, G group) {
+            this.fingerprint = fingerprint;
+            this.group = group;
+        }
+    }
+
+    void add(long msgId, long fingerprint, G group) {
+        if (msgId != 0) {
+            listOf(byMsgId, msgId).add(group);
+        }
+        if (fingerprint != SimHash.EMPTY) {
+            Entry<G> entry = new Entry<>(fingerprint, group);
+            for (int band = 0; band < BANDS; band++) {
+                listOf(byBand, bandKey(band, fingerprint)).add(entry);
+            }
+        }
+    }
+
+    /** @return Groups with the same message id go first */
+    @NonNull
+    Collection<G> getCandidates(long msgId, long fingerprint) {
+        Collection<G> candidates = new LinkedHashSet<>();
+        if (msgId != 0) {
+            List<G> groups = byMsgId.get(msgId);
+            if (groups != null) {
+                candidates.addAll(groups);
+            }
+        }
+        if (fingerprint != SimHash.EMPTY) {
+            for (int band = 0; band < BANDS; band++) {
+                List<Entry<G>> entries = byBand.get(bandKey(band, fingerprint));
+                if (entries == null) {
+                    continue;
+                }
+                for (Entry<G> entry : entries) {
+                    if (SimHash.distance(fingerprint, entry.fingerprint) <= MAX_DISTANCE) {
+                        candidates.add(entry.group);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static long bandKey(int band, long fingerprint) {
+        return ((long) band << BAND_BITS) | ((fingerprint >>> (band * BAND_BITS)) & BAND_MASK);
+    }
+
+    private static <K, V> List<V> listOf(Map<K, List<V>> map, K key) {
+        List<V> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            map.put(key, list);
+        }
+        return list;
+    }
+}
@@ -282,7 +282,7 @@ public class MessageEditorData {
         loader.load(null);
         List<Long> toMention = new ArrayList<>();
         for(ConversationMemberItem item : loader.getList()) {
-            if (!item.isFavoritingAction) {
+            if (!item.isFavoritingAction()) {
                 toMention.add(item.authorId);
             }
         }
@@ -128,8 +128,7 @@ public abstract class MessageListAdapter<T extends MessageViewItem> extends MyBa
     }
 
     protected void showAvatar(View view, MessageViewItem item) {
-        ImageView avatar = (ImageView) view.findViewById(R.id.avatar_image);
-        avatar.setImageDrawable(item.getAvatar());
+        item.showAvatar((ImageView) view.findViewById(R.id.avatar_image));
     }
 
     protected void showAttachedImage(View view, MessageViewItem item) {
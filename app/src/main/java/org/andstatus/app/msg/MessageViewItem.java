@@ -20,6 +20,7 @@ import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
+import android.widget.ImageView;
 
 import org.andstatus.app.R;
 import org.andstatus.app.ViewItem;
@@ -30,10 +31,13 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.graphics.ImageDecodeScheduler;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.SimHash;
+import org.andstatus.app.util.TriState;
 import org.andstatus.app.widget.DuplicatesCollapsible;
 import org.andstatus.app.widget.DuplicationLink;
 
@@ -66,9 +70,13 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
     String messageSource = "";
 
     private String body = "";
+    /** Body as stored in the database, to be prepared for view on the first request */
+    private String bodyToPrepare = null;
+    private String cleanedBody = null;
+    private long bodyFingerprint = SimHash.EMPTY;
 
     boolean favorited = false;
-    boolean isFavoritingAction = false;
+    private TriState favoritingAction = TriState.UNKNOWN;
     Map<Long, String> rebloggers = new HashMap<>();
     boolean reblogged = false;
 
@@ -157,19 +165,13 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         }
         if (link == DuplicationLink.NONE) {
             if (Math.abs(createdDate - other.createdDate) < TimeUnit.HOURS.toMillis(24)) {
-                String thisBody = MyHtml.getCleanedBody(body);
-                String otherBody = MyHtml.getCleanedBody(other.body);
+                String thisBody = getCleanedBody();
+                String otherBody = other.getCleanedBody();
                 if (thisBody.length() < MIN_LENGTH_TO_COMPARE ||
                         otherBody.length() < MIN_LENGTH_TO_COMPARE) {
                     // Too short to compare
                 } else if (thisBody.equals(otherBody)) {
-                    if (createdDate == other.createdDate) {
-                        link = duplicatesByFavoritedAndReblogged(other);
-                    } else if (createdDate < other.createdDate) {
-                        link = DuplicationLink.IS_DUPLICATED;
-                    } else {
-                        link = DuplicationLink.DUPLICATES;
-                    }
+                    link = duplicatesByCreatedDate(other);
                 } else if (thisBody.contains(otherBody)) {
                     link = DuplicationLink.DUPLICATES;
                 } else if (otherBody.contains(thisBody)) {
@@ -180,12 +182,41 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         return link;
     }
 
+    /**
+     * Bodies, which differ a little, e.g. by a link or by a hashtag, have close fingerprints,
+     * see {@link DuplicatesIndex}. As for equal bodies, the older message is shown
+     */
+    DuplicationLink nearlyDuplicates(MessageViewItem other) {
+        if (other == null || Math.abs(createdDate - other.createdDate) >= TimeUnit.HOURS.toMillis(24)
+                || getCleanedBody().length() < MIN_LENGTH_TO_COMPARE
+                || other.getCleanedBody().length() < MIN_LENGTH_TO_COMPARE) {
+            return DuplicationLink.NONE;
+        }
+        long fingerprint = getBodyFingerprint();
+        long otherFingerprint = other.getBodyFingerprint();
+        if (fingerprint == SimHash.EMPTY || otherFingerprint == SimHash.EMPTY
+                || SimHash.distance(fingerprint, otherFingerprint) > DuplicatesIndex.MAX_DISTANCE) {
+            return DuplicationLink.NONE;
+        }
+        return duplicatesByCreatedDate(other);
+    }
+
+    private DuplicationLink duplicatesByCreatedDate(MessageViewItem other) {
+        if (createdDate == other.createdDate) {
+            return duplicatesByFavoritedAndReblogged(other);
+        } else if (createdDate < other.createdDate) {
+            return DuplicationLink.IS_DUPLICATED;
+        } else {
+            return DuplicationLink.DUPLICATES;
+        }
+    }
+
     private DuplicationLink duplicatesByFavoritedAndReblogged(MessageViewItem other) {
         DuplicationLink link;
         if (favorited != other.favorited) {
             link = favorited ? DuplicationLink.IS_DUPLICATED : DuplicationLink.DUPLICATES;
-        } else if (isFavoritingAction != other.isFavoritingAction) {
-            link = other.isFavoritingAction ? DuplicationLink.IS_DUPLICATED : DuplicationLink.DUPLICATES;
+        } else if (isFavoritingAction() != other.isFavoritingAction()) {
+            link = other.isFavoritingAction() ? DuplicationLink.IS_DUPLICATED : DuplicationLink.DUPLICATES;
         } else if (reblogged != other.reblogged) {
             link = reblogged ? DuplicationLink.IS_DUPLICATED : DuplicationLink.DUPLICATES;
         } else if (!getLinkedMyAccount().equals(other.getLinkedMyAccount())) {
@@ -203,10 +234,7 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
 
     public StringBuilder getDetails(Context context) {
         StringBuilder builder = new StringBuilder(RelativeTime.getDifference(context, createdDate));
-        setInReplyTo(context, builder);
-        setRecipientName(context, builder);
-        setMessageSource(context, builder);
-        setMessageStatus(context, builder);
+        builder.append(getDetailsNotChangingInTime(context));
         setCollapsedStatus(context, builder);
         if (MyPreferences.isShowDebuggingInfoInUi()) {
             I18n.appendWithSpace(builder, "(msgId=" + getMsgId() + ")");
@@ -214,6 +242,16 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         return builder;
     }
 
+    /** The part of the details, which doesn't depend on current time and on collapsing */
+    protected CharSequence getDetailsNotChangingInTime(Context context) {
+        StringBuilder builder = new StringBuilder();
+        setInReplyTo(context, builder);
+        setRecipientName(context, builder);
+        setMessageSource(context, builder);
+        setMessageStatus(context, builder);
+        return builder;
+    }
+
     protected void setInReplyTo(Context context, StringBuilder messageDetails) {
         if (inReplyToMsgId != 0 && TextUtils.isEmpty(inReplyToName)) {
             inReplyToName = "...";
@@ -252,20 +290,68 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         return avatarDrawable == null ? AvatarFile.getDefaultDrawable() : avatarDrawable;
     }
 
+    public void showAvatar(@NonNull ImageView imageView) {
+        ImageDecodeScheduler.unbind(imageView);
+        imageView.setImageDrawable(getAvatar());
+    }
+
     public AttachedImageFile getAttachedImageFile() {
         return attachedImageFile;
     }
 
     public MessageViewItem setBody(String body) {
+        this.bodyToPrepare = null;
         this.body = body;
-        this.isFavoritingAction = MyHtml.isFavoritingAction(body);
+        this.favoritingAction = TriState.UNKNOWN;
+        this.cleanedBody = null;
+        this.bodyFingerprint = SimHash.EMPTY;
+        return this;
+    }
+
+    /** The body will be prepared for view lazily, see {@link MyHtml#prepareForView(String)} */
+    MessageViewItem setBodyToPrepare(String bodyToPrepare) {
+        setBody("");
+        this.bodyToPrepare = bodyToPrepare;
         return this;
     }
 
     public String getBody() {
+        if (bodyToPrepare != null) {
+            body = MyHtml.prepareForView(bodyToPrepare);
+            bodyToPrepare = null;
+        }
         return body;
     }
 
+    /** See {@link MyHtml#getCleanedBody(String)} */
+    @NonNull
+    String getCleanedBody() {
+        if (cleanedBody == null) {
+            cleanedBody = MyHtml.getCleanedBody(getBody());
+        }
+        return cleanedBody;
+    }
+
+    /** See {@link MyHtml#getBodyFingerprint(String)} */
+    long getBodyFingerprint() {
+        if (bodyFingerprint == SimHash.EMPTY) {
+            bodyFingerprint = SimHash.fingerprint(getCleanedBody());
+        }
+        return bodyFingerprint;
+    }
+
+    /** The fingerprint, stored in the database, to avoid its calculation */
+    void setBodyFingerprint(long bodyFingerprint) {
+        this.bodyFingerprint = bodyFingerprint;
+    }
+
+    boolean isFavoritingAction() {
+        if (favoritingAction == TriState.UNKNOWN) {
+            favoritingAction = TriState.fromBoolean(MyHtml.isFavoritingAction(getBody()));
+        }
+        return favoritingAction == TriState.TRUE;
+    }
+
     @Override
     public long getId() {
         return getMsgId();
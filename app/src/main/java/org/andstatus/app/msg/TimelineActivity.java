@@ -86,6 +86,7 @@ public class TimelineActivity extends MessageEditorListActivity implements
     /** Last parameters, requested to load. Thread safe. They are taken by a Loader at some time */
     private volatile TimelineListParameters paramsToLoad;
     private volatile TimelineData listData;
+    private final TimelinePrefetcher prefetcher = new TimelinePrefetcher(this);
 
     private MessageContextMenu contextMenu;
 
@@ -352,6 +353,7 @@ public class TimelineActivity extends MessageEditorListActivity implements
         hideLoading(method);
         hideSyncing(method);
         crashTest();
+        prefetcher.clear();
         saveListPosition();
         myContext.persistentTimelines().saveChanged();
         super.onPause();
@@ -550,6 +552,16 @@ public class TimelineActivity extends MessageEditorListActivity implements
             MyLog.d(this, "Start Loading older items, rows=" + totalItemCount);
             showList(WhichPage.OLDER);
         }
+        prefetchIfNeeded(firstVisibleItem, visibleItemCount, totalItemCount);
+    }
+
+    private void prefetchIfNeeded(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        WhichPage pageToPrefetch = prefetcher.onScroll(getListData(), firstVisibleItem, visibleItemCount,
+                totalItemCount);
+        if (pageToPrefetch != WhichPage.EMPTY && getListData().size() > 0 && !isLoading()) {
+            prefetcher.prefetch(TimelineListParameters.clone(getReferenceParametersFor(pageToPrefetch),
+                    pageToPrefetch));
+        }
     }
 
     private String timelineTypeButtonText() {
@@ -794,6 +806,7 @@ public class TimelineActivity extends MessageEditorListActivity implements
         }
         boolean isDifferentRequest = !params.equals(paramsToLoad);
         paramsToLoad = params;
+        prefetcher.onTimelineRequested(params.getTimeline());
         if (isLoading() && chainedRequest != TriState.TRUE) {
             if(MyLog.isVerboseEnabled()) {
                 if (isDifferentRequest) {
@@ -829,6 +842,10 @@ public class TimelineActivity extends MessageEditorListActivity implements
                 intent.setData(params.getContentUri());
             }
             saveSearchQuery();
+            TimelineLoader prefetched = prefetcher.take(params);
+            if (prefetched != null) {
+                return prefetched;
+            }
         }
         return new TimelineLoader(params, BundleUtils.fromBundle(args, IntentExtra.INSTANCE_ID));
     }
@@ -1095,6 +1112,9 @@ public class TimelineActivity extends MessageEditorListActivity implements
             default:
                 break;
         }
+        if (isRefreshNeededAfterExecuting(commandData)) {
+            prefetcher.clear();
+        }
         if (!TextUtils.isEmpty(syncingText)) {
             if (MyServiceManager.getServiceState() != MyServiceState.RUNNING) {
                 hideSyncing("Service is not running");
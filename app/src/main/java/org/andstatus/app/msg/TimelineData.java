@@ -22,6 +22,7 @@ import android.support.v4.util.Pair;
 import org.andstatus.app.WhichPage;
 import org.andstatus.app.list.ListData;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.widget.DuplicationLink;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -266,30 +267,61 @@ public class TimelineData extends ListData {
         }
     }
 
+    private static class DuplicatesGroup {
+        Pair<TimelinePage, TimelineViewItem> parent;
+        final Set<Pair<TimelinePage, TimelineViewItem>> items = new HashSet<>();
+
+        DuplicatesGroup(Pair<TimelinePage, TimelineViewItem> parent) {
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Items are grouped not only with adjacent items, but with any items of all loaded pages
+     * with the same message id or a close body fingerprint, see {@link DuplicatesIndex}.
+     * Items with close fingerprints are duplicates, even if their bodies differ a little
+     */
     private void innerCollapseDuplicates(long itemId, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
-        Pair<TimelinePage, TimelineViewItem> parent = new Pair<>(null, null);
-        Set<Pair<TimelinePage, TimelineViewItem>> group = new HashSet<>();
+        List<DuplicatesGroup> groups = new ArrayList<>();
+        DuplicatesIndex<DuplicatesGroup> index = new DuplicatesIndex<>();
+        DuplicatesGroup previous = null;
         for (TimelinePage page : pages) {
             for (TimelineViewItem item : page.items) {
-                Pair<TimelinePage, TimelineViewItem> itemPair =new Pair<>(page, item);
-                switch (item.duplicates(parent.second)) {
-                    case DUPLICATES:
-                        break;
-                    case IS_DUPLICATED:
-                        parent = itemPair;
-                        break;
-                    default:
-                        if (collapseThisGroup(itemId, parent, group, toCollapse)) {
-                            return;
+                Pair<TimelinePage, TimelineViewItem> itemPair = new Pair<>(page, item);
+                Collection<DuplicatesGroup> candidates = index.getCandidates(item.getMsgId(),
+                        item.getBodyFingerprint());
+                if (previous != null) {
+                    // Adjacent items may duplicate each other, even having distant fingerprints
+                    candidates.add(previous);
+                }
+                DuplicatesGroup group = null;
+                for (DuplicatesGroup candidate : candidates) {
+                    DuplicationLink link = item.duplicates(candidate.parent.second);
+                    if (link == DuplicationLink.NONE) {
+                        link = item.nearlyDuplicates(candidate.parent.second);
+                    }
+                    if (link != DuplicationLink.NONE) {
+                        group = candidate;
+                        if (link == DuplicationLink.IS_DUPLICATED) {
+                            group.parent = itemPair;
                         }
-                        group.clear();
-                        parent = itemPair;
                         break;
+                    }
                 }
-                group.add(itemPair);
+                if (group == null) {
+                    group = new DuplicatesGroup(itemPair);
+                    groups.add(group);
+                }
+                group.items.add(itemPair);
+                index.add(item.getMsgId(), item.getBodyFingerprint(), group);
+                previous = group;
+            }
+        }
+        for (DuplicatesGroup group : groups) {
+            if (collapseThisGroup(itemId, group.parent, group.items, toCollapse)) {
+                return;
             }
         }
-        collapseThisGroup(itemId, parent, group, toCollapse);
     }
 
     private boolean collapseThisGroup(long itemId, Pair<TimelinePage, TimelineViewItem> parent, Set<Pair<TimelinePage, TimelineViewItem>> group, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
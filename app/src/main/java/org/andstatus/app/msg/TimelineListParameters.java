@@ -20,6 +20,7 @@ import android.app.LoaderManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
@@ -27,19 +28,21 @@ import org.andstatus.app.IntentExtra;
 import org.andstatus.app.WhichPage;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.data.ParsedUri;
 import org.andstatus.app.data.ProjectionMap;
 import org.andstatus.app.data.SelectedUserIds;
 import org.andstatus.app.data.TimelineSql;
+import org.andstatus.app.database.FriendshipTable;
 import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
-import org.andstatus.app.database.UserTable;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineTitle;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SelectionAndArgs;
+import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.util.Date;
 
@@ -108,7 +111,9 @@ public class TimelineListParameters {
         }
         MyLog.v(TimelineListParameters.class, msgLog);
 
-        params.mProjection = TimelineSql.getTimelineProjection();
+        params.mProjection = TimelineSql.getTimelineProjection(params.timeline.hasSearchQuery()
+                || !TextUtils.isEmpty(SharedPreferencesUtil.getString(
+                        MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, "")));
     }
 
     public boolean isLoaded() {
@@ -243,7 +248,7 @@ public class TimelineListParameters {
         }
     }
 
-    private void prepareQueryParameters() {
+    void prepareQueryParameters() {
         switch (whichPage) {
             case CURRENT:
                 minSentDate = (new TimelineListPositionStorage(null, null, this)).getTLPosition().minSentDate;
@@ -274,6 +279,9 @@ public class TimelineListParameters {
                             "1"
                     });
                 }
+                if (SharedPreferencesUtil.getBoolean(MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS, false)) {
+                    addRepliesToMeOrMyFriendsSelection(sa);
+                }
                 break;
             case MENTIONS:
                 sa.addSelection(MsgOfUserTable.MENTIONED + " = ?", new String[] {
@@ -297,15 +305,16 @@ public class TimelineListParameters {
             case USER:
             case SENT:
                 SelectedUserIds userIds = new SelectedUserIds(timeline);
-                // Reblogs are included also
-                sa.addSelection(MsgTable.AUTHOR_ID + " " + userIds.getSql()
+                // Reblogs are included also. All conditions are on the msg table, so each of them
+                // uses its index: by author and date, by sender and date, by id of a reblogged message
+                sa.addSelection(ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.AUTHOR_ID + " " + userIds.getSql()
                                 + " OR "
-                                + MsgTable.SENDER_ID + " " + userIds.getSql()
+                                + ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENDER_ID + " " + userIds.getSql()
                                 + " OR "
-                                + "("
-                                + UserTable.LINKED_USER_ID + " " + userIds.getSql()
-                                + " AND "
-                                + MsgOfUserTable.REBLOGGED + " = 1"
+                                + ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + " IN ("
+                                + "SELECT " + MsgOfUserTable.MSG_ID + " FROM " + MsgOfUserTable.TABLE_NAME
+                                + " WHERE " + MsgOfUserTable.USER_ID + " " + userIds.getSql()
+                                + " AND " + MsgOfUserTable.REBLOGGED + "=1"
                                 + ")",
                         null);
                 break;
@@ -328,6 +337,26 @@ public class TimelineListParameters {
         return sa;
     }
 
+    /**
+     * Hide replies, which are not to any of my accounts or to users, followed by them.
+     * Uses the primary key of {@link FriendshipTable}
+     */
+    private void addRepliesToMeOrMyFriendsSelection(SelectionAndArgs sa) {
+        SelectedUserIds accountIds = new SelectedUserIds(myContext.persistentAccounts().list());
+        if (accountIds.size() == 0) {
+            return;
+        }
+        String inReplyToUserId = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.IN_REPLY_TO_USER_ID;
+        sa.addSelection(inReplyToUserId + " IS NULL"
+                        + " OR " + inReplyToUserId + "=0"
+                        + " OR " + inReplyToUserId + accountIds.getSql()
+                        + " OR EXISTS (SELECT * FROM " + FriendshipTable.TABLE_NAME
+                        + " WHERE " + FriendshipTable.USER_ID + accountIds.getSql()
+                        + " AND " + FriendshipTable.FRIEND_ID + "=" + inReplyToUserId
+                        + " AND " + FriendshipTable.FOLLOWED + "=1)",
+                null);
+    }
+
     Cursor queryDatabase() {
         prepareQueryParameters();
         return myContext.context().getContentResolver().query(getContentUri(), mProjection,
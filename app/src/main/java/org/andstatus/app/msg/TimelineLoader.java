@@ -22,13 +22,11 @@ import android.support.annotation.NonNull;
 import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.SyncLoader;
 import org.andstatus.app.WhichPage;
-import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.I18n;
-import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
@@ -42,6 +40,8 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
     private final TimelinePage page;
 
     private final long instanceId;
+    /** The page may be loaded in advance, see {@link TimelinePrefetcher} */
+    private volatile boolean loaded = false;
 
     public TimelineLoader(@NonNull TimelineListParameters params, long instanceId) {
         this.params = params;
@@ -52,6 +52,10 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
 
     @Override
     public void load(LoadableListActivity.ProgressPublisher publisher) {
+        if (loaded) {
+            logV("load", "already loaded");
+            return;
+        }
         markStart();
         if (params.whichPage != WhichPage.EMPTY) {
             Cursor cursor = queryDatabase();
@@ -59,6 +63,7 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
             loadFromCursor(cursor);
         }
         params.endTime = System.nanoTime();
+        loaded = !params.cancelled;
         logExecutionStats();
     }
 
@@ -66,7 +71,9 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
         params.startTime = System.nanoTime();
         params.cancelled = false;
         params.timelineToSync = Timeline.getEmpty(params.getMyAccount());
-        params.timeline.save(params.getMyContext());
+        if (params.timeline.getId() == 0) {
+            params.timeline.save(params.getMyContext());
+        }
         if (MyLog.isVerboseEnabled()) {
             logV("markStart", params.toSummary());
         }
@@ -118,9 +125,8 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
     private void loadFromCursor(Cursor cursor) {
         KeywordsFilter keywordsFilter = new KeywordsFilter(
                 SharedPreferencesUtil.getString(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, ""));
-        boolean hideRepliesNotToMeOrFriends = getParams().getTimelineType() == TimelineType.HOME
-                && SharedPreferencesUtil.getBoolean(MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS, false);
         KeywordsFilter searchQuery = new KeywordsFilter(getParams().getTimeline().getSearchQuery());
+        boolean filterByBody = !keywordsFilter.isEmpty() || !searchQuery.isEmpty();
 
         long startTime = System.currentTimeMillis();
         int rowsCount = 0;
@@ -133,14 +139,11 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
                         rowsCount++;
                         TimelineViewItem item = TimelineViewItem.fromCursorRow(params.getMyContext(), cursor);
                         getParams().rememberSentDateLoaded(item.sentDate);
-                        String body = MyHtml.getBodyToSearch(item.getBody());
+                        String body = filterByBody ? item.getBodyToSearch() : "";
                         boolean skip = keywordsFilter.matchedAny(body);
                         if (!skip && !searchQuery.isEmpty()) {
                             skip = !searchQuery.matchedAll(body);
                         }
-                        if (!skip && hideRepliesNotToMeOrFriends && item.inReplyToUserId != 0) {
-                            skip = !MyContextHolder.get().persistentAccounts().isMeOrMyFriend(item.inReplyToUserId);
-                        }
                         if (skip) {
                             filteredOutCount++;
                             if (MyLog.isVerboseEnabled()) {
@@ -151,7 +154,7 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
                         } else {
                             page.items.add(item);
                         }
-                    } while (cursor.moveToNext());
+                    } while (cursor.moveToNext() && !getParams().cancelled);
                 }
             } finally {
                 cursor.close();
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.util.InstanceId;
+import org.andstatus.app.util.MyLog;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the next older or younger page of a timeline in advance, while a User scrolls towards it,
+ * and keeps a few loaded pages until they are requested by {@link TimelineActivity}.
+ * Prefetching is done in the {@link MyAsyncTask.PoolEnum#DEFAULT} pool, so it doesn't delay
+ * loading of visible pages in the {@link MyAsyncTask.PoolEnum#LONG_UI} pool
+ */
+class TimelinePrefetcher {
+    private static final int MAX_PAGES = 2;
+    private static final long MAX_PAGE_AGE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    /** Prefetch, if the end of the list will be reached in this time at the current scroll speed */
+    private static final long LEAD_TIME_MILLIS = 3000;
+    /** Prefetch anyway, when so few items are left */
+    private static final int MIN_ITEMS_AHEAD = TimelineListParameters.PAGE_SIZE / 10;
+
+    private final Object tag;
+    private final Object lock = new Object();
+    @GuardedBy("lock")
+    private final Map<TimelineListParameters, TimelineLoader> loaded = new LinkedHashMap<>(4, 0.75f, true);
+    @GuardedBy("lock")
+    private PrefetchTask task = null;
+    @GuardedBy("lock")
+    private Timeline timeline = null;
+
+    // Scroll state, accessed in UI thread only
+    private int lastFirstVisibleItem = -1;
+    private long lastScrolledAt = 0;
+    /** Items per millisecond, positive while scrolling down (to older items) */
+    private float velocity = 0;
+
+    TimelinePrefetcher(Object tag) {
+        this.tag = tag;
+    }
+
+    /** @return The page to prefetch or {@link WhichPage#EMPTY} */
+    @NonNull
+    WhichPage onScroll(TimelineData data, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        long now = System.currentTimeMillis();
+        if (lastFirstVisibleItem >= 0 && now > lastScrolledAt && firstVisibleItem != lastFirstVisibleItem) {
+            float current = (float) (firstVisibleItem - lastFirstVisibleItem) / (now - lastScrolledAt);
+            velocity = (velocity + current) / 2;
+        }
+        if (firstVisibleItem != lastFirstVisibleItem) {
+            lastFirstVisibleItem = firstVisibleItem;
+            lastScrolledAt = now;
+        }
+        if (velocity > 0 && visibleItemCount > 0 && data.mayHaveOlderPage()) {
+            int itemsLeft = totalItemCount - firstVisibleItem - visibleItemCount;
+            if (itemsLeft <= MIN_ITEMS_AHEAD || itemsLeft / velocity <= LEAD_TIME_MILLIS) {
+                return WhichPage.OLDER;
+            }
+        } else if (velocity < 0 && data.mayHaveYoungerPage()) {
+            if (firstVisibleItem <= MIN_ITEMS_AHEAD || firstVisibleItem / -velocity <= LEAD_TIME_MILLIS) {
+                return WhichPage.YOUNGER;
+            }
+        }
+        return WhichPage.EMPTY;
+    }
+
+    /** Start loading the page in background, unless it is loaded or being loaded already */
+    void prefetch(@NonNull TimelineListParameters params) {
+        if (params.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            onTimelineRequested(params.getTimeline());
+            if (loaded.containsKey(params) || (task != null && !task.isFinished())) {
+                return;
+            }
+            task = new PrefetchTask(params);
+            if (!AsyncTaskLauncher.execute(tag, false, task)) {
+                task = null;
+            }
+        }
+    }
+
+    /**
+     * Called by a loader, not in UI thread
+     * @return The loaded page, which is removed from the cache, or null
+     */
+    @Nullable
+    TimelineLoader take(@NonNull TimelineListParameters params) {
+        synchronized (lock) {
+            removeExpired();
+            TimelineLoader loader = loaded.remove(params);
+            if (loader != null) {
+                MyLog.v(tag, "Prefetched page used: " + params.toSummary());
+            }
+            return loader;
+        }
+    }
+
+    /** Prefetched pages of other timelines are not needed anymore */
+    void onTimelineRequested(Timeline timelineNew) {
+        synchronized (lock) {
+            if (timeline != null && !timeline.equals(timelineNew)) {
+                clear();
+            }
+            timeline = timelineNew;
+        }
+    }
+
+    /** Cancel prefetching and forget all prefetched pages, e.g. because the data changed */
+    void clear() {
+        synchronized (lock) {
+            if (task != null) {
+                task.params.cancelled = true;
+                task.cancel(false);
+                task = null;
+            }
+            loaded.clear();
+        }
+        velocity = 0;
+    }
+
+    boolean isPrefetching() {
+        synchronized (lock) {
+            return task != null && !task.isFinished();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void removeExpired() {
+        long now = System.nanoTime();
+        for (Iterator<TimelineLoader> iterator = loaded.values().iterator(); iterator.hasNext(); ) {
+            TimelineLoader loader = iterator.next();
+            if (TimeUnit.NANOSECONDS.toMillis(now - loader.getParams().endTime) > MAX_PAGE_AGE_MILLIS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void onLoaded(PrefetchTask loadedBy, TimelineLoader loader) {
+        synchronized (lock) {
+            if (task != loadedBy || loader.getParams().cancelled) {
+                return;
+            }
+            loaded.put(loader.getParams(), loader);
+            Iterator<TimelineListParameters> iterator = loaded.keySet().iterator();
+            while (loaded.size() > MAX_PAGES && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+            task = null;
+        }
+    }
+
+    private class PrefetchTask extends MyAsyncTask<Void, Void, Void> {
+        final TimelineListParameters params;
+
+        PrefetchTask(TimelineListParameters params) {
+            super(MyLog.objTagToString(tag) + "Prefetch", PoolEnum.DEFAULT);
+            this.params = params;
+        }
+
+        @Override
+        protected Void doInBackground2(Void... voids) {
+            // This thread is shared with other background tasks
+            int tid = Process.myTid();
+            int priorityStored = Process.getThreadPriority(tid);
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE);
+            try {
+                TimelineLoader loader = new TimelineLoader(params, InstanceId.next());
+                loader.load(null);
+                onLoaded(this, loader);
+            } finally {
+                Process.setThreadPriority(priorityStored);
+            }
+            return null;
+        }
+
+        boolean isFinished() {
+            return getStatus() == Status.FINISHED || isCancelled();
+        }
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.andstatus.app.msg;
 
+import android.content.Context;
 import android.database.Cursor;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
 import android.text.Html;
 import android.text.TextUtils;
+import android.widget.ImageView;
 
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
@@ -40,10 +44,18 @@ import org.andstatus.app.util.MyLog;
 public class TimelineViewItem extends MessageViewItem {
     private final static TimelineViewItem EMPTY = new TimelineViewItem();
 
+    private String bodyToSearch = "";
+    private String via = "";
+    private AvatarFile avatarFile = null;
+    private long attachedImageRowId = 0;
+    private String attachedImageFilename = null;
+    private String detailsNotChangingInTime = null;
+
     public static TimelineViewItem getEmpty() {
         return EMPTY;
     }
 
+    /** Cheap fields are read from the cursor here, expensive ones are computed on the first request */
     public static TimelineViewItem fromCursorRow(MyContext myContext, Cursor cursor) {
         TimelineViewItem item = new TimelineViewItem();
         item.setMyContext(myContext);
@@ -53,7 +65,14 @@ public class TimelineViewItem extends MessageViewItem {
 
         item.authorName = TimelineSql.userColumnIndexToNameAtTimeline(cursor,
                 cursor.getColumnIndex(UserTable.AUTHOR_NAME), MyPreferences.getShowOrigin());
-        item.setBody(MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)));
+        String bodyToView = DbUtils.getString(cursor, MsgTable.BODY_TO_VIEW);
+        if (TextUtils.isEmpty(bodyToView)) {
+            item.setBodyToPrepare(DbUtils.getString(cursor, MsgTable.BODY));
+        } else {
+            item.setBody(bodyToView);
+        }
+        item.setBodyFingerprint(DbUtils.getLong(cursor, MsgTable.BODY_FINGERPRINT));
+        item.bodyToSearch = DbUtils.getString(cursor, MsgTable.BODY_TO_SEARCH);
         item.inReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
         item.inReplyToUserId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_USER_ID);
         item.inReplyToName = DbUtils.getString(cursor, UserTable.IN_REPLY_TO_NAME);
@@ -81,20 +100,63 @@ public class TimelineViewItem extends MessageViewItem {
             }
         }
 
-        String via = DbUtils.getString(cursor, MsgTable.VIA);
-        if (!TextUtils.isEmpty(via)) {
-            item.messageSource = Html.fromHtml(via).toString().trim();
-        }
-
-        item.avatarDrawable = AvatarFile.getDrawable(item.authorId, cursor);
+        item.via = DbUtils.getString(cursor, MsgTable.VIA);
+        item.avatarFile = AvatarFile.fromCursor(item.authorId, cursor);
         if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
-            item.attachedImageFile = new AttachedImageFile(
-                    DbUtils.getLong(cursor, DownloadTable.IMAGE_ID),
-                    DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME));
+            item.attachedImageRowId = DbUtils.getLong(cursor, DownloadTable.IMAGE_ID);
+            item.attachedImageFilename = DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME);
         }
         return item;
     }
 
+    /** See {@link MyHtml#getBodyToSearch(String)} */
+    @NonNull
+    String getBodyToSearch() {
+        if (TextUtils.isEmpty(bodyToSearch)) {
+            bodyToSearch = MyHtml.getBodyToSearch(getBody());
+        }
+        return bodyToSearch;
+    }
+
+    @NonNull
+    @Override
+    public Drawable getAvatar() {
+        if (avatarDrawable == null && avatarFile != null) {
+            avatarDrawable = avatarFile.getDrawable();
+        }
+        return super.getAvatar();
+    }
+
+    @Override
+    public void showAvatar(@NonNull ImageView imageView) {
+        if (avatarDrawable == null && avatarFile != null) {
+            avatarFile.showAvatar(imageView);
+        } else {
+            super.showAvatar(imageView);
+        }
+    }
+
+    @Override
+    public AttachedImageFile getAttachedImageFile() {
+        if (attachedImageRowId != 0) {
+            attachedImageFile = new AttachedImageFile(attachedImageRowId, attachedImageFilename);
+            attachedImageRowId = 0;
+            attachedImageFilename = null;
+        }
+        return super.getAttachedImageFile();
+    }
+
+    @Override
+    protected CharSequence getDetailsNotChangingInTime(Context context) {
+        if (detailsNotChangingInTime == null) {
+            if (!TextUtils.isEmpty(via)) {
+                messageSource = Html.fromHtml(via).toString().trim();
+            }
+            detailsNotChangingInTime = super.getDetailsNotChangingInTime(context).toString();
+        }
+        return detailsNotChangingInTime;
+    }
+
     private void addReblogger(long userId, String userName) {
         rebloggers.put(userId, userName);
     }
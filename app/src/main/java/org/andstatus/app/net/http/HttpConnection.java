@@ -29,6 +29,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
 
 public abstract class HttpConnection {
     public HttpConnectionData data;
@@ -119,10 +120,35 @@ public abstract class HttpConnection {
         return getRequestCommon(path, true).getJsonArray();
     }
 
+    /**
+     * A partial file, left by a previous attempt, is resumed, if the connection supports this,
+     * see {@link PartialFile}. The file is kept after a soft error for the next attempt.
+     * A resumed file, which doesn't match its checksum, is downloaded again from the start
+     */
     public final void downloadFile(String url, File file) throws ConnectionException {
+        if (!downloadFileOnce(url, file)) {
+            MyLog.i(this, "Downloading again " + url);
+            downloadFileOnce(url, file);
+        }
+    }
+
+    /** @return false if the resumed file didn't match its checksum and was deleted */
+    private boolean downloadFileOnce(String url, File file) throws ConnectionException {
         HttpReadResult result = new HttpReadResult(url, file);
-        getRequest(result);
-        result.parseAndThrow();
+        try {
+            getRequest(result);
+            result.parseAndThrow();
+        } catch (ConnectionException e) {
+            if (e.isHardError() || result.isRangeNotSatisfiable()) {
+                PartialFile.delete(file);
+            }
+            throw e;
+        }
+        try {
+            return result.partialFile.onCompleted();
+        } catch (IOException e) {
+            throw new ConnectionException(result.toString(), e);
+        }
     }
     
     protected abstract void getRequest(HttpReadResult result) throws ConnectionException;
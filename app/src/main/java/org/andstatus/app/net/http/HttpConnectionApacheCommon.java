@@ -23,6 +23,7 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.util.FileUtils;
+import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
 import cz.msebera.android.httpclient.Header;
@@ -41,6 +42,7 @@ import cz.msebera.android.httpclient.message.BasicNameValuePair;
 import cz.msebera.android.httpclient.protocol.HTTP;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -61,14 +63,21 @@ public class HttpConnectionApacheCommon {
             httpPost.setProtocolVersion(HttpVersion.HTTP_1_0);
         }
         try {
+            boolean withMedia = result.hasFormParams()
+                    && result.getFormParams().has(HttpConnection.KEY_MEDIA_PART_URI);
             if ( !result.hasFormParams()) {
                 // Nothing to do at this step
-            } else if (result.getFormParams().has(HttpConnection.KEY_MEDIA_PART_URI)) {
+            } else if (withMedia) {
                 fillMultiPartPost(httpPost, result.getFormParams());
             } else {
                 fillSinglePartPost(httpPost, result.getFormParams());
             }
+            long startedAt = System.currentTimeMillis();
             specific.httpApachePostRequest(httpPost, result);
+            if (withMedia) {
+                MyLog.i(this, "Uploaded " + I18n.formatBytes(httpPost.getEntity().getContentLength())
+                        + " in " + (System.currentTimeMillis() - startedAt) + "ms; " + result.getUrl());
+            }
         } catch (UnsupportedEncodingException e) {
             MyLog.i(this, e);
         }
@@ -94,12 +103,18 @@ public class HttpConnectionApacheCommon {
         }
         if (!TextUtils.isEmpty(mediaPartName) && !UriUtils.isEmpty(mediaUri)) {
             try {
-                InputStream ins = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
                 ContentType contentType2 = ContentType.create(MyContentType.uri2MimeType(mediaUri, null));
-                if (httpPost.getProtocolVersion() == HttpVersion.HTTP_1_0 ) {
-                    builder.addBinaryBody(mediaPartName, FileUtils.getBytes(ins), contentType2, mediaUri.getPath());
+                if ("file".equals(mediaUri.getScheme())) {
+                    // The length is known, so the body is not chunked
+                    File file = new File(mediaUri.getPath());
+                    builder.addBinaryBody(mediaPartName, file, contentType2, file.getName());
                 } else {
-                    builder.addBinaryBody(mediaPartName, ins, contentType2, mediaUri.getPath());
+                    InputStream ins = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
+                    if (httpPost.getProtocolVersion() == HttpVersion.HTTP_1_0 ) {
+                        builder.addBinaryBody(mediaPartName, FileUtils.getBytes(ins), contentType2, mediaUri.getPath());
+                    } else {
+                        builder.addBinaryBody(mediaPartName, ins, contentType2, mediaUri.getPath());
+                    }
                 }
             } catch (SecurityException | IOException e) {
                 throw ConnectionException.hardConnectionException("mediaUri='" + mediaUri + "'", e);
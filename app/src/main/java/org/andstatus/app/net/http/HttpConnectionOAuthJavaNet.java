@@ -16,6 +16,7 @@
 
 package org.andstatus.app.net.http;
 
+import android.content.res.AssetFileDescriptor;
 import android.net.Uri;
 
 import org.andstatus.app.context.MyContextHolder;
@@ -23,12 +24,12 @@ import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
-import org.andstatus.app.util.FileUtils;
+import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -50,6 +51,7 @@ import oauth.signpost.exception.OAuthExpectationFailedException;
 import oauth.signpost.exception.OAuthMessageSignerException;
 
 public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
+    private static final int MEDIA_BUFFER_LENGTH = 64 * 1024;
     private static final String UTF_8 = "UTF-8";
 
     /**
@@ -146,29 +148,49 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         }
     }
 
-    /** This method is not legacy HTTP */
+    /**
+     * This method is not legacy HTTP.
+     * The media is streamed with a known length, if possible, so the request is not chunked
+     */
     private void writeMedia(HttpURLConnection conn, JSONObject formParams)
             throws IOException, JSONException {
         Uri mediaUri = Uri.parse(formParams.getString(KEY_MEDIA_PART_URI));
-        conn.setChunkedStreamingMode(0);
-        conn.setRequestProperty("Content-Type", MyContentType.uri2MimeType(mediaUri, null));
-        signConnection(conn, getConsumer(), false);
-                
-        InputStream in = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
+        AssetFileDescriptor fd = MyContextHolder.get().context().getContentResolver()
+                .openAssetFileDescriptor(mediaUri, "r");
+        if (fd == null) {
+            throw new FileNotFoundException("mediaUri='" + mediaUri + "'");
+        }
+        long startedAt = System.currentTimeMillis();
+        long written = 0;
+        InputStream in = null;
+        OutputStream out = null;
         try {
-            byte[] buffer = new byte[1024];
-            int length;
-            OutputStream out = new BufferedOutputStream(conn.getOutputStream());
-            try {
-                while ((length = in.read(buffer)) > 0) {
-                    out.write(buffer, 0, length);
-                }
-            } finally {
-                DbUtils.closeSilently(out);
+            long length = fd.getLength();
+            if (length == AssetFileDescriptor.UNKNOWN_LENGTH) {
+                length = fd.getParcelFileDescriptor().getStatSize();
+            }
+            if (length >= 0 && length <= Integer.MAX_VALUE) {
+                conn.setFixedLengthStreamingMode((int) length);
+            } else {
+                conn.setChunkedStreamingMode(0);
+            }
+            conn.setRequestProperty("Content-Type", MyContentType.uri2MimeType(mediaUri, null));
+            signConnection(conn, getConsumer(), false);
+            in = fd.createInputStream();
+            out = conn.getOutputStream();
+            byte[] buffer = new byte[MEDIA_BUFFER_LENGTH];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+                written += count;
             }
         } finally {
-            DbUtils.closeSilently(in);
+            DbUtils.closeSilently(out);
+            // The stream closes the file descriptor
+            DbUtils.closeSilently(in == null ? fd.getParcelFileDescriptor() : in);
         }
+        MyLog.i(this, "Uploaded " + I18n.formatBytes(written) + " in "
+                + (System.currentTimeMillis() - startedAt) + "ms, mediaUri='" + mediaUri + "'");
     }
 
     private void writeJson(HttpURLConnection conn, JSONObject formParams) throws IOException {
@@ -211,12 +233,15 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                 if (result.authenticate) {
                     signConnection(conn, consumer, redirected);
                 }
+                if (result.partialFile != null) {
+                    result.partialFile.setRequestHeaders(conn);
+                }
                 conn.connect();
                 result.setStatusCode(conn.getResponseCode());
                 switch(result.getStatusCode()) {
                     case OK:
                         if (result.fileResult != null) {
-                            FileUtils.readStreamToFile(conn.getInputStream(), result.fileResult);
+                            result.partialFile.readResponse(conn);
                         } else {
                             result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
                         }
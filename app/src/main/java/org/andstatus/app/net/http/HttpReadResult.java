@@ -43,6 +43,7 @@ public class HttpReadResult {
     Exception e1 = null;
     String strResponse = "";
     final File fileResult;
+    final PartialFile partialFile;
     String statusLine = "";
     private int intStatusCode = 0;
     private StatusCode statusCode = StatusCode.UNKNOWN;
@@ -56,6 +57,7 @@ public class HttpReadResult {
     public HttpReadResult(String urlIn, File file) throws ConnectionException {
         urlInitial = urlIn;
         fileResult = file;
+        partialFile = file == null ? null : new PartialFile(file, urlIn);
         setUrl(urlIn);
     }
 
@@ -79,6 +81,10 @@ public class HttpReadResult {
     public StatusCode getStatusCode() {
         return statusCode;
     }
+
+    boolean isRangeNotSatisfiable() {
+        return intStatusCode == 416;
+    }
     
     public String getUrl() {
         return urlString;
@@ -114,7 +120,7 @@ public class HttpReadResult {
                 + (redirected ? "; redirected from:'" + urlInitial + "'" : "")
                 + ( hasFormParams() ? "; posted:'" + formParams.toString() + "'" : "")
                 + (TextUtils.isEmpty(strResponse) ? "" : "; response:'" + I18n.trimTextAt(strResponse, 40) + "'")
-                + (fileResult == null ? "" : "; saved to file");
+                + (fileResult == null ? "" : "; saved to file " + partialFile);
     }
     
     JSONObject getJsonObject() throws ConnectionException {
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+import android.util.Base64;
+
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.FileUtils;
+import org.andstatus.app.util.MyLog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A file, which is being downloaded and may be resumed by a later attempt with a HTTP Range request.
+ * The URL, the validator (ETag or Last-Modified) of the response and the expected length of the file
+ * are kept in a companion file, which is written before the content, so a partial file,
+ * left after a network error, is resumed only if it's still the same entity on the server.
+ * A checksum of the whole file, if the server sent it in the "Digest" or the "Content-MD5" header,
+ * is kept there also and is checked on completion. Without a checksum only the length is checked.
+ * Connections, which don't support Range requests, simply overwrite the file
+ */
+public class PartialFile {
+    private static final String TAG = PartialFile.class.getSimpleName();
+    static final String VALIDATOR_FILE_SUFFIX = ".validator";
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+    /** Algorithms of the "Digest" header (RFC 3230) and their names in {@link MessageDigest} */
+    private static final String[][] DIGEST_ALGORITHMS = {{"SHA-256", "SHA-256"}, {"SHA-512", "SHA-512"},
+            {"SHA", "SHA-1"}, {"MD5", "MD5"}};
+
+    final File file;
+    private final File validatorFile;
+    private final String url;
+    private String validator = "";
+    private long resumeFrom = 0;
+    /** As announced in the response, -1 if unknown */
+    private long expectedLength = -1;
+    /** Algorithm of {@link MessageDigest}, "=" and Base64 encoded digest of the whole file. Empty if unknown */
+    private String checksum = "";
+    private boolean append = false;
+
+    PartialFile(@NonNull File file, String url) {
+        this.file = file;
+        this.url = url;
+        validatorFile = new File(file.getPath() + VALIDATOR_FILE_SUFFIX);
+        load();
+    }
+
+    private void load() {
+        if (!file.isFile() || file.length() == 0 || !validatorFile.isFile()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(validatorFile),
+                    HttpConnectionUtils.UTF_8));
+            String urlStored = reader.readLine();
+            String validatorStored = reader.readLine();
+            String lengthStored = reader.readLine();
+            String checksumStored = reader.readLine();
+            long length = TextUtils.isEmpty(lengthStored) ? -1 : Long.parseLong(lengthStored);
+            if (url.equals(urlStored) && !TextUtils.isEmpty(validatorStored)
+                    && (length < 0 || file.length() < length)) {
+                validator = validatorStored;
+                resumeFrom = file.length();
+                checksum = checksumStored == null ? "" : checksumStored;
+            }
+        } catch (IOException | NumberFormatException e) {
+            MyLog.d(TAG, "Failed to read " + validatorFile, e);
+        } finally {
+            DbUtils.closeSilently(reader);
+        }
+    }
+
+    public boolean isResumable() {
+        return resumeFrom > 0;
+    }
+
+    long getResumeFrom() {
+        return resumeFrom;
+    }
+
+    /** Asks the server to send the rest of the file, if the file didn't change */
+    void setRequestHeaders(HttpURLConnection conn) {
+        if (isResumable()) {
+            conn.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+            conn.setRequestProperty("If-Range", validator);
+        }
+    }
+
+    /** Reads the content of a successful response, either complete or partial */
+    void readResponse(HttpURLConnection conn) throws IOException {
+        String encoding = conn.getHeaderField("Content-Encoding");
+        // Checksums of an encoded content don't match the decoded file
+        boolean mayHaveChecksum = TextUtils.isEmpty(encoding) || "identity".equalsIgnoreCase(encoding.trim());
+        if (conn.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+            // "Content-MD5" of a partial response is a checksum of the part only
+            onPartialContent(conn.getHeaderField("Content-Range"),
+                    mayHaveChecksum ? parseChecksum(conn.getHeaderField("Digest"), null) : "");
+        } else {
+            String validatorNew = conn.getHeaderField("ETag");
+            if (TextUtils.isEmpty(validatorNew)) {
+                validatorNew = conn.getHeaderField("Last-Modified");
+            }
+            onFullContent(validatorNew, parseLong(conn.getHeaderField("Content-Length")),
+                    mayHaveChecksum ? parseChecksum(conn.getHeaderField("Digest"), conn.getHeaderField("Content-MD5"))
+                            : "");
+        }
+        readStream(conn.getInputStream());
+    }
+
+    /**
+     * @param digest Value of the "Digest" header, e.g. "SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE="
+     * @param contentMd5 Value of the "Content-MD5" header, Base64 encoded
+     * @return Checksum in the format of {@link #checksum} or an empty string, if no supported checksum was sent
+     */
+    @NonNull
+    static String parseChecksum(String digest, String contentMd5) {
+        if (!TextUtils.isEmpty(digest)) {
+            for (String[] algorithm : DIGEST_ALGORITHMS) {
+                for (String instanceDigest : digest.split(",")) {
+                    int indEquals = instanceDigest.indexOf('=');
+                    if (indEquals > 0 && instanceDigest.substring(0, indEquals).trim().equalsIgnoreCase(algorithm[0])) {
+                        return algorithm[1] + "=" + instanceDigest.substring(indEquals + 1).trim();
+                    }
+                }
+            }
+        }
+        if (!TextUtils.isEmpty(contentMd5)) {
+            return "MD5=" + contentMd5.trim();
+        }
+        return "";
+    }
+
+    void onFullContent(String validatorNew, long contentLength, String checksumNew) {
+        if (isResumable()) {
+            MyLog.v(TAG, "Server sent the whole file instead of the rest from " + resumeFrom + " of " + file);
+        }
+        resumeFrom = 0;
+        append = false;
+        expectedLength = contentLength;
+        validator = validatorNew == null ? "" : validatorNew;
+        checksum = checksumNew == null ? "" : checksumNew;
+        saveValidator();
+    }
+
+    /** @param checksumNew Checksum of the whole file, if the server sent it, or empty to use the stored one */
+    void onPartialContent(String contentRange, String checksumNew) throws IOException {
+        Matcher matcher = contentRange == null ? null : CONTENT_RANGE_PATTERN.matcher(contentRange.trim());
+        if (!isResumable() || matcher == null || !matcher.matches()
+                || Long.parseLong(matcher.group(1)) != resumeFrom) {
+            delete(file);
+            throw new IOException("Unexpected Content-Range:'" + contentRange + "', resume from:" + resumeFrom);
+        }
+        append = true;
+        expectedLength = "*".equals(matcher.group(3)) ? -1 : Long.parseLong(matcher.group(3));
+        if (!TextUtils.isEmpty(checksumNew)) {
+            checksum = checksumNew;
+        }
+        MyLog.v(TAG, "Resuming from " + resumeFrom + " of " + expectedLength + " bytes, " + file);
+    }
+
+    /** The validator is written before the content, so the content may be resumed after any failure */
+    private void saveValidator() {
+        if (TextUtils.isEmpty(validator)) {
+            deleteValidatorFile();
+            return;
+        }
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(validatorFile), HttpConnectionUtils.UTF_8);
+            writer.write(url + "\n" + validator + "\n" + (expectedLength < 0 ? "" : Long.toString(expectedLength)) + "\n"
+                    + checksum + "\n");
+        } catch (IOException e) {
+            MyLog.d(TAG, "Failed to write " + validatorFile, e);
+        } finally {
+            DbUtils.closeSilently(writer);
+        }
+    }
+
+    void readStream(InputStream in) throws IOException {
+        FileUtils.readStreamToFile(in, file, append);
+    }
+
+    /**
+     * Checks the length of the downloaded file against the length, announced by the server,
+     * and its checksum, if known. A complete file doesn't need its companion file anymore
+     * @return false if the resumed file doesn't match the checksum. The file is deleted,
+     * so it may be downloaded again from the start
+     */
+    boolean onCompleted() throws IOException {
+        long length = file.length();
+        if (expectedLength >= 0 && length != expectedLength) {
+            if (length > expectedLength) {
+                delete(file);
+            }
+            throw new IOException("Downloaded " + length + " of " + expectedLength + " bytes, " + file);
+        }
+        if (!matchesChecksum()) {
+            delete(file);
+            if (append) {
+                MyLog.i(TAG, "Resumed file doesn't match checksum " + checksum + ", deleted " + file);
+                return false;
+            }
+            throw new IOException("Downloaded file doesn't match checksum " + checksum + ", " + file);
+        }
+        deleteValidatorFile();
+        return true;
+    }
+
+    /** @return true also if the checksum is unknown or can't be checked */
+    private boolean matchesChecksum() {
+        int indEquals = checksum.indexOf('=');
+        if (indEquals <= 0) {
+            return true;
+        }
+        InputStream in = null;
+        try {
+            byte[] expected = Base64.decode(checksum.substring(indEquals + 1), Base64.DEFAULT);
+            MessageDigest md = MessageDigest.getInstance(checksum.substring(0, indEquals));
+            in = new FileInputStream(file);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+            return Arrays.equals(expected, md.digest());
+        } catch (IllegalArgumentException | NoSuchAlgorithmException | IOException e) {
+            MyLog.d(TAG, "Couldn't check checksum " + checksum + " of " + file, e);
+            return true;
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+    }
+
+    private void deleteValidatorFile() {
+        if (validatorFile.exists() && !validatorFile.delete()) {
+            MyLog.d(TAG, "Couldn't delete " + validatorFile);
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return TextUtils.isEmpty(value) ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Deletes the (partially) downloaded file and its companion file */
+    public static void delete(File file) {
+        if (file == null) {
+            return;
+        }
+        if (file.exists() && !file.delete()) {
+            MyLog.d(TAG, "Couldn't delete " + file);
+        }
+        File validatorFile = new File(file.getPath() + VALIDATOR_FILE_SUFFIX);
+        if (validatorFile.exists() && !validatorFile.delete()) {
+            MyLog.d(TAG, "Couldn't delete " + validatorFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.getName() + (isResumable() ? "; resume from:" + resumeFrom : "");
+    }
+}
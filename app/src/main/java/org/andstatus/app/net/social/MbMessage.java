@@ -105,6 +105,14 @@ public class MbMessage {
         return MyHtml.getBodyToSearch(body);
     }
 
+    public String getBodyToView() {
+        return MyHtml.prepareForView(body);
+    }
+
+    public long getBodyFingerprint() {
+        return MyHtml.getBodyFingerprint(body);
+    }
+
     private boolean isHtmlContentAllowed() {
         return MyContextHolder.get().persistentOrigins().isHtmlContentAllowed(originId);
     }
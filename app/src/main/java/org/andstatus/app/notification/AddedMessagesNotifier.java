@@ -19,6 +19,7 @@ package org.andstatus.app.notification;
 import android.app.Notification;
 import android.app.PendingIntent;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.net.Uri;
 import android.text.TextUtils;
@@ -27,6 +28,7 @@ import org.andstatus.app.R;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MessageCounters;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.msg.TimelineActivity;
@@ -35,7 +37,13 @@ import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
+/**
+ * Notifications show numbers of new messages in {@link MessageCounters}
+ * since notifications were cleared
+ */
 public class AddedMessagesNotifier {
+    /** Numbers of new messages in {@link MessageCounters} at the moment, when notifications were cleared */
+    private static final String KEY_BASE_PREFIX = "notification_base_";
     private MyContext myContext;
     private boolean mNotificationsVibrate;
 
@@ -52,15 +60,29 @@ public class AddedMessagesNotifier {
         if (!SharedPreferencesUtil.getBoolean(MyPreferences.KEY_NOTIFICATIONS_ENABLED, false)) {
             return;
         }
-        notifyForOneType(TimelineType.HOME, result.getMessagesAdded());
-        notifyForOneType(TimelineType.MENTIONS, result.getMentionsAdded());
-        notifyForOneType(TimelineType.DIRECT, result.getDirectedAdded());
+        MessageCounters.Counts counts = MessageCounters.getCounts(0);
+        notifyForOneType(TimelineType.HOME, counts.newCount, result.getMessagesAdded());
+        notifyForOneType(TimelineType.MENTIONS, counts.mentionsCount, result.getMentionsAdded());
+        notifyForOneType(TimelineType.DIRECT, counts.directCount, result.getDirectedAdded());
+    }
+
+    /** Numbers of new messages in next notifications will start from zero */
+    public void clearCounters() {
+        MessageCounters.Counts counts = MessageCounters.getCounts(0);
+        SharedPreferencesUtil.putLong(KEY_BASE_PREFIX + TimelineType.HOME.save(), counts.newCount);
+        SharedPreferencesUtil.putLong(KEY_BASE_PREFIX + TimelineType.MENTIONS.save(), counts.mentionsCount);
+        SharedPreferencesUtil.putLong(KEY_BASE_PREFIX + TimelineType.DIRECT.save(), counts.directCount);
     }
 
-    private void notifyForOneType(TimelineType timelineType, int numMessages) {
-        if (numMessages == 0 || !areNotificationsEnabled(timelineType)) {
+    /**
+     * @param count Number of new messages of the type in {@link MessageCounters}
+     * @param added Number of messages of the type, added by the last command
+     */
+    private void notifyForOneType(TimelineType timelineType, long count, int added) {
+        if (added == 0 || !areNotificationsEnabled(timelineType)) {
             return;
         }
+        int numMessages = getNumberToShow(timelineType, count, added);
 
         MyLog.v(this, "n=" + numMessages + "; timelineType=" + timelineType);
 
@@ -97,6 +119,19 @@ public class AddedMessagesNotifier {
         notify(timelineType, messageTitleResId, messageText);
     }
 
+    /** Number of new messages since notifications were cleared. A base of zero is a valid base */
+    static int getNumberToShow(TimelineType timelineType, long count, int added) {
+        String baseKey = KEY_BASE_PREFIX + timelineType.save();
+        SharedPreferences sp = SharedPreferencesUtil.getDefaultSharedPreferences();
+        long base = sp != null && sp.contains(baseKey) ? SharedPreferencesUtil.getLong(baseKey) : -1;
+        if (base < 0 || base > count) {
+            // Never cleared or the database was restored
+            base = Math.max(0, count - added);
+            SharedPreferencesUtil.putLong(baseKey, base);
+        }
+        return (int) Math.max(added, count - base);
+    }
+
     private boolean areNotificationsEnabled(TimelineType timelineType) {
         switch (timelineType) {
             case MENTIONS:
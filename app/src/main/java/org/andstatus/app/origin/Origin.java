@@ -357,6 +357,10 @@ public class Origin {
         return textLimit;
     }
 
+    public int getImageSizeMax() {
+        return originType.imageSizeMaxDefault;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -78,6 +78,7 @@ public enum OriginType implements SelectableEnum {
     private static final String USERNAME_EXAMPLES_SIMPLE = "AndStatus user357 peter";
     public static final OriginType ORIGIN_TYPE_DEFAULT = TWITTER;
     public static final int TEXT_LIMIT_MAXIMUM = 5000;
+    public static final int IMAGE_SIZE_MAX_DEFAULT = 2048;
 
     private final long id;
     private final String title;
@@ -116,6 +117,9 @@ public enum OriginType implements SelectableEnum {
     protected boolean allowHtmlDefault = true;
     /** Maximum number of characters in the message */
     protected int textLimitDefault = 0;
+    /** Maximum width and height of an uploaded image. Larger images are downscaled before upload,
+     * because the origin would recompress them anyway */
+    protected int imageSizeMaxDefault = IMAGE_SIZE_MAX_DEFAULT;
     protected URL urlDefault = null;
     private String basicPath = BASIC_PATH_DEFAULT;
     private String oauthPath = OAUTH_PATH_DEFAULT;
@@ -144,6 +148,7 @@ public enum OriginType implements SelectableEnum {
                 usernameRegEx = USERNAME_REGEX_SIMPLE;
                 validUsernameExamples = USERNAME_EXAMPLES_SIMPLE;
                 textLimitDefault = 140;
+                imageSizeMaxDefault = 4096;
                 urlDefault = UrlUtils.fromString("https://api.twitter.com");
                 basicPath = "1.1";
                 oauthPath = OAUTH_PATH_DEFAULT;
@@ -210,6 +215,7 @@ public enum OriginType implements SelectableEnum {
                 usernameRegEx = MbUser.WEBFINGER_ID_REGEX;
                 validUsernameExamples = "AndStatus@mastodon.social";
                 textLimitDefault = 500;
+                imageSizeMaxDefault = 1280;
                 basicPath = "api/v1";
                 oauthPath = "oauth";
                 originClass = OriginMastodon.class;
@@ -20,7 +20,9 @@ import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.MessageForAccount;
+import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.util.MyLog;
 
 public class AttachmentDownloader extends FileDownloader {
@@ -57,6 +59,9 @@ public class AttachmentDownloader extends FileDownloader {
     @Override
     protected void onSuccessfulLoad() {
         MyLog.v(this, "Loaded attachment " + data);
+        if (data.getContentType() == MyContentType.IMAGE) {
+            MyImageCache.prepareAttachedImageThumbnail(this, data.getFile().getFilePath(), data.getDownloadId());
+        }
     }
 
 }
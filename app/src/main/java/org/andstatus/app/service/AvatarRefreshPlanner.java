@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.AvatarData;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DownloadData;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.UriUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects avatars, which need to be downloaded, e.g. while a timeline or a list of users is being synced,
+ * and downloads them in batches: one {@link CommandEnum#FETCH_AVATAR} command (without a user)
+ * for many users instead of a command per user.
+ * Avatars of users, which are shown now, go first, then avatars of authors and senders of messages,
+ * then of other users. A download of the same URL of a user is not retried sooner than {@link #RETRY_PERIOD_MILLIS},
+ * a new URL of the user is downloaded at once. Errors of downloads are counted in the result of the batch command
+ */
+public class AvatarRefreshPlanner {
+    private static final String TAG = AvatarRefreshPlanner.class.getSimpleName();
+    static final long RETRY_PERIOD_MILLIS = TimeUnit.HOURS.toMillis(1);
+    static final int BATCH_SIZE_MAX = 100;
+    static final long BATCH_TIME_BUDGET_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    /** A batch command may be lost, e.g. on restart of the service */
+    private static final long BATCH_RESEND_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int PENDING_MAX = 5000;
+    private static final int ATTEMPTS_MAX = 1000;
+    private static final int USER_IDS_IN_QUERY_MAX = 500;
+
+    private static final Object lock = new Object();
+    @GuardedBy("lock")
+    private static final Set<Long> visible = new LinkedHashSet<>();
+    @GuardedBy("lock")
+    private static final Set<Long> pending = new LinkedHashSet<>();
+    @GuardedBy("lock")
+    private static long batchRequestedAt = 0;
+    /** Last download attempts. Keys are user ids, an attempt is removed, when the user's URL changes */
+    @GuardedBy("lock")
+    private static final Map<Long, Attempt> attempts = new LinkedHashMap<Long, Attempt>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Attempt> eldest) {
+            return size() > ATTEMPTS_MAX;
+        }
+    };
+
+    private static class Attempt {
+        final String url;
+        final long time;
+
+        Attempt(String url, long time) {
+            this.url = url;
+            this.time = time;
+        }
+    }
+
+    /** Finds and downloads avatars and requests batches. Replaced in tests */
+    static class Loader {
+        /** @return URL of the avatar, which should be downloaded, or an empty string */
+        String getUrlToLoad(long userId) {
+            AvatarData data = AvatarData.getForUser(userId);
+            if (UriUtils.isEmpty(data.getUri()) || data.getStatus() == DownloadStatus.LOADED
+                    || data.getStatus() == DownloadStatus.HARD_ERROR) {
+                return "";
+            }
+            return data.getUri().toString();
+        }
+
+        /** Errors are added to the result of the command */
+        DownloadStatus load(long userId, CommandData commandData) {
+            AvatarData data = AvatarData.getForUser(userId);
+            if (data.getDownloadId() == 0) {
+                data.saveToDatabase();
+            }
+            FileDownloader downloader = new AvatarDownloader(data);
+            downloader.load(commandData);
+            return downloader.getStatus();
+        }
+
+        void requestBatch() {
+            MyServiceManager.sendCommand(CommandData.newCommand(CommandEnum.FETCH_AVATAR));
+        }
+    }
+
+    static volatile Loader loader = new Loader();
+
+    private AvatarRefreshPlanner() {
+        // Empty
+    }
+
+    /** The user was inserted or updated with an avatar URL */
+    public static void onUserChanged(long userId, String avatarUrl) {
+        if (userId == 0) {
+            return;
+        }
+        synchronized (lock) {
+            Attempt attempt = attempts.get(userId);
+            if (attempt != null && !attempt.url.equals(avatarUrl)) {
+                attempts.remove(userId);
+            }
+            if (pending.size() >= PENDING_MAX) {
+                return;
+            }
+            pending.add(userId);
+        }
+        requestBatch();
+    }
+
+    /**
+     * The user's avatar is shown now, but its file is absent.
+     * The URL is not known here, but an attempt of the user is kept only while the URL is the same
+     */
+    public static void onVisible(long userId) {
+        if (userId == 0) {
+            return;
+        }
+        synchronized (lock) {
+            Attempt attempt = attempts.get(userId);
+            if (attempt != null && !isDue(attempt)) {
+                return;
+            }
+            visible.add(userId);
+        }
+        requestBatch();
+    }
+
+    private static void requestBatch() {
+        synchronized (lock) {
+            if (batchRequestedAt != 0 && System.currentTimeMillis() - batchRequestedAt < BATCH_RESEND_PERIOD_MILLIS) {
+                return;
+            }
+            batchRequestedAt = System.currentTimeMillis();
+        }
+        loader.requestBatch();
+    }
+
+    static void downloadBatch(CommandData commandData) {
+        downloadBatch(commandData, BATCH_SIZE_MAX, BATCH_TIME_BUDGET_MILLIS);
+    }
+
+    /** Downloads planned avatars, till the batch limits are reached. The rest is left for the next batch */
+    static void downloadBatch(CommandData commandData, int batchSizeMax, long timeBudgetMillis) {
+        synchronized (lock) {
+            batchRequestedAt = 0;
+        }
+        final long startedAt = System.currentTimeMillis();
+        List<Long> planned = new ArrayList<>();
+        int attempted = 0;
+        int loaded = 0;
+        while (true) {
+            if (attempted >= batchSizeMax || System.currentTimeMillis() - startedAt > timeBudgetMillis) {
+                if (postpone(planned)) {
+                    requestBatch();
+                }
+                break;
+            }
+            long userId = pollVisible();
+            if (userId == 0) {
+                if (planned.isEmpty()) {
+                    planned = planPending();
+                    if (planned.isEmpty()) {
+                        break;
+                    }
+                }
+                userId = planned.remove(0);
+            }
+            DownloadStatus status = download(userId, commandData);
+            if (status != DownloadStatus.UNKNOWN) {
+                attempted++;
+                if (status == DownloadStatus.LOADED) {
+                    loaded++;
+                    commandData.getResult().incrementDownloadedCount();
+                }
+            }
+        }
+        String message = "Avatars loaded: " + loaded + " of " + attempted
+                + " in " + (System.currentTimeMillis() - startedAt) + "ms";
+        if (commandData.getResult().hasError() && !TextUtils.isEmpty(commandData.getResult().getMessage())) {
+            message += "; " + commandData.getResult().getMessage();
+        }
+        commandData.getResult().setMessage(message);
+        MyLog.v(TAG, message);
+    }
+
+    private static long pollVisible() {
+        synchronized (lock) {
+            Iterator<Long> iterator = visible.iterator();
+            if (iterator.hasNext()) {
+                long userId = iterator.next();
+                iterator.remove();
+                pending.remove(userId);
+                return userId;
+            }
+        }
+        return 0;
+    }
+
+    /** @return true if there is something to download */
+    private static boolean postpone(List<Long> planned) {
+        synchronized (lock) {
+            if (!planned.isEmpty()) {
+                Set<Long> pendingNew = new LinkedHashSet<>(planned);
+                pendingNew.addAll(pending);
+                pending.clear();
+                pending.addAll(pendingNew);
+            }
+            return !visible.isEmpty() || !pending.isEmpty();
+        }
+    }
+
+    /** Authors and senders of messages go before other users */
+    private static List<Long> planPending() {
+        List<Long> userIds;
+        synchronized (lock) {
+            userIds = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (userIds.size() < 2) {
+            return userIds;
+        }
+        Set<Long> authors = getAuthors(userIds);
+        List<Long> planned = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            if (authors.contains(userId)) {
+                planned.add(userId);
+            }
+        }
+        for (Long userId : userIds) {
+            if (!authors.contains(userId)) {
+                planned.add(userId);
+            }
+        }
+        return planned;
+    }
+
+    private static Set<Long> getAuthors(List<Long> userIds) {
+        Set<Long> authors = new HashSet<>();
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            return authors;
+        }
+        for (int from = 0; from < userIds.size(); from += USER_IDS_IN_QUERY_MAX) {
+            String sqlIds = DownloadData.toSqlList(
+                    userIds.subList(from, Math.min(from + USER_IDS_IN_QUERY_MAX, userIds.size())));
+            String sql = "SELECT " + MsgTable.AUTHOR_ID + " FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable.AUTHOR_ID + " IN (" + sqlIds + ")"
+                    + " UNION SELECT " + MsgTable.SENDER_ID + " FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable.SENDER_ID + " IN (" + sqlIds + ")";
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery(sql, null);
+                while (cursor.moveToNext()) {
+                    authors.add(cursor.getLong(0));
+                }
+            } catch (Exception e) {
+                MyLog.d(TAG, "Failed to find authors", e);
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+        }
+        return authors;
+    }
+
+    /** @return {@link DownloadStatus#UNKNOWN} if the download was not needed or not due yet */
+    private static DownloadStatus download(long userId, CommandData commandData) {
+        String url = loader.getUrlToLoad(userId);
+        if (TextUtils.isEmpty(url)) {
+            return DownloadStatus.UNKNOWN;
+        }
+        synchronized (lock) {
+            Attempt attempt = attempts.get(userId);
+            if (attempt != null && attempt.url.equals(url) && !isDue(attempt)) {
+                return DownloadStatus.UNKNOWN;
+            }
+            attempts.put(userId, new Attempt(url, System.currentTimeMillis()));
+        }
+        return loader.load(userId, commandData);
+    }
+
+    private static boolean isDue(Attempt attempt) {
+        return System.currentTimeMillis() - attempt.time > RETRY_PERIOD_MILLIS;
+    }
+
+    /** Pending avatars belong to the database, which is being closed */
+    public static void forget() {
+        synchronized (lock) {
+            visible.clear();
+            pending.clear();
+            attempts.clear();
+            batchRequestedAt = 0;
+        }
+    }
+}
@@ -31,15 +31,18 @@ import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.graphics.ImageUploadPreparer;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbRateLimitStatus;
 import org.andstatus.app.net.social.MbTimelineItem;
 import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.notification.AddedMessagesNotifier;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TriState;
 
+import java.io.File;
 import java.util.List;
 
 class CommandExecutorOther extends CommandExecutorStrategy{
@@ -85,10 +88,15 @@ class CommandExecutorOther extends CommandExecutorStrategy{
                 FileDownloader.newForDownloadRow(execContext.getCommandData().itemId).load(execContext.getCommandData());
                 break;
             case FETCH_AVATAR:
-                (new AvatarDownloader(execContext.getCommandData().getUserId())).load(execContext.getCommandData());
+                if (execContext.getCommandData().getUserId() == 0) {
+                    AvatarRefreshPlanner.downloadBatch(execContext.getCommandData());
+                } else {
+                    (new AvatarDownloader(execContext.getCommandData().getUserId())).load(execContext.getCommandData());
+                }
                 break;
             case CLEAR_NOTIFICATIONS:
                 AppWidgets.clearAndUpdateWidgets(execContext.getMyContext());
+                AddedMessagesNotifier.newInstance(execContext.getMyContext()).clearCounters();
                 break;
             default:
                 MyLog.e(this, "Unexpected command here " + execContext.getCommandData());
@@ -369,8 +377,16 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         String status = MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId);
         String oid = getMsgOid(method, msgId, false);
         long recipientUserId = MyQuery.msgIdToLongColumnValue(MsgTable.RECIPIENT_ID, msgId);
-        Uri mediaUri = DownloadData.getSingleForMessage(msgId, MyContentType.IMAGE, Uri.EMPTY).
-                mediaUriToBePosted();
+        DownloadData image = DownloadData.getSingleForMessage(msgId, MyContentType.IMAGE, Uri.EMPTY);
+        Uri mediaUri = image.mediaUriToBePosted();
+        File mediaFile = null;
+        if (!mediaUri.equals(Uri.EMPTY) && image.getFile().exists()) {
+            mediaFile = ImageUploadPreparer.prepare(image.getFile().getFile(),
+                    execContext.getMyAccount().getOrigin().getImageSizeMax());
+            if (!mediaFile.equals(image.getFile().getFile())) {
+                mediaUri = Uri.fromFile(mediaFile);
+            }
+        }
         String msgLog = "text:'" + MyLog.trimmedString(status, 40) + "'"
                 + (mediaUri.equals(Uri.EMPTY) ? "" : "; mediaUri:'" + mediaUri + "'");
         try {
@@ -398,6 +414,8 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             logIfEmptyMessage(method, msgId, message);
         } catch (ConnectionException e) {
             logConnectionException(e, method + "; " + msgLog);
+        } finally {
+            ImageUploadPreparer.release(mediaFile, image.getFile().getFile());
         }
         if (noErrors()) {
             // The message was sent successfully, so now update unsent message
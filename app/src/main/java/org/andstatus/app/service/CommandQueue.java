@@ -26,6 +26,7 @@ import android.support.annotation.NonNull;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.SlowQueryLog;
 import org.andstatus.app.database.CommandTable;
 import org.andstatus.app.util.MyLog;
 
@@ -120,7 +121,7 @@ public class CommandQueue {
         String sql = "SELECT * FROM " + CommandTable.TABLE_NAME + " WHERE " + CommandTable.QUEUE_TYPE + "='" + queueType.save() + "'";
         Cursor c = null;
         try {
-            c = db.rawQuery(sql, null);
+            c = SlowQueryLog.rawQuery(db, sql, null);
             while (c.moveToNext()) {
                 CommandData cd = CommandData.fromCursor(MyContextHolder.get(), c);
                 if (CommandEnum.EMPTY.equals(cd.getCommand())) {
@@ -21,9 +21,12 @@ import android.net.Uri;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadFile;
+import org.andstatus.app.data.DownloadFileIndex;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.PartialFile;
 import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
 
@@ -71,7 +74,9 @@ public abstract class FileDownloader {
             return;
         }
         data.onNewDownload();
-        downloadFile();
+        if (!data.useLoadedOfTheSameUri()) {
+            downloadFile();
+        }
         data.saveToDatabase();
         if (!data.isError()) {
             onSuccessfulLoad();
@@ -82,7 +87,7 @@ public abstract class FileDownloader {
 
     private void downloadFile() {
         final String method = "downloadFile";
-        DownloadFile fileTemp = new DownloadFile("temp_" + data.getFilenameNew());
+        DownloadFile fileTemp = data.getTempFile();
         try {
             String uriString = data.getUri().toString();
             File file = fileTemp.getFile();
@@ -100,14 +105,29 @@ public abstract class FileDownloader {
                 data.softErrorLogged(method, e);
             }
         }
-        if (data.isError()) {
-            fileTemp.delete();
+        DownloadFileIndex.onStored(fileTemp.getFile());
+        if (data.isHardError()) {
+            PartialFile.delete(fileTemp.getFile());
+            DownloadFileIndex.onDeleted(fileTemp.getFilename());
+            return;
+        } else if (data.isSoftError()) {
+            MyLog.v(this, "Keeping " + fileTemp.getFilename() + " to resume the download");
+            return;
+        } else if (data.isStoredByContent()) {
+            data.onContentDownloaded(FileUtils.getSha1Hex(fileTemp.getFile()));
         }
         DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
+        if (data.isStoredByContent() && fileNew.exists()) {
+            MyLog.v(this, "The same content is stored already in " + fileNew.getFilename());
+            fileTemp.delete();
+            return;
+        }
         fileNew.delete();
         if (!data.isError() && !fileTemp.getFile().renameTo(fileNew.getFile())) {
             data.softErrorLogged(method + ", Couldn't rename file " + fileTemp + " to " + fileNew, null);
         }
+        DownloadFileIndex.onDeleted(fileTemp.getFilename());
+        DownloadFileIndex.onStored(fileNew.getFile());
     }
 
     private Connection getConnection(MyAccount ma, Uri uri) throws ConnectionException {
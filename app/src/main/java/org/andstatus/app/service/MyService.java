@@ -28,10 +28,14 @@ import net.jcip.annotations.GuardedBy;
 
 import org.andstatus.app.MyAction;
 import org.andstatus.app.appwidget.AppWidgets;
+import org.andstatus.app.backup.ProgressLogger;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.SlowQueryLog;
+import org.andstatus.app.database.DatabaseBackfill;
+import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.notification.CommandsQueueNotifier;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
@@ -493,12 +497,36 @@ public class MyService extends Service {
             }
         }
         AsyncTaskLauncher.shutdownExecutors(Collections.singleton(MyAsyncTask.PoolEnum.SYNC));
+        checkpointDatabase();
         releaseWakeLock();
         stopSelfResult(latestProcessedStartId);
         CommandsQueueNotifier.newInstance(myContext).update(
                 mainQueueSize, retryQueueSize);
     }
 
+    /**
+     * The service becomes idle, so the write-ahead log, accumulated during sync, is moved to the database file.
+     * The report of slow queries is updated also, and backfills of database upgrades,
+     * which were interrupted, are continued
+     */
+    private void checkpointDatabase() {
+        final DatabaseHolder databaseHolder = myContext.getMyDatabase();
+        if (databaseHolder == null) {
+            return;
+        }
+        AsyncTaskLauncher.execute(this, false,
+                new MyAsyncTask<Void, Void, Void>("checkpoint", MyAsyncTask.PoolEnum.DEFAULT) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        DatabaseBackfill.runPending(myContext, ProgressLogger.getEmpty());
+                        databaseHolder.checkpoint(false);
+                        SlowQueryLog.writeReport();
+                        return null;
+                    }
+                }
+        );
+    }
+
     private boolean couldStopExecutor(boolean forceNow) {
         final String method = "couldStopExecutor";
         StringBuilder logMessageBuilder = new StringBuilder();
@@ -42,7 +42,13 @@ import org.andstatus.app.util.ContentValuesUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author yvolk@yurivolkov.com
@@ -139,7 +145,9 @@ public class Timeline implements Comparable<Timeline> {
     private volatile int visibleY = 0;
     private volatile long visibleOldestDate = 0;
 
-    private volatile boolean changed = false;
+    /** Columns of {@link TimelineTable}, which were changed since the timeline was loaded or saved.
+     * Only these columns are written on update */
+    private final Set<String> changedColumns = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     public static Timeline getTimeline(TimelineType timelineType, MyAccount myAccount, long userId, Origin origin) {
         return getTimeline(MyContextHolder.get(), 0, timelineType, myAccount, userId, origin, "");
@@ -245,6 +253,7 @@ public class Timeline implements Comparable<Timeline> {
         timeline.visibleItemId = DbUtils.getLong(cursor, TimelineTable.VISIBLE_ITEM_ID);
         timeline.visibleY = DbUtils.getInt(cursor, TimelineTable.VISIBLE_Y);
         timeline.visibleOldestDate = DbUtils.getLong(cursor, TimelineTable.VISIBLE_OLDEST_DATE);
+        timeline.changedColumns.clear();
 
         return timeline;
     }
@@ -542,7 +551,7 @@ public class Timeline implements Comparable<Timeline> {
     public void setDisplayedInSelector(DisplayedInSelector displayedInSelector) {
         if (this.isDisplayedInSelector != displayedInSelector) {
             this.isDisplayedInSelector = displayedInSelector;
-            changed = true;
+            setChanged(TimelineTable.DISPLAYED_IN_SELECTOR);
         }
     }
 
@@ -554,10 +563,13 @@ public class Timeline implements Comparable<Timeline> {
         if (MyAsyncTask.isUiThread()) {
             throw new IllegalStateException("Saving a timeline on the Main thread " + toString());
         }
-        if (needToLoadUserInTimeline()) {
-            changed = true;
+        if (needToLoadUserInTimeline() && myContext.isReady()) {
+            userInTimeline = MyQuery.userIdToName(userId, MyPreferences.getUserInTimeline());
+            if (!TextUtils.isEmpty(userInTimeline)) {
+                setChanged(TimelineTable.USER_IN_TIMELINE);
+            }
         }
-        if (isValid() && (id == 0 || changed) && myContext.isReady()) {
+        if (isValid() && (id == 0 || isChanged()) && myContext.isReady()) {
             boolean isNew = id == 0;
             if (isNew) {
                 long duplicatedId = findDuplicateInDatabase(myContext);
@@ -590,9 +602,9 @@ public class Timeline implements Comparable<Timeline> {
     }
 
     private long saveInternal(MyContext myContext) {
-        if (needToLoadUserInTimeline()) {
-            userInTimeline = MyQuery.userIdToName(userId, MyPreferences.getUserInTimeline());
-        }
+        // Columns are marked as saved before their values are read, so a concurrent change is not lost
+        Set<String> columns = getChangedColumns();
+        changedColumns.removeAll(columns);
         ContentValues contentValues = new ContentValues();
         toContentValues(contentValues);
         if (getId() == 0) {
@@ -600,9 +612,16 @@ public class Timeline implements Comparable<Timeline> {
             MyLog.v(this, "Added " + this +
                     (myContext.isTestRun() ? " from " + MyLog.getStackTrace(new Throwable()) : ""));
         } else {
-            DbUtils.updateRowWithRetry(myContext, TimelineTable.TABLE_NAME, getId(), contentValues, 3);
+            for (String key : new ArrayList<>(contentValues.keySet())) {
+                if (!columns.contains(key)) {
+                    contentValues.remove(key);
+                }
+            }
+            if (contentValues.size() > 0 &&
+                    DbUtils.updateRowWithRetry(myContext, TimelineTable.TABLE_NAME, getId(), contentValues, 3) != 1) {
+                changedColumns.addAll(columns);
+            }
         }
-        changed = false;
         return getId();
     }
 
@@ -759,19 +778,19 @@ public class Timeline implements Comparable<Timeline> {
     public void clearPosition() {
         if (!TextUtils.isEmpty(youngestPosition)) {
             youngestPosition = "";
-            changed = true;
+            setChanged(TimelineTable.YOUNGEST_POSITION);
         }
         if (youngestItemDate > 0) {
             youngestItemDate = 0;
-            changed = true;
+            setChanged(TimelineTable.YOUNGEST_ITEM_DATE);
         }
         if (!TextUtils.isEmpty(oldestPosition)) {
             oldestPosition = "";
-            changed = true;
+            setChanged(TimelineTable.OLDEST_POSITION);
         }
         if (oldestItemDate > 0) {
             oldestItemDate = 0;
-            changed = true;
+            setChanged(TimelineTable.OLDEST_ITEM_DATE);
         }
     }
 
@@ -783,13 +802,13 @@ public class Timeline implements Comparable<Timeline> {
                 ( youngestItemDate == newDate && StringUtils.isNewFilledValue(youngestPosition, newPosition))) {
             youngestItemDate = newDate;
             youngestPosition = newPosition;
-            changed = true;
+            setChanged(TimelineTable.YOUNGEST_ITEM_DATE, TimelineTable.YOUNGEST_POSITION);
         }
         if (oldestItemDate == 0 || oldestItemDate > newDate ||
                 (oldestItemDate == newDate && StringUtils.isNewFilledValue(oldestPosition, newPosition))) {
             oldestItemDate = newDate;
             oldestPosition = newPosition;
-            changed = true;
+            setChanged(TimelineTable.OLDEST_ITEM_DATE, TimelineTable.OLDEST_POSITION);
         }
     }
 
@@ -808,7 +827,7 @@ public class Timeline implements Comparable<Timeline> {
     public void setYoungestSyncedDate(long newDate) {
         if (youngestSyncedDate < newDate) {
             youngestSyncedDate = newDate;
-            changed = true;
+            setChanged(TimelineTable.YOUNGEST_SYNCED_DATE);
         }
     }
 
@@ -827,7 +846,7 @@ public class Timeline implements Comparable<Timeline> {
     public void setOldestSyncedDate(long newDate) {
         if (oldestSyncedDate < newDate) {
             oldestSyncedDate = newDate;
-            changed = true;
+            setChanged(TimelineTable.OLDEST_SYNCED_DATE);
         }
     }
 
@@ -837,8 +856,8 @@ public class Timeline implements Comparable<Timeline> {
 
     public void setVisibleItemId(long visibleItemId) {
         if (this.visibleItemId != visibleItemId) {
-            changed = true;
             this.visibleItemId = visibleItemId;
+            setChanged(TimelineTable.VISIBLE_ITEM_ID);
         }
     }
 
@@ -848,8 +867,8 @@ public class Timeline implements Comparable<Timeline> {
 
     public void setVisibleY(int visibleY) {
         if (this.visibleY != visibleY) {
-            changed = true;
             this.visibleY = visibleY;
+            setChanged(TimelineTable.VISIBLE_Y);
         }
     }
 
@@ -859,8 +878,8 @@ public class Timeline implements Comparable<Timeline> {
 
     public void setVisibleOldestDate(long visibleOldestDate) {
         if (this.visibleOldestDate != visibleOldestDate) {
-            changed = true;
             this.visibleOldestDate = visibleOldestDate;
+            setChanged(TimelineTable.VISIBLE_OLDEST_DATE);
         }
     }
 
@@ -871,12 +890,25 @@ public class Timeline implements Comparable<Timeline> {
     public void setSyncedAutomatically(boolean isSyncedAutomatically) {
         if (this.isSyncedAutomatically != isSyncedAutomatically && isSyncableAutomatically()) {
             this.isSyncedAutomatically = isSyncedAutomatically;
-            changed = true;
+            setChanged(TimelineTable.IS_SYNCED_AUTOMATICALLY);
         }
     }
 
     public boolean isChanged() {
-        return changed;
+        return !changedColumns.isEmpty();
+    }
+
+    private void setChanged(String... columns) {
+        Collections.addAll(changedColumns, columns);
+    }
+
+    void setChanged(Collection<String> columns) {
+        changedColumns.addAll(columns);
+    }
+
+    /** @return A copy of the columns, which were changed since the last save */
+    Set<String> getChangedColumns() {
+        return new HashSet<>(changedColumns);
     }
 
     public Timeline cloneForAccount(MyContext myContext, MyAccount ma) {
@@ -896,20 +928,25 @@ public class Timeline implements Comparable<Timeline> {
             }
             syncFailedTimesCount++;
             syncFailedTimesCountTotal++;
+            setChanged(TimelineTable.SYNC_FAILED_DATE, TimelineTable.ERROR_MESSAGE,
+                    TimelineTable.SYNC_FAILED_TIMES_COUNT, TimelineTable.SYNC_FAILED_TIMES_COUNT_TOTAL);
         } else {
             syncSucceededDate = System.currentTimeMillis();
             syncedTimesCount++;
             syncedTimesCountTotal++;
+            setChanged(TimelineTable.SYNC_SUCCEEDED_DATE,
+                    TimelineTable.SYNCED_TIMES_COUNT, TimelineTable.SYNCED_TIMES_COUNT_TOTAL);
         }
         if (result.getMessagesAdded() > 0) {
             newItemsCount += result.getMessagesAdded();
             newItemsCountTotal += result.getMessagesAdded();
+            setChanged(TimelineTable.NEW_ITEMS_COUNT, TimelineTable.NEW_ITEMS_COUNT_TOTAL);
         }
         if (result.getDownloadedCount() > 0) {
             downloadedItemsCount += result.getDownloadedCount();
             downloadedItemsCountTotal += result.getDownloadedCount();
+            setChanged(TimelineTable.DOWNLOADED_ITEMS_COUNT, TimelineTable.DOWNLOADED_ITEMS_COUNT_TOTAL);
         }
-        changed = true;
     }
 
     public long getSyncSucceededDate() {
@@ -918,6 +955,7 @@ public class Timeline implements Comparable<Timeline> {
 
     public void setSyncSucceededDate(long syncSucceededDate) {
         this.syncSucceededDate = syncSucceededDate;
+        setChanged(TimelineTable.SYNC_SUCCEEDED_DATE);
     }
 
     public boolean isSyncable() {
@@ -983,6 +1021,8 @@ public class Timeline implements Comparable<Timeline> {
             syncedTimesCountTotal = 0;
             downloadedItemsCountTotal = 0;
             newItemsCountTotal = 0;
+            setChanged(TimelineTable.SYNC_FAILED_TIMES_COUNT_TOTAL, TimelineTable.SYNCED_TIMES_COUNT_TOTAL,
+                    TimelineTable.DOWNLOADED_ITEMS_COUNT_TOTAL, TimelineTable.NEW_ITEMS_COUNT_TOTAL);
         }
         errorMessage = "";
         syncFailedTimesCount = 0;
@@ -990,7 +1030,9 @@ public class Timeline implements Comparable<Timeline> {
         downloadedItemsCount = 0;
         newItemsCount = 0;
         countSince = System.currentTimeMillis();
-        changed = true;
+        setChanged(TimelineTable.ERROR_MESSAGE, TimelineTable.SYNC_FAILED_TIMES_COUNT,
+                TimelineTable.SYNCED_TIMES_COUNT, TimelineTable.DOWNLOADED_ITEMS_COUNT,
+                TimelineTable.NEW_ITEMS_COUNT, TimelineTable.COUNT_SINCE);
     }
 
     public long getCountSince() {
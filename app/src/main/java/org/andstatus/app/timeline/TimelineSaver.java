@@ -16,30 +16,36 @@
 
 package org.andstatus.app.timeline;
 
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.support.annotation.NonNull;
 
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
-import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.database.TimelineTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Save changes to Timelines not on UI thread.
  * Optionally creates default timelines: for all or for one account.
+ * Only one saver writes at a time, changed timelines are written in one transaction.
+ * A request from UI thread is not queued, if another one is waiting to start already: it will save the changes.
  * @author yvolk@yurivolkov.com
  */
 public class TimelineSaver extends MyAsyncTask<Void, Void, Void> {
-    private static final AtomicBoolean executing = new AtomicBoolean(false);
+    private static final Object lock = new Object();
+    private static final AtomicBoolean scheduled = new AtomicBoolean(false);
     private final MyContext myContext;
     private boolean addDefaults = false;
     private MyAccount myAccount = null;
@@ -61,38 +67,35 @@ public class TimelineSaver extends MyAsyncTask<Void, Void, Void> {
 
     @Override
     protected Void doInBackground2(Void... params) {
+        if (!addDefaults) {
+            scheduled.set(false);
+        }
         executeSynchronously();
         return null;
     }
 
+    @Override
+    protected void onCancelled() {
+        if (!addDefaults) {
+            scheduled.set(false);
+        }
+        super.onCancelled();
+    }
+
     public void executeNotOnUiThread() {
         if (isUiThread()) {
-            AsyncTaskLauncher.execute(this, false, this);
+            if (addDefaults || scheduled.compareAndSet(false, true)) {
+                if (!AsyncTaskLauncher.execute(this, false, this) && !addDefaults) {
+                    scheduled.set(false);
+                }
+            }
         } else {
             executeSynchronously();
         }
     }
 
     private void executeSynchronously() {
-        long count = 10;
-        boolean lockReceived = false;
-        while (count > 0) {
-            lockReceived = executing.compareAndSet(false, true);
-            if (lockReceived) {
-                break;
-            }
-            count--;
-            if (DbUtils.waitMs(this, 1000)) {
-                break;
-            }
-        }
-        if (lockReceived) {
-            executingLockReceived();
-        }
-    }
-
-    private void executingLockReceived() {
-        try {
+        synchronized (lock) {
             if (addDefaults) {
                if (myAccount == null) {
                    addDefaultTimelinesIfNoneFound();
@@ -100,11 +103,47 @@ public class TimelineSaver extends MyAsyncTask<Void, Void, Void> {
                    addDefaultMyAccountTimelinesIfNoneFound(myAccount);
                }
             }
-            for (Timeline timeline : timelines().values()) {
+            saveChangedTimelines();
+        }
+    }
+
+    /** New timelines are saved outside of the transaction, because saving assigns them ids at once */
+    private void saveChangedTimelines() {
+        List<Timeline> changed = new ArrayList<>();
+        for (Timeline timeline : timelines().values()) {
+            if (timeline.getId() == 0) {
                 timeline.save(myContext);
+            } else if (timeline.isChanged() || timeline.needToLoadUserInTimeline()) {
+                changed.add(timeline);
+            }
+        }
+        SQLiteDatabase db = myContext.getDatabase();
+        if (changed.isEmpty() || db == null) {
+            return;
+        }
+        List<Set<String>> columns = new ArrayList<>();
+        for (Timeline timeline : changed) {
+            columns.add(timeline.getChangedColumns());
+        }
+        boolean saved = false;
+        try {
+            db.beginTransactionNonExclusive();
+            try {
+                for (Timeline timeline : changed) {
+                    timeline.save(myContext);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            saved = true;
+        } catch (SQLiteException e) {
+            MyLog.i(this, "Failed to save " + changed.size() + " timelines", e);
+        }
+        if (!saved) {
+            for (int index = 0; index < changed.size(); index++) {
+                changed.get(index).setChanged(columns.get(index));
             }
-        } finally {
-            executing.set(false);
         }
     }
 
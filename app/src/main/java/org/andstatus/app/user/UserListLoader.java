@@ -88,14 +88,10 @@ public class UserListLoader extends SyncLoader<UserListViewItem> {
     }
 
     protected void loadInternal() {
-        // TODO: Why only MyAccount's ID ??
-        Uri mContentUri = MatchedUri.getUserListUri(ma.getUserId(), mUserListType, ma.getOriginId(), mCentralItemId);
         Cursor c = null;
         try {
             c = MyContextHolder.get().context().getContentResolver()
-                    .query(mContentUri, UserListSql.getListProjection(),
-                            UserTable.TABLE_NAME + "." + BaseColumns._ID + getSqlUserIds(),
-                            null, null);
+                    .query(getContentUri(), UserListSql.getListProjection(), getSelection(), null, null);
             while ( c != null && c.moveToNext()) {
                 populateItem(c);
             }
@@ -146,6 +142,15 @@ public class UserListLoader extends SyncLoader<UserListViewItem> {
         return null;
     }
 
+    Uri getContentUri() {
+        // TODO: Why only MyAccount's ID ??
+        return MatchedUri.getUserListUri(ma.getUserId(), mUserListType, ma.getOriginId(), mCentralItemId);
+    }
+
+    String getSelection() {
+        return UserTable.TABLE_NAME + "." + BaseColumns._ID + getSqlUserIds();
+    }
+
     protected String getSqlUserIds() {
         StringBuilder sb = new StringBuilder();
         int size = 0;
@@ -16,6 +16,7 @@
 
 package org.andstatus.app.util;
 
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import org.andstatus.app.data.DbUtils;
@@ -33,6 +34,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 public class FileUtils {
@@ -135,6 +138,34 @@ public class FileUtils {
         return new byte[0];
     }
 
+    /** @return Hex SHA-1 digest of the file content or empty string on error */
+    @NonNull
+    public static String getSha1Hex(File file) {
+        if (file == null || !file.isFile()) {
+            return "";
+        }
+        InputStream is = null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            is = new FileInputStream(file);
+            byte[] readBuffer = new byte[BUFFER_LENGTH];
+            int read;
+            while ((read = is.read(readBuffer, 0, readBuffer.length)) != -1) {
+                md.update(readBuffer, 0, read);
+            }
+            StringBuilder builder = new StringBuilder();
+            for (byte b : md.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            MyLog.d(TAG, "Couldn't calculate digest of " + file.getAbsolutePath(), e);
+            return "";
+        } finally {
+            DbUtils.closeSilently(is);
+        }
+    }
+
     public static void deleteFilesRecursively(File rootDirectory) {
         if (rootDirectory == null) {
             return;
@@ -187,6 +218,11 @@ public class FileUtils {
     }
 
     public static void readStreamToFile(InputStream in, File file) throws IOException {
+        readStreamToFile(in, file, false);
+    }
+
+    /** @param append true to add the content to the end of the existing file */
+    public static void readStreamToFile(InputStream in, File file, boolean append) throws IOException {
         if (in == null || file == null) {
             return;
         }
@@ -196,7 +232,7 @@ public class FileUtils {
             FileOutputStream fileOutputStream = null;
             OutputStream out = null;
             try {
-                fileOutputStream = new FileOutputStream(file);
+                fileOutputStream = new FileOutputStream(file, append);
                 out = new BufferedOutputStream(fileOutputStream);
                 while ((count = in.read(buffer)) != -1) {
                     out.write(buffer, 0, count);
@@ -34,6 +34,10 @@ public class MyHtml {
         // Empty
     }
 
+    /** Increase this when {@link #prepareForView(String)} changes its result
+     * in order to prepare stored message bodies again */
+    public static final int PREPARE_FOR_VIEW_VERSION = 1;
+
     public static String prepareForView(String text) {
         String text2 = stripUnnecessaryNewlines(text);
         if (text2.endsWith("</p>") && StringUtils.countOfOccurrences(text2, "<p") == 1) {
@@ -124,6 +128,11 @@ public class MyHtml {
         return out.matches(GNU_SOCIAL_FAVORITED_SOMETHING_BY_REGEX);
     }
 
+    /** See {@link SimHash} */
+    public static long getBodyFingerprint(String body) {
+        return SimHash.fingerprint(getCleanedBody(body));
+    }
+
     @NonNull
     public static String getCleanedBody(String body) {
         String text2 = fromHtml(body).toLowerCase();
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.text.TextUtils;
+
+/**
+ * 64-bit SimHash of a text: similar texts have fingerprints, which differ in a few bits only.
+ * See <a href="https://en.wikipedia.org/wiki/SimHash">SimHash</a>
+ */
+public class SimHash {
+    /** Fingerprint of a text without words. Not a valid fingerprint for any text with words */
+    public static final long EMPTY = 0;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+        // Empty
+    }
+
+    /**
+     * @param text Words are separated by spaces
+     * @return {@link #EMPTY} for a text without words, e.g. of whitespace only
+     */
+    public static long fingerprint(String text) {
+        if (TextUtils.isEmpty(text)) {
+            return EMPTY;
+        }
+        int[] weights = new int[Long.SIZE];
+        boolean hasWords = false;
+        int wordStart = -1;
+        for (int ind = 0; ind <= text.length(); ind++) {
+            boolean isSeparator = ind == text.length() || Character.isWhitespace(text.charAt(ind));
+            if (isSeparator) {
+                if (wordStart >= 0) {
+                    addWord(weights, hashOfWord(text, wordStart, ind));
+                    hasWords = true;
+                    wordStart = -1;
+                }
+            } else if (wordStart < 0) {
+                wordStart = ind;
+            }
+        }
+        if (!hasWords) {
+            return EMPTY;
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    /** FNV-1a hash of a word */
+    private static long hashOfWord(String text, int start, int end) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int ind = start; ind < end; ind++) {
+            hash ^= text.charAt(ind);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void addWord(int[] weights, long hash) {
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            weights[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+        }
+    }
+
+    /** Number of different bits */
+    public static int distance(long fingerprint1, long fingerprint2) {
+        return Long.bitCount(fingerprint1 ^ fingerprint2);
+    }
+}